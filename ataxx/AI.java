@@ -1,9 +1,12 @@
 package ataxx;
 
 import java.util.ArrayList;
-import java.util.Random;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 import static ataxx.PieceColor.*;
+import static ataxx.TranspositionTable.*;
 
 /** A Player that computes its own moves.
  *  @author Peter Sorensen
@@ -11,16 +14,41 @@ import static ataxx.PieceColor.*;
 class AI extends Player {
 
     /** Maximum minimax search depth before going to static evaluation. */
-    private static final int MAX_DEPTH = 4;
+    static final int MAX_DEPTH = 4;
     /** A position magnitude indicating a win (for red if positive, blue
      *  if negative). */
-    private static final int WINNING_VALUE = Integer.MAX_VALUE - 1;
+    static final int WINNING_VALUE = Integer.MAX_VALUE - 1;
+    /** Values of at least this magnitude denote won or lost games. */
+    static final int WON = WINNING_VALUE / 2;
     /** A magnitude greater than a normal value. */
     private static final int INFTY = Integer.MAX_VALUE;
+    /** Ordering key of the move to be searched first: greater than the
+     *  gain of any move (two per capture, plus one for an extend). */
+    private static final int MAX_KEY = 18;
+    /** The clock is read once every CLOCK_MASK + 1 nodes in timed
+     *  searches. */
+    private static final int CLOCK_MASK = 1023;
+    /** Size of the table used to find principal variations when the
+     *  settings provide none (megabytes). */
+    private static final int PV_TABLE_MEGABYTES = 4;
 
     /** A new AI for GAME that will play MYCOLOR. */
     AI(Game game, PieceColor myColor) {
         super(game, myColor);
+        _params = game.searchParams();
+    }
+
+    /** A new AI that belongs to no game, for use only through analyze,
+     *  searching according to PARAMS. */
+    AI(SearchParams params) {
+        super(null, null);
+        _params = params;
+    }
+
+    /** A new AI that belongs to no game, for use only through analyze,
+     *  with default search parameters. */
+    AI() {
+        this(new SearchParams());
     }
 
     @Override
@@ -28,156 +56,636 @@ class AI extends Player {
         if (!board().canMove(myColor())) {
             return Move.pass();
         }
-        Move move = findMove();
-        System.out.println(myColor() + " moves "
-                + move.col0()
-                + move.row0()
-                + "-" + move.col1()
-                + move.row1() + ".");
+        clearStop();
+        Move move = game().think(this::findMove, this::stop);
+        if (move == null) {
+            return null;
+        }
+        game().reportMove("%s moves %c%c-%c%c.", myColor(),
+                          move.col0(), move.row0(),
+                          move.col1(), move.row1());
         return move;
     }
 
+    /** Search BOARD to DEPTH plies and return the best move found for
+     *  the side to move, or null if the game is over.  Afterwards,
+     *  lastScore(), lastDepth(), nodes() and variations() describe the
+     *  search.  BOARD
+     *  is modified during the search but restored before returning.
+     *  If I belong to a game, ties for the best move are broken at
+     *  random; otherwise the search is deterministic.  If stop() is
+     *  called during the search (or was called before it, and not
+     *  cancelled by clearStop()), returns the best move from the deepest
+     *  iteration completed (any legal move if there is none). */
+    Move analyze(Board board, int depth) {
+        return analyze(board, depth, 0);
+    }
+
+    /** As for analyze(BOARD, DEPTH), but if MILLIS > 0, also stop as if
+     *  by stop() after about MILLIS milliseconds, unless the settings
+     *  are deterministic. */
+    Move analyze(Board board, int depth, long millis) {
+        _timed = millis > 0 && !_params.deterministic();
+        _deadline = System.nanoTime() + millis * 1_000_000;
+        _nodes = 0;
+        _lastFoundMove = null;
+        _lastDepth = 0;
+        _multiPV = _params.multiPV();
+        _bestCount = 0;
+        _table = _params.table();
+        if (_table == null && _multiPV > 1) {
+            if (_pvTable == null) {
+                _pvTable = new TranspositionTable(PV_TABLE_MEGABYTES, false);
+            }
+            _table = _pvTable;
+        }
+        if (_table != null) {
+            _table.useSettings(_params.fingerprint());
+            _table.newSearch();
+        }
+        Network net = _params.network();
+        _useNetwork = net != null;
+        if (!_useNetwork) {
+            return iterate(board, depth);
+        }
+        if (_accumulator == null || _accumulator.network() != net) {
+            _accumulator = new Accumulator(net);
+        }
+        _accumulator.refresh(board);
+        board.setAccumulator(_accumulator);
+        try {
+            return iterate(board, depth);
+        } finally {
+            board.setAccumulator(null);
+        }
+    }
+
+    /** Perform the iterations of analyze(BOARD, DEPTH, ...) to DEPTH,
+     *  and return the best move found. */
+    private Move iterate(Board board, int depth) {
+        int sense = board.whoseMove() == RED ? 1 : -1;
+        int value, previous;
+        value = previous = 0;
+        for (int d = 1; d <= depth; d += 1) {
+            /* Values alternate between odd and even depths (the side
+             * that moved last looks better), so aspiration uses the
+             * value from two iterations back. */
+            int guess = d <= 2 ? value : previous;
+            int result = findMove(board, d, guess);
+            if (_stopped) {
+                break;
+            }
+            previous = value;
+            value = result;
+            _lastDepth = d;
+            _bestCount = _pvCount;
+            System.arraycopy(_pvMoves, 0, _bestMoves, 0, _pvCount);
+            System.arraycopy(_pvValues, 0, _bestValues, 0, _pvCount);
+        }
+        if (_lastFoundMove == null && !board.gameOver()) {
+            Move[] moves = moveBuffer(0);
+            _lastFoundMove =
+                board.legalMoves(moves) == 0 ? Move.pass() : moves[0];
+        }
+        _lastScore = sense * value;
+        _variations = variations(board, sense);
+        if (_table != null) {
+            _table.flush();
+        }
+        return _lastFoundMove;
+    }
+
+    /** Make the search in progress, if any, return as soon as possible
+     *  (see analyze).  May be called from any thread. */
+    void stop() {
+        _stopped = true;
+    }
+
+    /** Cancel the effect of any earlier stop(), so that the next search
+     *  runs to completion. */
+    void clearStop() {
+        _stopped = false;
+    }
+
+    /** Return the value (positive favoring red) that the last search
+     *  assigned to its position. */
+    int lastScore() {
+        return _lastScore;
+    }
+
+    /** Return the depth of the last search. */
+    int lastDepth() {
+        return _lastDepth;
+    }
+
+    /** Return the number of positions visited by the last search. */
+    long nodes() {
+        return _nodes;
+    }
+
+    /** Return the best lines of play found by the last search, best
+     *  first: up to _params.multiPV() of them (fewer if there are fewer
+     *  moves), or one, for the move returned, if the last complete
+     *  iteration found none.  Empty if the game was over. */
+    List<Variation> variations() {
+        return _variations;
+    }
+
+    /** Return the variations from BOARD's position, whose values are
+     *  SENSE times their values for the side to move, for variations(),
+     *  after a search.  Each continues with the best moves recorded in
+     *  the transposition table, if any, up to the depth searched. */
+    private List<Variation> variations(Board board, int sense) {
+        if (_lastFoundMove == null) {
+            return Collections.emptyList();
+        }
+        List<Variation> result = new ArrayList<>();
+        if (_bestCount == 0) {
+            result.add(new Variation(_lastScore, line(board, _lastFoundMove)));
+        }
+        for (int i = 0; i < _bestCount; i += 1) {
+            result.add(new Variation(sense * _bestValues[i],
+                                     line(board, _bestMoves[i])));
+        }
+        return result;
+    }
+
+    /** Return the line of play starting with FIRST from BOARD's
+     *  position, continued from the transposition table for up to
+     *  lastDepth() moves in all.  BOARD is restored afterwards. */
+    private List<Move> line(Board board, Move first) {
+        List<Move> line = new ArrayList<>();
+        Move move = first;
+        while (true) {
+            line.add(move);
+            board.makeMove(move);
+            if (line.size() >= _lastDepth || _table == null
+                || board.gameOver()) {
+                break;
+            }
+            move = TranspositionTable.move(_table.probe(board.key()));
+            if (move == null && !board.canMove(board.whoseMove())) {
+                move = Move.pass();
+            } else if (move == null || !board.legalMove(move)) {
+                break;
+            }
+        }
+        for (int i = line.size(); i > 0; i -= 1) {
+            board.undo();
+        }
+        return line;
+    }
+
     /** Return a move for me from the current position, assuming there
      *  is a move. */
     private Move findMove() {
         Board b = new Board(board());
-        if (myColor() == RED) {
-            findMove(b, MAX_DEPTH, true, 1, -INFTY, INFTY);
-        } else {
-            findMove(b, MAX_DEPTH, true, -1, -INFTY, INFTY);
-        }
-        return _lastFoundMove;
+        b.suspendNotifications();
+        return analyze(b, MAX_DEPTH);
     }
 
     /** Used to communicate best moves found by findMove, when asked for. */
     private Move _lastFoundMove;
 
-    /** Find a move from position BOARD and return its value, recording
-     *  the move found in _lastFoundMove iff SAVEMOVE. The move
-     *  should have maximal value or have value >= BETA if SENSE==1,
-     *  and minimal value or value <= ALPHA if SENSE==-1. Searches up to
-     *  DEPTH levels before using a static estimate. */
-    private int findMove(Board board, int depth, boolean saveMove, int sense,
-                         int alpha, int beta) {
-        if (saveMove) {
-            _lastFoundMove = findMax(board, MAX_DEPTH, alpha, beta);
-        }
-        return 0;
-    }
-
-    /** Finds the best possible move on BOARD looking DEPTH moves ahead
-     *  with ALPHA and BETA and returns the move.
-     * @param board
-     * @param depth
-     * @param alpha
-     * @param beta
-     * @return
-     */
-    Move findMax(Board board, int depth, int alpha, int beta) {
-        if (depth == 0
-                || board.SIDE * board.SIDE
-                - (board.redPieces() + board.bluePieces()) <= MAX_DEPTH
-                || (board.SIDE * board.SIDE
-                - (board.redPieces() + board.bluePieces()
-                + board.numBlocks()) > 5)) {
-            return simpleFindMax(board, alpha, beta);
-        }
-        ArrayList<Move> ret = new ArrayList<>();
-        for (char i = '7'; i >= '1'; i--) {
-            for (char j = 'a'; j <= 'g'; j++) {
-                if (board.get(j, i) == myColor()) {
-                    ArrayList<Integer> moves = new ArrayList<>();
-                    for (int dis : board.bothSpots()) {
-                        if (board.get(board.index(j, i) + dis) == EMPTY) {
-                            moves.add(board.index(j, i) + dis);
-                        }
-                    }
-                    int increase = 1;
-                    for (int k = 0; k < moves.size(); k += increase) {
-                        Move movin = Move.move(j, i, board.linearToC(
-                                moves.get(k))
-                                , board.linearToR(moves.get(k)));
-                        board.makeMove(movin);
-                        if (board.gameOver()) {
-                            board.undo();
-                            return movin;
-                        }
-                        setColor(myColor().opposite());
-                        Move response = findMax(board, depth - 1, 0, beta);
-                        if (board.gameOver()) {
-                            setColor(myColor().opposite());
-                            return movin;
-                        }
-                        board.makeMove(response);
-                        setColor(myColor().opposite());
-                        if (board.numPieces(myColor()) > alpha) {
-                            ret.clear();
-                            ret.add(movin);
-                            alpha = board.numPieces(myColor());
-                        } else if (board.numPieces(myColor()) == alpha) {
-                            ret.add(movin);
-                        }
-                        board.undo();
-                        board.undo();
-                    }
+    /** Search BOARD to DEPTH, recording the best move in _lastFoundMove,
+     *  and return its value for the side to move.  GUESS is the value
+     *  expected from a shallower search, used to narrow the initial
+     *  window if aspiration is enabled (from depth 3 on). */
+    private int findMove(Board board, int depth, int guess) {
+        if (!_params.aspiration() || depth <= 2 || Math.abs(guess) >= WON
+            || _multiPV > 1) {
+            return search(board, depth, 0, -INFTY, INFTY);
+        }
+        int alpha = guess - _params.aspirationWindow(),
+            beta = guess + _params.aspirationWindow();
+        while (true) {
+            int value = search(board, depth, 0, alpha, beta);
+            if (_stopped) {
+                return value;
+            } else if (value <= alpha) {
+                alpha = -INFTY;
+            } else if (value >= beta) {
+                beta = INFTY;
+            } else {
+                return value;
+            }
+        }
+    }
+
+    /** Return the value of BOARD for the side to move, searching DEPTH
+     *  plies further, at PLY plies from the root.  The value is exact if
+     *  it lies strictly between ALPHA and BETA; otherwise it is at most
+     *  ALPHA (fail low) or at least BETA (fail high).  At the root (PLY
+     *  0), records the best move in _lastFoundMove, and the best
+     *  _multiPV moves, with their exact values, in _pvMoves and
+     *  _pvValues (which must be sorted into that order, beta being
+     *  INFTY if _multiPV > 1).  Once _stopped is
+     *  set, returns a meaningless value at once, leaving _lastFoundMove
+     *  alone. */
+    private int search(Board board, int depth, int ply, int alpha,
+                       int beta) {
+        _nodes += 1;
+        if (_timed && (_nodes & CLOCK_MASK) == 0
+            && System.nanoTime() - _deadline >= 0) {
+            _stopped = true;
+        }
+        int sense = board.whoseMove() == RED ? 1 : -1;
+        if (_stopped) {
+            return 0;
+        } else if (board.gameOver()) {
+            return sense * finalScore(board);
+        }
+        if (depth <= 0) {
+            if (_params.quiescence()) {
+                return quiesce(board, _params.quiescenceDepth(), ply,
+                               alpha, beta);
+            }
+            return sense * staticScore(board);
+        }
+        TranspositionTable table = _table;
+        long key = 0;
+        Move hashMove = null;
+        if (table != null) {
+            key = board.key();
+            long entry = table.probe(key);
+            if (entry != 0) {
+                hashMove = TranspositionTable.move(entry);
+                int value = fromTable(TranspositionTable.value(entry),
+                                      board.numMoves()),
+                    bound = TranspositionTable.bound(entry);
+                if (ply > 0 && TranspositionTable.depth(entry) >= depth
+                    && (bound == EXACT || bound == LOWER && value >= beta
+                        || bound == UPPER && value <= alpha)) {
+                    return value;
                 }
             }
         }
-        if (ret.isEmpty()) {
-            return Move.PASS;
-        }
-        Random randomizer = new Random();
-        Move random = ret.get(randomizer.nextInt(ret.size()));
-        return random;
-    }
-
-    /** Simple version of findMax. Returns the best Move
-     *  on BOARD when considering a depth of 0, ALPHA, BETA.
-     * @param board
-     * @param alpha
-     * @param beta
-     * @return
-     */
-    Move simpleFindMax(Board board, int alpha, int beta) {
-        int currPieces = board.numPieces(myColor());
-        ArrayList<Move> ret = new ArrayList<>();
-        for (char i = '7'; i >= '1'; i--) {
-            for (char j = 'a'; j <= 'g'; j++) {
-                if (board.get(j, i) == myColor()) {
-                    ArrayList<Integer> moves = new ArrayList<>();
-                    for (int dis : board.bothSpots()) {
-                        if (board.get(board.index(j, i) + dis) == EMPTY) {
-                            moves.add(board.index(j, i) + dis);
-                        }
-                    }
-                    for (Integer each : moves) {
-                        Move movin = Move.move(j, i, board.linearToC(each)
-                                , board.linearToR(each));
-                        board.makeMove(movin);
-                        if (board.gameOver()) {
-                            return movin;
-                        } else if (board.numPieces(myColor()) > alpha) {
-                            ret.clear();
-                            ret.add(movin);
-                            alpha = board.numPieces(myColor());
-                        } else if (board.numPieces(myColor()) == alpha) {
-                            ret.add(movin);
-                        }
-                        board.undo();
-                    }
+        Move[] moves = moveBuffer(ply);
+        int n = board.legalMoves(moves);
+        if (n == 0) {
+            board.makeMove(Move.pass());
+            int value = -search(board, depth - 1, ply + 1, -beta, -alpha);
+            board.undo();
+            if (ply == 0 && !_stopped) {
+                _lastFoundMove = _pvMoves[0] = Move.pass();
+                _pvValues[0] = value;
+                _pvCount = 1;
+            }
+            return value;
+        }
+        int[] keys = _keys[ply];
+        order(board, moves, keys, n,
+              ply == 0 && _lastFoundMove != null ? _lastFoundMove
+              : hashMove);
+
+        boolean root = ply == 0, breakTies = root && game() != null;
+        boolean multi = root && _multiPV > 1;
+        ArrayList<Move> ties = _ties;
+        if (root) {
+            ties.clear();
+        }
+        int best = -INFTY, alpha0 = alpha;
+        Move bestMove = null;
+        if (root) {
+            _pvCount = 0;
+        }
+        for (int i = 0; i < n; i += 1) {
+            Move move = moves[i];
+            int a = alpha;
+            boolean full = i == 0;
+            if (multi) {
+                full = _pvCount < _multiPV;
+                a = full ? alpha0
+                    : Math.max(alpha0, _pvValues[_multiPV - 1]);
+            } else if (breakTies && alpha > -INFTY) {
+                a = alpha - 1;
+            }
+            int reduction = 0;
+            if (_params.lmr() && i >= _params.lmrMoves()
+                && depth >= _params.lmrDepth()
+                && move.isJump() && keys[i] == 0) {
+                reduction = _params.lmrReduction();
+            }
+            board.makeMove(move);
+            int value;
+            if (!full && (_params.pvs() || reduction > 0)) {
+                int b = _params.pvs() ? a + 1 : beta;
+                value = -search(board, depth - 1 - reduction, ply + 1,
+                                -b, -a);
+                if (value > a && reduction > 0) {
+                    value = -search(board, depth - 1, ply + 1, -b, -a);
+                }
+                if (value > a && value < beta && b < beta) {
+                    value = -search(board, depth - 1, ply + 1, -beta, -a);
+                }
+            } else {
+                value = -search(board, depth - 1, ply + 1, -beta, -a);
+            }
+            board.undo();
+            if (_stopped) {
+                return 0;
+            }
+            if (multi && value > a) {
+                addVariation(move, value);
+            }
+            if (root && value == best) {
+                ties.add(move);
+            }
+            if (value > best) {
+                best = value;
+                bestMove = move;
+                if (root) {
+                    ties.clear();
+                    ties.add(move);
                 }
             }
+            alpha = Math.max(alpha, value);
+            if (alpha >= beta) {
+                break;
+            }
+        }
+        if (table != null) {
+            table.store(key, toTable(best, board.numMoves()), depth,
+                        best >= beta ? LOWER : best > alpha0 ? EXACT : UPPER,
+                        bestMove);
+        }
+        if (multi) {
+            ties.clear();
+            for (int i = 0; i < _pvCount && _pvValues[i] == best; i += 1) {
+                ties.add(_pvMoves[i]);
+            }
+        }
+        if (root) {
+            if (breakTies) {
+                _lastFoundMove = ties.get(game().nextRandom(ties.size()));
+            } else {
+                _lastFoundMove = ties.get(0);
+            }
+            if (!multi) {
+                _pvMoves[0] = _lastFoundMove;
+                _pvValues[0] = best;
+                _pvCount = 1;
+            }
+        }
+        return best;
+    }
+
+    /** Add MOVE, with value VALUE, to the best root moves of the current
+     *  iteration, keeping the best _multiPV, best first, and the earlier
+     *  found first among equals. */
+    private void addVariation(Move move, int value) {
+        if (_pvMoves.length < _multiPV) {
+            _pvMoves = Arrays.copyOf(_pvMoves, _multiPV);
+            _pvValues = Arrays.copyOf(_pvValues, _multiPV);
+            _bestMoves = new Move[_multiPV];
+            _bestValues = new int[_multiPV];
+        }
+        int i = Math.min(_pvCount, _multiPV - 1);
+        for (; i > 0 && _pvValues[i - 1] < value; i -= 1) {
+            _pvMoves[i] = _pvMoves[i - 1];
+            _pvValues[i] = _pvValues[i - 1];
+        }
+        _pvMoves[i] = move;
+        _pvValues[i] = value;
+        _pvCount = Math.min(_pvCount + 1, _multiPV);
+    }
+
+    /** Return the value of BOARD for the side to move, at or beyond the
+     *  search horizon, PLY plies from the root, with ALPHA and BETA as
+     *  for search.  The side to move may either accept the static value
+     *  ("stand pat") or make a move that captures at least
+     *  _params.quiescenceCaptures() pieces, up to DEPTH more plies. */
+    private int quiesce(Board board, int depth, int ply, int alpha,
+                        int beta) {
+        int sense = board.whoseMove() == RED ? 1 : -1;
+        int best = sense * staticScore(board);
+        if (depth == 0 || best >= beta) {
+            return best;
+        }
+        Move[] moves = moveBuffer(ply);
+        int n = board.captureMoves(moves, _params.quiescenceCaptures());
+        if (n == 0) {
+            return best;
+        }
+        int[] keys = _keys[ply];
+        order(board, moves, keys, n, null);
+        alpha = Math.max(alpha, best);
+        for (int i = 0; i < n; i += 1) {
+            board.makeMove(moves[i]);
+            _nodes += 1;
+            int value;
+            if (board.gameOver()) {
+                value = sense * finalScore(board);
+            } else {
+                value = -quiesce(board, depth - 1, ply + 1, -beta, -alpha);
+            }
+            board.undo();
+            best = Math.max(best, value);
+            alpha = Math.max(alpha, value);
+            if (alpha >= beta) {
+                break;
+            }
+        }
+        return best;
+    }
+
+    /** Sort the N moves in MOVES from BOARD's position so that the most
+     *  promising come first, leaving in KEYS[i] the number of pieces by
+     *  which MOVES[i] immediately improves the mover's piece difference.
+     *  FIRST, if one of the moves, is placed first regardless, with key
+     *  -1.  The sort is stable. */
+    private void order(Board board, Move[] moves, int[] keys, int n,
+                       Move first) {
+        PieceColor opponent = board.whoseMove().opposite();
+        int[] counts = _keyCounts;
+        Arrays.fill(counts, 0);
+        for (int i = 0; i < n; i += 1) {
+            Move move = moves[i];
+            int key = 2 * board.neighbors(move.toIndex(), opponent);
+            if (move.isExtend()) {
+                key += 1;
+            }
+            if (move == first) {
+                key = MAX_KEY;
+            }
+            _scratchMoves[i] = move;
+            _scratchKeys[i] = key;
+            counts[key] += 1;
+        }
+        for (int k = MAX_KEY, start = 0; k >= 0; k -= 1) {
+            int count = counts[k];
+            counts[k] = start;
+            start += count;
         }
-        if (ret.isEmpty()) {
-            return Move.PASS;
+        for (int i = 0; i < n; i += 1) {
+            int j = counts[_scratchKeys[i]]++;
+            moves[j] = _scratchMoves[i];
+            keys[j] = _scratchKeys[i] == MAX_KEY ? -1 : _scratchKeys[i];
         }
-        Random randomizer = new Random();
-        Move random = ret.get(randomizer.nextInt(ret.size()));
-        return random;
+    }
+
+    /** Return the array used to hold the moves generated at PLY. */
+    private Move[] moveBuffer(int ply) {
+        if (ply >= _moveBuffers.length) {
+            Move[][] bigger = new Move[ply + 1][];
+            System.arraycopy(_moveBuffers, 0, bigger, 0,
+                             _moveBuffers.length);
+            _moveBuffers = bigger;
+            int[][] biggerKeys = new int[ply + 1][];
+            System.arraycopy(_keys, 0, biggerKeys, 0, _keys.length);
+            _keys = biggerKeys;
+        }
+        if (_moveBuffers[ply] == null) {
+            _moveBuffers[ply] = new Move[Board.MAX_MOVES];
+            _keys[ply] = new int[Board.MAX_MOVES];
+        }
+        return _moveBuffers[ply];
+    }
+
+    /** Return the value of BOARD, on which the game is over: a winning
+     *  value for the side with more pieces, larger for quicker wins, or 0
+     *  for a draw. */
+    private int finalScore(Board board) {
+        int diff = board.redPieces() - board.bluePieces();
+        if (diff > 0) {
+            return WINNING_VALUE - board.numMoves();
+        } else if (diff < 0) {
+            return -WINNING_VALUE + board.numMoves();
+        } else {
+            return 0;
+        }
+    }
+
+    /** Return VALUE, found for a position after NUMMOVES moves, as kept
+     *  in a transposition table: win and loss values count moves from
+     *  that position rather than from the start of the game, so that
+     *  they hold wherever the position recurs. */
+    private static int toTable(int value, int numMoves) {
+        if (value >= WON) {
+            return value + numMoves;
+        } else if (value <= -WON) {
+            return value - numMoves;
+        }
+        return value;
+    }
+
+    /** Return the value kept in a transposition table as VALUE (see
+     *  toTable) for a position after NUMMOVES moves. */
+    private static int fromTable(int value, int numMoves) {
+        if (value >= WON) {
+            return value - numMoves;
+        } else if (value <= -WON) {
+            return value + numMoves;
+        }
+        return value;
     }
 
     /** Return a heuristic value for BOARD. */
     private int staticScore(Board board) {
-        return 0;
+        if (_useNetwork) {
+            return _accumulator.score(board.whoseMove());
+        }
+        return _params.evaluation().score(board);
+    }
+
+    /** Search settings. */
+    private final SearchParams _params;
+    /** The moves tied for best at the root, during a search. */
+    private final ArrayList<Move> _ties = new ArrayList<>();
+    /** Move lists for each ply from the root, reused between searches. */
+    private Move[][] _moveBuffers = new Move[MAX_DEPTH + 1][];
+    /** Ordering keys for the moves in _moveBuffers. */
+    private int[][] _keys = new int[MAX_DEPTH + 1][];
+    /** Scratch space for order. */
+    private final Move[] _scratchMoves = new Move[Board.MAX_MOVES];
+    /** Scratch space for order. */
+    private final int[] _scratchKeys = new int[Board.MAX_MOVES];
+    /** Scratch space for order. */
+    private final int[] _keyCounts = new int[MAX_KEY + 1];
+    /** Value of the position at the root of the last search. */
+    private int _lastScore;
+    /** Depth of the last search. */
+    private int _lastDepth;
+    /** Number of positions visited in the current or last search. */
+    private long _nodes;
+    /** Set by stop() to end the current search. */
+    private volatile boolean _stopped;
+    /** True iff the current search has a time limit. */
+    private boolean _timed;
+    /** True iff the current search evaluates with _accumulator. */
+    private boolean _useNetwork;
+    /** Network sums for the board being searched, if it is evaluated
+     *  by a network; otherwise, those of a previous search or null. */
+    private Accumulator _accumulator;
+    /** Value of System.nanoTime() at which a timed search stops. */
+    private long _deadline;
+    /** The transposition table used by the current search, or null. */
+    private TranspositionTable _table;
+    /** My own table, for finding principal variations when the settings
+     *  have none, once needed. */
+    private TranspositionTable _pvTable;
+    /** Number of root moves valued exactly by the current search. */
+    private int _multiPV;
+    /** The best root moves of the current iteration and their values
+     *  for the side to move, best first, and their number. */
+    private Move[] _pvMoves = new Move[1];
+    /** Values of _pvMoves. */
+    private int[] _pvValues = new int[1];
+    /** Number of moves in _pvMoves. */
+    private int _pvCount;
+    /** The contents of _pvMoves, _pvValues and _pvCount at the end of
+     *  the last complete iteration. */
+    private Move[] _bestMoves = new Move[1];
+    /** See _bestMoves. */
+    private int[] _bestValues = new int[1];
+    /** See _bestMoves. */
+    private int _bestCount;
+    /** Result of variations(). */
+    private List<Variation> _variations = Collections.emptyList();
+
+    /** A line of play found by a search. */
+    static class Variation {
+
+        /** A line of play MOVES, whose first move has value SCORE
+         *  (positive favoring red). */
+        Variation(int score, List<Move> moves) {
+            _score = score;
+            _moves = moves;
+        }
+
+        /** Return the value of my first move (positive favoring red). */
+        int score() {
+            return _score;
+        }
+
+        /** Return my moves, starting with the root move. */
+        List<Move> moves() {
+            return _moves;
+        }
+
+        /** Return MOVE as written in the text interface ("-" for a
+         *  pass). */
+        static String name(Move move) {
+            if (move.isPass()) {
+                return "-";
+            }
+            return String.format("%c%c-%c%c", move.col0(), move.row0(),
+                                 move.col1(), move.row1());
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder out = new StringBuilder();
+            out.append("score ").append(_score).append(':');
+            for (Move move : _moves) {
+                out.append(' ').append(name(move));
+            }
+            return out.toString();
+        }
+
+        /** Value of my first move. */
+        private final int _score;
+        /** My moves. */
+        private final List<Move> _moves;
     }
 }
@@ -0,0 +1,90 @@
+package ataxx;
+
+import static ataxx.PieceColor.*;
+
+/** The first-layer sums of a Network for the position on a Board,
+ *  kept current as squares of the Board change (see
+ *  Board.setAccumulator), so that evaluating a position after a move
+ *  costs only the work of the squares the move changed plus that of the
+ *  later layers.
+ *  @author Peter Sorensen
+ */
+class Accumulator {
+
+    /** An accumulator for NET, describing an empty board until
+     *  refreshed. */
+    Accumulator(Network net) {
+        _net = net;
+        _red = new short[net.hidden()];
+        _blue = new short[net.hidden()];
+        _active = new byte[2 * net.hidden()];
+        net.clear(_red);
+        net.clear(_blue);
+    }
+
+    /** Return my network. */
+    Network network() {
+        return _net;
+    }
+
+    /** Recompute my sums from scratch for the position on BOARD. */
+    void refresh(Board board) {
+        _net.clear(_red);
+        _net.clear(_blue);
+        for (int sq = 0; sq < Network.SQUARES; sq += 1) {
+            PieceColor c = board.get(GameRecord.col(sq), GameRecord.row(sq));
+            if (c == RED || c == BLUE) {
+                add(c, sq, 1);
+            }
+        }
+    }
+
+    /** Record that the contents of the square with Board index SQ have
+     *  changed from OLD to NOW. */
+    void update(int sq, PieceColor old, PieceColor now) {
+        int square = SQUARE[sq];
+        if (old == RED || old == BLUE) {
+            add(old, square, -1);
+        }
+        if (now == RED || now == BLUE) {
+            add(now, square, 1);
+        }
+    }
+
+    /** Return the value of my position in pieces, positive favoring
+     *  red, when WHO is to move. */
+    int score(PieceColor who) {
+        if (who == RED) {
+            return _net.evaluate(_red, _blue, _active);
+        } else {
+            return -_net.evaluate(_blue, _red, _active);
+        }
+    }
+
+    /** Add SIGN times the features of a piece of color C on the square
+     *  numbered SQ as for Board.mask. */
+    private void add(PieceColor c, int sq, int sign) {
+        _net.addFeature(_red, Network.feature(RED, c, sq), sign);
+        _net.addFeature(_blue, Network.feature(BLUE, c, sq), sign);
+    }
+
+    /** Maps Board indices of squares on the board to their numbers as
+     *  for Board.mask. */
+    private static final int[] SQUARE =
+        new int[Board.EXTENDED_SIDE * Board.EXTENDED_SIDE];
+
+    static {
+        for (int sq = 0; sq < Network.SQUARES; sq += 1) {
+            SQUARE[Board.index(GameRecord.col(sq), GameRecord.row(sq))] = sq;
+        }
+    }
+
+    /** My network. */
+    private final Network _net;
+    /** Sums from red's perspective. */
+    private final short[] _red;
+    /** Sums from blue's perspective. */
+    private final short[] _blue;
+    /** Scratch space for evaluation. */
+    private final byte[] _active;
+}
@@ -0,0 +1,182 @@
+package ataxx;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static ataxx.PieceColor.*;
+import static ataxx.GameException.error;
+
+/** Batch analysis of positions read from a file.  The input contains
+ *  positions either in the format printed by the 'dump' command (lines
+ *  of squares between two "===" lines) or in the one-line compact
+ *  notation of Board.position().  A line consisting of "red" or "blue"
+ *  before a dumped position gives the side to move in it (red by
+ *  default).  Blank lines and text after '#' are ignored.
+ *
+ *  For each position, in order, one line is printed:
+ *      N: MOVE score S depth D nodes K
+ *  where N is the line number at which the position starts, MOVE is
+ *  the best move found (or "none" if the game is over), S its value
+ *  (positive favors red), D the search depth, and K the number of
+ *  positions searched.  If the settings ask for more than one
+ *  principal variation (multipv), that line is followed by one line for
+ *  each of the best moves, best first:
+ *      I. score S: MOVE MOVE ...
+ *  giving the rank I of the move (from 1), its value S, and the line of
+ *  play the search expects to follow it.
+ *
+ *  Positions are searched in parallel, but only a bounded number are
+ *  read ahead of the output, so memory use does not grow with the size
+ *  of the input.
+ *  @author Peter Sorensen
+ */
+class Analyzer {
+
+    /** Number of positions that may be in progress per thread. */
+    private static final int WINDOW_PER_THREAD = 4;
+
+    /** An analyzer that searches to DEPTH with settings PARAMS using
+     *  THREADS threads and prints its results on OUTPUT. */
+    Analyzer(int depth, SearchParams params, int threads,
+             PrintStream output) {
+        _depth = depth;
+        _params = params.freshCopy();
+        _threads = threads;
+        _output = output;
+    }
+
+    /** Analyze all positions in INPUT.  Throws a GameException if the
+     *  input is malformed or cannot be read. */
+    void analyze(Reader input) {
+        ExecutorService workers = Executors.newFixedThreadPool(_threads);
+        ThreadLocal<AI> searchers =
+            ThreadLocal.withInitial(() -> new AI(_params));
+        ArrayDeque<Future<String>> pending = new ArrayDeque<>();
+        try {
+            BufferedReader lines = new BufferedReader(input);
+            while (true) {
+                Board board = readPosition(lines);
+                if (board == null) {
+                    break;
+                }
+                int start = _positionLine;
+                pending.add(workers.submit(() ->
+                    analysis(start, board, searchers.get())));
+                if (pending.size() >= _threads * WINDOW_PER_THREAD) {
+                    _output.println(pending.remove().get());
+                }
+            }
+            while (!pending.isEmpty()) {
+                _output.println(pending.remove().get());
+            }
+        } catch (IOException excp) {
+            throw error("could not read positions: %s", excp.getMessage());
+        } catch (InterruptedException excp) {
+            throw error("analysis interrupted");
+        } catch (ExecutionException excp) {
+            throw error("analysis failed: %s", excp.getCause());
+        } finally {
+            workers.shutdownNow();
+        }
+        _output.flush();
+    }
+
+    /** Return the result line for the position BOARD starting at line
+     *  LINENUM, as analyzed by SEARCHER. */
+    private String analysis(int lineNum, Board board, AI searcher) {
+        board.suspendNotifications();
+        Move best = searcher.analyze(board, _depth);
+        String move = best == null ? "none" : AI.Variation.name(best);
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("%d: %s score %d depth %d nodes %d",
+                                 lineNum, move, searcher.lastScore(),
+                                 searcher.lastDepth(), searcher.nodes()));
+        if (_params.multiPV() > 1) {
+            int rank = 1;
+            for (AI.Variation line : searcher.variations()) {
+                out.append(String.format("%n%d. %s", rank, line));
+                rank += 1;
+            }
+        }
+        return out.toString();
+    }
+
+    /** Read and return the next position from LINES, or null if there
+     *  are no more.  Sets _positionLine to the number of its first line. */
+    private Board readPosition(BufferedReader lines) throws IOException {
+        PieceColor next = RED;
+        StringBuilder squares = null;
+        int start = -1;
+        while (true) {
+            String line = lines.readLine();
+            if (line == null) {
+                if (start >= 0) {
+                    throw error("line %d: unterminated position", start);
+                }
+                return null;
+            }
+            _lineNum += 1;
+            int comment = line.indexOf('#');
+            if (comment >= 0) {
+                line = line.substring(0, comment);
+            }
+            line = line.trim();
+            if (line.isEmpty()) {
+                continue;
+            } else if (squares != null) {
+                if (line.equals("===")) {
+                    break;
+                }
+                squares.append(line);
+            } else if (start < 0 && line.indexOf('/') >= 0) {
+                _positionLine = _lineNum;
+                Board board = new Board();
+                try {
+                    board.setPosition(line);
+                } catch (GameException excp) {
+                    throw error("line %d: %s", _lineNum, excp.getMessage());
+                }
+                return board;
+            } else if (line.equals("===")) {
+                squares = new StringBuilder();
+                start = start < 0 ? _lineNum : start;
+            } else if (start < 0 && line.equalsIgnoreCase("red")) {
+                next = RED;
+                start = _lineNum;
+            } else if (start < 0 && line.equalsIgnoreCase("blue")) {
+                next = BLUE;
+                start = _lineNum;
+            } else {
+                throw error("line %d: expected a position", _lineNum);
+            }
+        }
+        _positionLine = start;
+        Board board = new Board();
+        try {
+            board.setup(squares, next);
+        } catch (GameException excp) {
+            throw error("line %d: %s", start, excp.getMessage());
+        }
+        return board;
+    }
+
+    /** Search depth. */
+    private final int _depth;
+    /** Search settings. */
+    private final SearchParams _params;
+    /** Number of worker threads. */
+    private final int _threads;
+    /** Destination of results. */
+    private final PrintStream _output;
+    /** Number of lines read so far. */
+    private int _lineNum;
+    /** Line number of the start of the position most recently read. */
+    private int _positionLine;
+}
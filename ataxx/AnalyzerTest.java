@@ -0,0 +1,165 @@
+package ataxx;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.util.List;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of AI search and batch analysis.
+ *  @author Peter Sorensen
+ */
+public class AnalyzerTest {
+
+    /** A position in which red wins at once by taking blue's last
+     *  pieces with c5-b6. */
+    private static final String WIN =
+        "- b - - - - -"
+        + "b - - - - - -"
+        + "- - r - - - -"
+        + "- - - - - - -"
+        + "- - - - - - -"
+        + "- - - - - - -"
+        + "- - - - - - r";
+
+    @Test public void testFindsWin() {
+        Board b = new Board();
+        b.setup(WIN, PieceColor.RED);
+        AI ai = new AI();
+        for (int depth = 1; depth <= 3; depth += 1) {
+            Move best = ai.analyze(b, depth);
+            assertEquals(Move.move('c', '5', 'b', '6'), best);
+            assertTrue(ai.lastScore() > AI.WINNING_VALUE - 10);
+            assertTrue(ai.nodes() > 1);
+            assertEquals(depth, ai.lastDepth());
+        }
+        assertEquals("search did not restore board", 0, b.numMoves());
+        assertEquals(2, b.redPieces());
+    }
+
+    @Test public void testWinInQuiescence() {
+        Board b = new Board();
+        b.setPosition("7/7/2r4/r3rr1/7/5r1/3b2b r 0 0");
+        AI ai = new AI();
+        Move best = ai.analyze(b, 2);
+        assertEquals('c', best.col1());
+        assertEquals('2', best.row1());
+        assertEquals(AI.WINNING_VALUE - 3, ai.lastScore());
+        SearchParams params = new SearchParams();
+        params.set("quiescence", "off");
+        ai = new AI(params);
+        ai.analyze(b, 2);
+        assertTrue(ai.lastScore() < AI.WON);
+    }
+
+    @Test public void testStop() throws InterruptedException {
+        Board b = new Board();
+        AI ai = new AI();
+        Move[] result = new Move[1];
+        Thread searcher = new Thread(() -> result[0] = ai.analyze(b, 40));
+        searcher.start();
+        Thread.sleep(200);
+        ai.stop();
+        searcher.join(10000);
+        assertFalse("search did not stop", searcher.isAlive());
+        assertNotNull(result[0]);
+        assertTrue(b.legalMove(result[0]));
+        assertTrue(ai.lastDepth() < 40);
+        assertEquals("search did not restore board", 0, b.numMoves());
+    }
+
+    @Test public void testBatch() {
+        String input =
+            "# two positions\n"
+            + "===\n"
+            + "  r - - - - - b\n  - - - - - - -\n  - - - - - - -\n"
+            + "  - - - - - - -\n  - - - - - - -\n  - - - - - - -\n"
+            + "  b - - - - - r\n"
+            + "===\n"
+            + "\n"
+            + "red\n"
+            + "===\n"
+            + "  - b - - - - -\n  b - - - - - -\n  - - r - - - -\n"
+            + "  - - - - - - -\n  - - - - - - -\n  - - - - - - -\n"
+            + "  - - - - - - r\n"
+            + "===\n"
+            + "1b5/b6/2r4/7/7/7/6r r 0 7   # the same\n";
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(bytes, true);
+        new Analyzer(2, new SearchParams(), 2, out)
+            .analyze(new StringReader(input));
+        String[] lines = bytes.toString().split("\\R");
+        assertEquals(3, lines.length);
+        assertTrue(lines[0], lines[0].matches(
+            "2: [a-g][1-7]-[a-g][1-7] score 0 depth 2 nodes \\d+"));
+        assertTrue(lines[1], lines[1].matches(
+            "12: c5-b6 score \\d+ depth 2 nodes \\d+"));
+        assertTrue(lines[2], lines[2].matches(
+            "22: c5-b6 score \\d+ depth 2 nodes \\d+"));
+    }
+
+    @Test public void testBenchDeterministic() {
+        StringBuilder log = new StringBuilder();
+        SearchParams params = new SearchParams();
+        long nodes = Bench.run(2, params,
+                               line -> log.append(line).append('\n'));
+        assertTrue(nodes > Bench.POSITIONS.length);
+        assertEquals(nodes, Bench.run(2, params, line -> { }));
+        assertTrue(log.toString().contains("Nodes searched: " + nodes));
+    }
+
+    @Test public void testMultiPV() {
+        SearchParams params = new SearchParams();
+        params.set("lmr", "off");
+        AI single = new AI(params);
+        params = new SearchParams(params);
+        params.set("multipv", "3");
+        AI multi = new AI(params);
+        Board b = new Board();
+        b.setPosition("r5b/7/2X1X2/7/2X1X2/7/b5r r 0");
+        Move best = multi.analyze(b, 3);
+        List<AI.Variation> lines = multi.variations();
+        assertEquals(3, lines.size());
+        assertSame(best, lines.get(0).moves().get(0));
+        assertEquals(multi.lastScore(), lines.get(0).score());
+        assertEquals(single.analyze(b, 3), best);
+        assertEquals(single.lastScore(), multi.lastScore());
+        for (int i = 0; i < lines.size(); i += 1) {
+            AI.Variation line = lines.get(i);
+            if (i > 0) {
+                assertTrue(line.score() <= lines.get(i - 1).score());
+            }
+            assertTrue(line.moves().size() <= 3);
+            Board copy = new Board(b);
+            for (Move move : line.moves()) {
+                assertTrue(copy.legalMove(move));
+                copy.makeMove(move);
+            }
+            copy = new Board(b);
+            copy.makeMove(line.moves().get(0));
+            single.analyze(copy, 2);
+            assertEquals(line.toString(), single.lastScore(), line.score());
+        }
+        assertEquals("search did not restore board", 0, b.numMoves());
+
+        params.set("multipv", "1");
+        multi.analyze(b, 3);
+        assertEquals(1, multi.variations().size());
+    }
+
+    @Test public void testBatchMultiPV() {
+        SearchParams params = new SearchParams();
+        params.set("multipv", "2");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new Analyzer(2, params, 1, new PrintStream(bytes, true))
+            .analyze(new StringReader("r5b/7/7/7/7/7/b5r r 0\n"));
+        String[] lines = bytes.toString().split("\\R");
+        assertEquals(3, lines.length);
+        assertTrue(lines[1], lines[1].matches(
+            "1\\. score -?\\d+: [a-g][1-7]-[a-g][1-7] [a-g][1-7]-[a-g][1-7]"));
+        assertTrue(lines[2], lines[2].startsWith("2. score "));
+    }
+
+}
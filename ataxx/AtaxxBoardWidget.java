@@ -36,7 +36,7 @@ class AtaxxBoardWidget extends Pad implements Observer {
 
 
     /** Model being displayed. */
-    private static Board _model;
+    private final Board _model;
 
     /** A new widget displaying MODEL. */
     AtaxxBoardWidget(Board model) {
@@ -0,0 +1,67 @@
+package ataxx;
+
+import java.util.function.Consumer;
+
+/** A fixed benchmark for the AI's search: searches a built-in set of
+ *  positions to a fixed depth and reports the total number of positions
+ *  visited, which is the same on every run of the same program (a
+ *  signature of the search), and the speed.  A change in the total
+ *  means the search itself has changed; a change in speed alone means
+ *  only its cost has.
+ *  @author Peter Sorensen
+ */
+class Bench {
+
+    /** Default depth of each search. */
+    static final int DEPTH = 4;
+
+    /** Reference positions, in compact notation (see Board.position). */
+    static final String[] POSITIONS = {
+        "r5b/7/7/7/7/7/b5r r 0 0",
+        "r5b/7/2X1X2/7/2X1X2/7/b5r r 0 0",
+        "rr3bb/rr1X1bb/7/7/7/b2Xr2/b6 r 0 8",
+        "bb3b1/bb5/4r2/2XrX2/2rr3/2rr3/6r b 0 13",
+        "rr3rr/2r4/bX1rrX1/bb5/1X3X1/3b3/b1b3r r 1 18",
+        "1b1b2b/b6/2rb2b/1rr4/7/r4r1/r3r1r b 4 23",
+        "b1br2r/b1brrrr/2X1Xrb/2b1rrb/1bX1X2/7/6r r 1 28",
+        "rr2bbb/rXr2X1/1rr4/bbb2bb/rrr3b/rX3X1/r3r2 b 3 33",
+        "br1bbb1/brrXb1b/brr1rbb/2b1rbb/5b1/3X3/4rr1 r 1 38",
+        "rrr2r1/rr2rr1/bX2rX1/bb2b2/bXr2X1/rrr2b1/rbb1b1b b 2 43",
+    };
+
+    /** Search each of POSITIONS to DEPTH with the settings PARAMS,
+     *  sending one line per position and a summary to OUTPUT.  Return the
+     *  total number of positions visited. */
+    static long run(int depth, SearchParams params,
+                    Consumer<String> output) {
+        return run(depth, new AI(params.freshCopy()), output);
+    }
+
+    /** As for run(DEPTH, PARAMS, OUTPUT), searching with AI, whose
+     *  settings and table should be its own.  Once AI is stopped (see
+     *  AI.stop), the remaining searches return at once, and the results
+     *  are meaningless. */
+    static long run(int depth, AI ai, Consumer<String> output) {
+        Board board = new Board();
+        board.suspendNotifications();
+        long nodes, time;
+        nodes = time = 0;
+        for (int i = 0; i < POSITIONS.length; i += 1) {
+            board.setPosition(POSITIONS[i]);
+            long start = System.nanoTime();
+            Move best = ai.analyze(board, depth);
+            time += System.nanoTime() - start;
+            nodes += ai.nodes();
+            output.accept(String.format("Position %d: %c%c-%c%c score %d"
+                                        + " nodes %d", i + 1,
+                                        best.col0(), best.row0(),
+                                        best.col1(), best.row1(),
+                                        ai.lastScore(), ai.nodes()));
+        }
+        double secs = Math.max(time, 1) * 1e-9;
+        output.accept(String.format("Nodes searched: %d", nodes));
+        output.accept(String.format("Nodes/second: %.0f", nodes / secs));
+        return nodes;
+    }
+
+}
@@ -0,0 +1,233 @@
+package ataxx;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** The moves allowed by a particular placement of blocks on a Board,
+ *  worked out once so that move generation need never look at a blocked
+ *  square.  For each open (unblocked) square, given by its Board index,
+ *  a layout lists the open squares adjacent to it and those a jump away,
+ *  in the orders of Board.extendSpots and Board.jumpSpots.
+ *
+ *  A layout also divides the open squares into regions: two squares are
+ *  in the same region iff a piece could travel from one to the other by
+ *  a series of moves, if the squares on the way were empty.  No piece
+ *  ever enters or leaves a region.  Squares are numbered as for
+ *  Board.mask in the masks a layout returns.
+ *
+ *  Layouts are immutable, and are shared by all boards with the same
+ *  blocks (see of).
+ *  @author Peter Sorensen
+ */
+class BlockLayout {
+
+    /** Return the layout for the blocks in BLOCKS (a mask as for
+     *  Board.mask). */
+    static BlockLayout of(long blocks) {
+        BlockLayout layout = CACHE.get(blocks);
+        if (layout == null) {
+            if (CACHE.size() >= CACHE_SIZE) {
+                CACHE.clear();
+            }
+            layout = new BlockLayout(blocks);
+            CACHE.put(blocks, layout);
+        }
+        return layout;
+    }
+
+    /** The layout for the blocks in BLOCKS. */
+    private BlockLayout(long blocks) {
+        _blocks = blocks;
+        Arrays.fill(_neighbors, NONE);
+        Arrays.fill(_jumps, NONE);
+        int[] open = new int[SQUARES];
+        int n;
+        n = 0;
+        for (int k = 0; k < SQUARES; k += 1) {
+            if ((blocks & 1L << k) == 0) {
+                int sq = INDEX[k];
+                open[n] = sq;
+                n += 1;
+                _neighbors[sq] = targets(sq, Board.EXTEND_SPOTS);
+                _jumps[sq] = targets(sq, Board.JUMP_SPOTS);
+            }
+        }
+        _open = Arrays.copyOf(open, n);
+        Arrays.fill(_region, -1);
+        int[] queue = new int[SQUARES];
+        int regions = 0;
+        for (int start : _open) {
+            if (_region[start] >= 0) {
+                continue;
+            }
+            int head, tail;
+            head = 0;
+            tail = 1;
+            queue[0] = start;
+            _region[start] = regions;
+            while (head < tail) {
+                int sq = queue[head++];
+                tail = spread(_neighbors[sq], regions, queue, tail);
+                tail = spread(_jumps[sq], regions, queue, tail);
+            }
+            regions += 1;
+        }
+        _regions = regions;
+        long isolated, reachable;
+        isolated = reachable = 0;
+        for (int sq : _open) {
+            if (_neighbors[sq].length == 0 && _jumps[sq].length == 0) {
+                isolated |= 1L << SQUARE[sq];
+            }
+        }
+        for (int corner : CORNERS) {
+            if (_region[corner] >= 0) {
+                reachable |= regionMask(_region[corner]);
+            }
+        }
+        _isolated = isolated;
+        _unreachable = ALL & ~blocks & ~reachable;
+    }
+
+    /** Put the squares in TARGETS that are not yet in a region into
+     *  region R, adding them to QUEUE at TAIL, and return the new
+     *  TAIL. */
+    private int spread(int[] targets, int r, int[] queue, int tail) {
+        for (int t : targets) {
+            if (_region[t] < 0) {
+                _region[t] = r;
+                queue[tail] = t;
+                tail += 1;
+            }
+        }
+        return tail;
+    }
+
+    /** Return the Board indices of the open squares that are SPOTS away
+     *  from the open square with Board index SQ, in the order of SPOTS. */
+    private int[] targets(int sq, int[] spots) {
+        int[] result = new int[spots.length];
+        int n;
+        n = 0;
+        for (int d : spots) {
+            int k = SQUARE[sq + d];
+            if (k >= 0 && (_blocks & 1L << k) == 0) {
+                result[n] = sq + d;
+                n += 1;
+            }
+        }
+        return n == 0 ? NONE : Arrays.copyOf(result, n);
+    }
+
+    /** Return my blocks (a mask as for Board.mask). */
+    long blocks() {
+        return _blocks;
+    }
+
+    /** Return the Board indices of my open squares, from row 7 down to
+     *  row 1, and each row from column a to column g.  The caller must
+     *  not modify the result. */
+    int[] open() {
+        return _open;
+    }
+
+    /** Return the Board indices of the open squares adjacent to the
+     *  square with Board index SQ (none if it is blocked or off the
+     *  board).  The caller must not modify the result. */
+    int[] neighbors(int sq) {
+        return _neighbors[sq];
+    }
+
+    /** Return the Board indices of the open squares a jump away from
+     *  the square with Board index SQ (none if it is blocked or off the
+     *  board).  The caller must not modify the result. */
+    int[] jumps(int sq) {
+        return _jumps[sq];
+    }
+
+    /** Return my number of regions. */
+    int regions() {
+        return _regions;
+    }
+
+    /** Return the region (0 .. regions()-1) of the square with Board
+     *  index SQ, or -1 if it is blocked or off the board. */
+    int region(int sq) {
+        return _region[sq];
+    }
+
+    /** Return the mask of the squares in region R. */
+    long regionMask(int r) {
+        long mask = 0;
+        for (int sq : _open) {
+            if (_region[sq] == r) {
+                mask |= 1L << SQUARE[sq];
+            }
+        }
+        return mask;
+    }
+
+    /** Return the mask of the open squares from which no move can be
+     *  made and to which none can. */
+    long isolated() {
+        return _isolated;
+    }
+
+    /** Return the mask of the open squares that no piece can reach in a
+     *  game started from the initial position: those in regions
+     *  containing none of the four corners. */
+    long unreachable() {
+        return _unreachable;
+    }
+
+    /** Number of squares on the board. */
+    private static final int SQUARES = Board.SIDE * Board.SIDE;
+    /** All squares. */
+    private static final long ALL = (1L << SQUARES) - 1;
+    /** Number of Board indices. */
+    private static final int INDICES =
+        Board.EXTENDED_SIDE * Board.EXTENDED_SIDE;
+    /** Largest number of layouts cached by of. */
+    private static final int CACHE_SIZE = 1024;
+    /** An empty list of squares. */
+    private static final int[] NONE = {};
+
+    /** INDEX[K] is the Board index of the square numbered K. */
+    private static final int[] INDEX = new int[SQUARES];
+    /** SQUARE[SQ] is the number of the square with Board index SQ, or
+     *  -1 if it is off the board. */
+    private static final int[] SQUARE = new int[INDICES];
+    /** Board indices of the corners. */
+    private static final int[] CORNERS = {
+        Board.index('a', '7'), Board.index('g', '7'),
+        Board.index('a', '1'), Board.index('g', '1')
+    };
+    /** Layouts made so far, by blocks. */
+    private static final ConcurrentHashMap<Long, BlockLayout> CACHE =
+        new ConcurrentHashMap<>();
+
+    static {
+        Arrays.fill(SQUARE, -1);
+        for (int k = 0; k < SQUARES; k += 1) {
+            INDEX[k] = Board.index(GameRecord.col(k), GameRecord.row(k));
+            SQUARE[INDEX[k]] = k;
+        }
+    }
+
+    /** Blocks, as for Board.mask. */
+    private final long _blocks;
+    /** Board indices of the open squares. */
+    private final int[] _open;
+    /** Open neighbors of each open square, by Board index. */
+    private final int[][] _neighbors = new int[INDICES][];
+    /** Open squares a jump from each open square, by Board index. */
+    private final int[][] _jumps = new int[INDICES][];
+    /** Region of each square, by Board index. */
+    private final int[] _region = new int[INDICES];
+    /** Number of regions. */
+    private final int _regions;
+    /** Mask of the isolated squares. */
+    private final long _isolated;
+    /** Mask of the unreachable squares. */
+    private final long _unreachable;
+}
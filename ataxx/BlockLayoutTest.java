@@ -0,0 +1,80 @@
+package ataxx;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import static ataxx.PieceColor.*;
+
+/** Tests of BlockLayout.
+ *  @author Peter Sorensen
+ */
+public class BlockLayoutTest {
+
+    /** Return the layout of the position POSITION. */
+    private static BlockLayout layout(String position) {
+        Board board = new Board();
+        board.setPosition(position);
+        return board.layout();
+    }
+
+    @Test public void testTargets() {
+        BlockLayout layout = layout("r5b/7/7/7/7/7/b5r r 0");
+        assertEquals(0, layout.blocks());
+        assertEquals(49, layout.open().length);
+        assertEquals(Board.index('a', '7'), layout.open()[0]);
+        int a1 = Board.index('a', '1'), d4 = Board.index('d', '4');
+        assertEquals(3, layout.neighbors(a1).length);
+        assertEquals(5, layout.jumps(a1).length);
+        assertEquals(8, layout.neighbors(d4).length);
+        assertEquals(16, layout.jumps(d4).length);
+        assertEquals(Board.index('b', '2'), layout.neighbors(a1)[1]);
+
+        Board board = new Board();
+        board.setBlock('b', '2');
+        layout = board.layout();
+        assertEquals(45, layout.open().length);
+        assertEquals(2, layout.neighbors(a1).length);
+        assertEquals(0, layout.neighbors(Board.index('b', '2')).length);
+        assertEquals(1, layout.regions());
+        assertEquals(-1, layout.region(Board.index('f', '6')));
+        assertEquals(0, layout.isolated());
+        assertEquals(0, layout.unreachable());
+    }
+
+    @Test public void testRegions() {
+        BlockLayout layout =
+            layout("7/1XXXXX1/1XXXXX1/1XX1XX1/1XXXXX1/1XXXXX1/7 r 0");
+        assertEquals(2, layout.regions());
+        long d4 = 1L << GameRecord.square('d', '4');
+        assertEquals(d4, layout.isolated());
+        assertEquals(d4, layout.unreachable());
+        assertEquals(d4, layout.regionMask(layout.region(
+            Board.index('d', '4'))));
+        assertEquals(0, layout.jumps(Board.index('d', '4')).length);
+
+        layout = layout("r5b/7/XXXXXXX/XXXXXXX/7/7/b5r r 0");
+        assertEquals(2, layout.regions());
+        assertEquals(0, layout.unreachable());
+        assertTrue(layout.region(Board.index('a', '6'))
+                   != layout.region(Board.index('a', '3')));
+    }
+
+    @Test public void testBoard() {
+        Board board = new Board();
+        BlockLayout empty = board.layout();
+        board.setBlock('c', '4');
+        BlockLayout blocked = board.layout();
+        assertNotSame(empty, blocked);
+        assertEquals(board.mask(BLOCKED), blocked.blocks());
+        assertSame(blocked, new Board(board).layout());
+        board.clear();
+        assertSame(empty, board.layout());
+        board.setPosition("r5b/7/7/2X1X2/7/7/b5r r 0");
+        assertSame(blocked, board.layout());
+        Move[] moves = new Move[Board.MAX_MOVES];
+        for (int i = board.legalMoves(moves) - 1; i >= 0; i -= 1) {
+            assertEquals(EMPTY, board.get(moves[i].toIndex()));
+        }
+    }
+
+}
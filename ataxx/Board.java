@@ -6,6 +6,7 @@ package ataxx;
 import java.util.Arrays;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.SplittableRandom;
 import java.util.Stack;
 import java.util.Formatter;
 import java.util.Observable;
@@ -44,20 +45,41 @@ class Board extends Observable {
     /** Number of non-extending moves before game ends. */
     static final int JUMP_LIMIT = 25;
 
+    /** Largest move count accepted by setPosition. */
+    private static final int MAX_MOVE_COUNT = 1000000;
+
+    /** Seed of the random contributions to key(), so that keys are the
+     *  same from run to run. */
+    private static final long ZOBRIST_SEED = 0x41544158L;
+
+    /** Typical length of a position in compact notation. */
+    private static final int POSITION_LENGTH = 48;
+
+    /** An upper bound on the number of legal moves in any position, as
+     *  returned by legalMoves. */
+    static final int MAX_MOVES = SIDE * SIDE * 17;
+
     /** A new, cleared board at the start of the game. */
     Board() {
         _board = new PieceColor[EXTENDED_SIDE * EXTENDED_SIDE];
+        Arrays.fill(_board, EMPTY);
         clear();
     }
 
-    /** A copy of B. */
+    /** A copy of B, including its undo history. */
     Board(Board b) {
         _board = b._board.clone();
+        _hash = b._hash;
+        _layout = b._layout;
         _whoseMove = b.whoseMove();
         _numJumps = b._numJumps;
         _numBlue = b._numBlue;
         _numRed = b._numRed;
+        _numBlocked = b._numBlocked;
         _numMoves = b._numMoves;
+        _moves.addAll(b._moves);
+        _changedIndices.addAll(b._changedIndices);
+        _pastJumps.addAll(b._pastJumps);
     }
 
     /** Return the linearized index of square COL ROW. */
@@ -86,6 +108,10 @@ class Board extends Observable {
     void clear() {
         _whoseMove = RED;
         _numMoves = 0;
+        _numJumps = 0;
+        _numRed = _numBlue = 2;
+        _numBlocked = 0;
+        _pastJumps.clear();
         while (!_moves.empty()) {
             _moves.pop();
         }
@@ -107,8 +133,207 @@ class Board extends Observable {
                 set(i, EMPTY);
             }
         }
-        setChanged();
-        notifyObservers();
+        _layout = null;
+        announce();
+    }
+
+    /** Set me to the position described by CONTENTS, with NEXT to move
+     *  and no moves yet made.  CONTENTS lists the squares row by row from
+     *  row 7 down to row 1, each row from column a to column g, using 'r'
+     *  for red, 'b' for blue, 'X' for a block and '-' for an empty square,
+     *  as in toString(); any other characters are ignored. */
+    void setup(CharSequence contents, PieceColor next) {
+        clear();
+        _numRed = _numBlue = 0;
+        int k;
+        k = 0;
+        for (int i = 0; i < contents.length(); i += 1) {
+            PieceColor v;
+            switch (contents.charAt(i)) {
+            case 'r':
+                v = RED;
+                break;
+            case 'b':
+                v = BLUE;
+                break;
+            case 'X':
+                v = BLOCKED;
+                break;
+            case '-':
+                v = EMPTY;
+                break;
+            default:
+                continue;
+            }
+            if (k == SIDE * SIDE) {
+                throw error("too many squares in position");
+            }
+            char c = (char) ('a' + k % SIDE), r = (char) ('7' - k / SIDE);
+            set(c, r, v);
+            if (v != EMPTY) {
+                incrPieces(v, 1);
+            }
+            k += 1;
+        }
+        if (k != SIDE * SIDE) {
+            throw error("too few squares in position");
+        }
+        if (next != RED && next != BLUE) {
+            throw error("bad side to move");
+        }
+        _whoseMove = next;
+        _layout = null;
+        announce();
+    }
+
+    /** Set me to the position written in compact notation in TEXT (see
+     *  position()), with no moves to undo.  Throws a GameException if
+     *  TEXT is not in that notation. */
+    void setPosition(CharSequence text) {
+        int end = setPosition(text, 0);
+        if (end != text.length()) {
+            throw error("junk after position");
+        }
+    }
+
+    /** Set me to the position written in compact notation (see
+     *  position()) in TEXT starting at index START, and return the index
+     *  just after it.  The position ends at the first whitespace after the
+     *  jump count or move count.  No part of TEXT is copied.  Throws a
+     *  GameException if it is not a valid position, in which case my
+     *  contents are unspecified until I am cleared or set again. */
+    int setPosition(CharSequence text, int start) {
+        int k = start, len = text.length();
+        int numRed, numBlue, numBlocked;
+        numRed = numBlue = numBlocked = 0;
+        for (int row = SIDE - 1; row >= 0; row -= 1) {
+            int sq = (row + 2) * EXTENDED_SIDE + 2, rowEnd = sq + SIDE;
+            while (sq < rowEnd) {
+                char c = k < len ? text.charAt(k) : ' ';
+                k += 1;
+                switch (c) {
+                case 'r':
+                    _board[sq] = RED;
+                    numRed += 1;
+                    sq += 1;
+                    break;
+                case 'b':
+                    _board[sq] = BLUE;
+                    numBlue += 1;
+                    sq += 1;
+                    break;
+                case 'X':
+                    _board[sq] = BLOCKED;
+                    numBlocked += 1;
+                    sq += 1;
+                    break;
+                default:
+                    if (c < '1' || c > '0' + rowEnd - sq) {
+                        throw error("bad position at character %d", k - 1);
+                    }
+                    for (int n = c - '0'; n > 0; n -= 1, sq += 1) {
+                        _board[sq] = EMPTY;
+                    }
+                }
+            }
+            if (row > 0 && (k >= len || text.charAt(k++) != '/')) {
+                throw error("bad position at character %d", k - 1);
+            }
+        }
+        if (k + 2 >= len || text.charAt(k) != ' '
+            || text.charAt(k + 2) != ' ') {
+            throw error("bad position: missing side to move");
+        }
+        PieceColor next;
+        switch (text.charAt(k + 1)) {
+        case 'r':
+            next = RED;
+            break;
+        case 'b':
+            next = BLUE;
+            break;
+        default:
+            throw error("bad position: bad side to move");
+        }
+        k += 3;
+        int jumps = 0, moves = 0, digits = k;
+        while (k < len && Character.isDigit(text.charAt(k))) {
+            jumps = 10 * jumps + text.charAt(k) - '0';
+            k += 1;
+            if (jumps > JUMP_LIMIT) {
+                throw error("bad position: bad jump count");
+            }
+        }
+        if (k == digits) {
+            throw error("bad position: missing jump count");
+        }
+        if (k + 1 < len && text.charAt(k) == ' '
+            && Character.isDigit(text.charAt(k + 1))) {
+            k += 1;
+            while (k < len && Character.isDigit(text.charAt(k))) {
+                moves = 10 * moves + text.charAt(k) - '0';
+                k += 1;
+                if (moves > MAX_MOVE_COUNT) {
+                    throw error("bad position: bad move count");
+                }
+            }
+        }
+        _numRed = numRed;
+        _numBlue = numBlue;
+        _numBlocked = numBlocked;
+        _whoseMove = next;
+        _numJumps = jumps;
+        _hash = hashSquares();
+        _layout = null;
+        _numMoves = moves;
+        _moves.clear();
+        _changedIndices.clear();
+        _pastJumps.clear();
+        announce();
+        return k;
+    }
+
+    /** Return my position in compact notation.  This is a single line of
+     *  the form
+     *      ROWS SIDE JUMPS MOVES
+     *  where ROWS gives rows 7 down to 1, separated by '/', each from
+     *  column a to g, using 'r' for red, 'b' for blue, 'X' for a block,
+     *  and a digit 1-7 for that many empty squares; SIDE is 'r' or 'b',
+     *  the side to move; JUMPS is numJumps(), and MOVES is numMoves().
+     *  For example, the initial position is "r5b/7/7/7/7/7/b5r r 0 0".
+     *  The MOVES field may be omitted when parsing. */
+    String position() {
+        StringBuilder out = new StringBuilder(POSITION_LENGTH);
+        appendPosition(out);
+        return out.toString();
+    }
+
+    /** Append my position in compact notation (see position()) to OUT. */
+    void appendPosition(StringBuilder out) {
+        for (int row = SIDE - 1; row >= 0; row -= 1) {
+            int sq = (row + 2) * EXTENDED_SIDE + 2, rowEnd = sq + SIDE;
+            int empties = 0;
+            for (; sq < rowEnd; sq += 1) {
+                PieceColor v = _board[sq];
+                if (v == EMPTY) {
+                    empties += 1;
+                    continue;
+                }
+                if (empties > 0) {
+                    out.append((char) ('0' + empties));
+                    empties = 0;
+                }
+                out.append(v == RED ? 'r' : v == BLUE ? 'b' : 'X');
+            }
+            if (empties > 0) {
+                out.append((char) ('0' + empties));
+            }
+            if (row > 0) {
+                out.append('/');
+            }
+        }
+        out.append(' ').append(_whoseMove == RED ? 'r' : 'b')
+            .append(' ').append(_numJumps).append(' ').append(_numMoves);
     }
 
     /** Return true iff the game is over: i.e., if neither side has
@@ -151,6 +376,50 @@ class Board extends Observable {
         }
     }
 
+    /** Return a key for my position (the contents of the squares, the
+     *  side to move and the number of consecutive jumps, on which
+     *  gameOver() depends) for TranspositionTable: equal positions have
+     *  equal keys, and unequal ones almost certainly do not. */
+    long key() {
+        long key = _hash ^ JUMPS_KEY[Math.min(_numJumps, JUMP_LIMIT)];
+        return _whoseMove == BLUE ? key ^ BLUE_KEY : key;
+    }
+
+    /** Return the part of key() that depends on the squares, computed
+     *  from scratch. */
+    private long hashSquares() {
+        long hash = 0;
+        for (int sq = 0; sq < _board.length; sq += 1) {
+            hash ^= ZOBRIST[_board[sq].ordinal()][sq];
+        }
+        return hash;
+    }
+
+    /** Return a mask of the squares containing COLOR, in which bit K
+     *  stands for the square numbered K from a7 across and down to g1
+     *  (see GameRecord.square). */
+    long mask(PieceColor color) {
+        long result = 0;
+        for (int r = SIDE - 1, k = 0; r >= 0; r -= 1) {
+            for (int sq = (r + 2) * EXTENDED_SIDE + 2, end = sq + SIDE;
+                 sq < end; sq += 1, k += 1) {
+                if (_board[sq] == color) {
+                    result |= 1L << k;
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Return the moves allowed by my blocks, working them out if they
+     *  have changed since last asked. */
+    BlockLayout layout() {
+        if (_layout == null) {
+            _layout = BlockLayout.of(mask(BLOCKED));
+        }
+        return _layout;
+    }
+
     /** Increment numPieces(COLOR) by K. */
     private void incrPieces(PieceColor color, int k) {
         if (color == RED) {
@@ -183,16 +452,21 @@ class Board extends Observable {
     /** Set square with linearized index SQ to V. This operation is
      *  undoable. */
     private void set(int sq, PieceColor v) {
+        if (_accumulator != null) {
+            _accumulator.update(sq, _board[sq], v);
+        }
+        _hash ^= ZOBRIST[_board[sq].ordinal()][sq] ^ ZOBRIST[v.ordinal()][sq];
         _board[sq] = v;
     }
 
     /** Set square at C R to V (not undoable). */
     private void unrecordedSet(char c, char r, PieceColor v) {
-        _board[index(c, r)] = v;
+        unrecordedSet(index(c, r), v);
     }
 
     /** Set square at linearized index SQ to V (not undoable). */
     private void unrecordedSet(int sq, PieceColor v) {
+        _hash ^= ZOBRIST[_board[sq].ordinal()][sq] ^ ZOBRIST[v.ordinal()][sq];
         _board[sq] = v;
     }
 
@@ -207,21 +481,16 @@ class Board extends Observable {
     /** Return true iff player WHO can move, ignoring whether it is
      *  that player's move and whether the game is over. */
     boolean canMove(PieceColor who) {
-        ArrayList<Integer> pieces = new ArrayList<Integer>();
-        for (char i = '7'; i >= '1'; i--) {
-            for (char j = 'a'; j <= 'g'; j++) {
-                if (get(j, i) == who) {
-                    pieces.add(index(j, i));
-                }
-            }
-            for (int k : pieces) {
-                for (int j : extendSpots()) {
-                    if (get(k + j) == EMPTY) {
+        BlockLayout layout = layout();
+        for (int sq : layout.open()) {
+            if (_board[sq] == who) {
+                for (int to : layout.neighbors(sq)) {
+                    if (_board[to] == EMPTY) {
                         return true;
                     }
                 }
-                for (int m : jumpSpots()) {
-                    if (get(k + m) == EMPTY) {
+                for (int to : layout.jumps(sq)) {
+                    if (_board[to] == EMPTY) {
                         return true;
                     }
                 }
@@ -230,6 +499,89 @@ class Board extends Observable {
         return false;
     }
 
+    /** Store the legal moves for whoseMove(), other than pass, into MOVES
+     *  and return how many there are.  Since all extends to the same
+     *  square have the same effect, only one extend to each square is
+     *  generated.  Extends are listed before jumps.  MOVES must have
+     *  room for MAX_MOVES entries. */
+    int legalMoves(Move[] moves) {
+        PieceColor who = whoseMove();
+        BlockLayout layout = layout();
+        int[] open = layout.open();
+        int n;
+        n = 0;
+        for (int to : open) {
+            if (_board[to] == EMPTY) {
+                for (int from : layout.neighbors(to)) {
+                    if (_board[from] == who) {
+                        moves[n] = Move.move(from, to);
+                        n += 1;
+                        break;
+                    }
+                }
+            }
+        }
+        for (int to : open) {
+            if (_board[to] == EMPTY) {
+                for (int from : layout.jumps(to)) {
+                    if (_board[from] == who) {
+                        moves[n] = Move.move(from, to);
+                        n += 1;
+                    }
+                }
+            }
+        }
+        return n;
+    }
+
+    /** Store into MOVES the legal moves for whoseMove() that capture at
+     *  least MINCAPTURES opposing pieces, and return how many there are.
+     *  For each target square, this is a single extend if there is one,
+     *  and otherwise all jumps to it.  MOVES must have room for MAX_MOVES
+     *  entries. */
+    int captureMoves(Move[] moves, int minCaptures) {
+        PieceColor who = whoseMove(), opponent = who.opposite();
+        BlockLayout layout = layout();
+        int n;
+        n = 0;
+        for (int to : layout.open()) {
+            if (_board[to] != EMPTY
+                || neighbors(to, opponent) < minCaptures) {
+                continue;
+            }
+            int k = n;
+            for (int from : layout.neighbors(to)) {
+                if (_board[from] == who) {
+                    moves[n] = Move.move(from, to);
+                    n += 1;
+                    break;
+                }
+            }
+            if (k == n) {
+                for (int from : layout.jumps(to)) {
+                    if (_board[from] == who) {
+                        moves[n] = Move.move(from, to);
+                        n += 1;
+                    }
+                }
+            }
+        }
+        return n;
+    }
+
+    /** Return the number of squares adjacent to the square with
+     *  linearized index SQ that contain COLOR, which is not BLOCKED. */
+    int neighbors(int sq, PieceColor color) {
+        int n;
+        n = 0;
+        for (int t : layout().neighbors(sq)) {
+            if (_board[t] == color) {
+                n += 1;
+            }
+        }
+        return n;
+    }
+
     /** Return the color of the player who has the next move.  The
      *  value is arbitrary if gameOver(). */
     PieceColor whoseMove() {
@@ -264,8 +616,9 @@ class Board extends Observable {
         assert legalMove(move);
         if (move.isPass()) {
             pass();
+            _numMoves++;
             _moves.push(null);
-            _changedIndices.push(new ArrayList<Integer>());
+            _changedIndices.push(NO_INDICES);
             return;
         }
         int to = move.toIndex();
@@ -273,10 +626,10 @@ class Board extends Observable {
         ArrayList<Integer> indices = new ArrayList<>();
         if (move.isExtend() || move.isJump()) {
             set(to, whoseMove());
-            for (int n : extendSpots()) {
-                if (get(to + n) == whoseMove().opposite()) {
-                    indices.add(to + n);
-                    set(to + n, whoseMove());
+            for (int n : layout().neighbors(to)) {
+                if (get(n) == whoseMove().opposite()) {
+                    indices.add(n);
+                    set(n, whoseMove());
                     increment++;
                 }
             }
@@ -297,8 +650,7 @@ class Board extends Observable {
         }
         PieceColor opponent = _whoseMove.opposite();
         _whoseMove = opponent;
-        setChanged();
-        notifyObservers();
+        announce();
     }
 
     /** Update to indicate that the current player passes, assuming it
@@ -306,8 +658,7 @@ class Board extends Observable {
     void pass() {
         assert !canMove(_whoseMove);
         _whoseMove = whoseMove().opposite();
-        setChanged();
-        notifyObservers();
+        announce();
     }
 
     /** Undo the last move. */
@@ -317,6 +668,8 @@ class Board extends Observable {
         Move last = (Move) conv;
         _whoseMove = whoseMove().opposite();
         if (last == null) {
+            _changedIndices.pop();
+            announce();
             return;
         }
         set(last.toIndex(), EMPTY);
@@ -329,7 +682,7 @@ class Board extends Observable {
         }
 
         ArrayList<Integer> revert = _changedIndices.pop();
-        for (int each : _extendSpots) {
+        for (int each : EXTEND_SPOTS) {
             if (revert.contains(last.toIndex() + each)) {
                 set(last.toIndex() + each, whoseMove().opposite());
                 incrPieces(whoseMove(), -1);
@@ -338,8 +691,78 @@ class Board extends Observable {
                 continue;
             }
         }
-        setChanged();
-        notifyObservers();
+        announce();
+    }
+
+    /** Send the changes to my squares made by subsequent moves and undos
+     *  to ACC, which must describe my current position, until this is
+     *  called again.  ACC may be null. */
+    void setAccumulator(Accumulator acc) {
+        _accumulator = acc;
+    }
+
+    /** Record my current position in SNAP, overwriting its previous
+     *  contents.  Does not allocate once my block layout is known. */
+    void save(Snapshot snap) {
+        System.arraycopy(_board, 0, snap.squares(), 0, _board.length);
+        snap.setCounts(_whoseMove, _numJumps, _numRed, _numBlue,
+                       _numBlocked, _numMoves);
+        snap.setDerived(_hash, layout());
+    }
+
+    /** Return me to the position recorded in SNAP by save.  The undo
+     *  history is discarded, so moves made before the snapshot was taken
+     *  cannot be undone afterwards; moves made after restoring can. */
+    void restore(Snapshot snap) {
+        System.arraycopy(snap.squares(), 0, _board, 0, _board.length);
+        _hash = snap.hash();
+        _layout = snap.layout();
+        _whoseMove = snap.whoseMove();
+        _numJumps = snap.numJumps();
+        _numRed = snap.numRed();
+        _numBlue = snap.numBlue();
+        _numBlocked = snap.numBlocked();
+        _numMoves = snap.numMoves();
+        _moves.clear();
+        _changedIndices.clear();
+        _pastJumps.clear();
+        announce();
+    }
+
+    /** Stop notifying observers of changes until a matching call to
+     *  resumeNotifications.  Used while searching, when moves are made
+     *  and undone speculatively.  Calls may be nested. */
+    void suspendNotifications() {
+        _suspended += 1;
+    }
+
+    /** Undo the effect of one call to suspendNotifications.  If that
+     *  re-enables notification and I was changed in the meantime, notify
+     *  observers once for all of those changes. */
+    void resumeNotifications() {
+        assert _suspended > 0;
+        _suspended -= 1;
+        if (_suspended == 0 && _changedWhileSuspended) {
+            _changedWhileSuspended = false;
+            setChanged();
+            notifyObservers();
+        }
+    }
+
+    /** Return true iff observer notification is currently suspended. */
+    boolean notificationsSuspended() {
+        return _suspended > 0;
+    }
+
+    /** Notify observers that I have changed, unless notifications are
+     *  suspended, in which case just remember that I have changed. */
+    private void announce() {
+        if (_suspended > 0) {
+            _changedWhileSuspended = true;
+        } else {
+            setChanged();
+            notifyObservers();
+        }
     }
 
     /** Return true iff it is legal to place a block at C R. */
@@ -373,13 +796,21 @@ class Board extends Observable {
         index1 += -c + 'a' - 1;
         char index2 = '7' + 1;
         index2 += -r + '1' - 1;
-        set(c, r, BLOCKED);
-        set(index1, r, BLOCKED);
-        set(c, index2, BLOCKED);
-        set(index1, index2, BLOCKED);
-        incrPieces(BLOCKED, 1);
-        setChanged();
-        notifyObservers();
+        setBlocked(index(c, r));
+        setBlocked(index(index1, r));
+        setBlocked(index(c, index2));
+        setBlocked(index(index1, index2));
+        announce();
+    }
+
+    /** Block the empty or blocked square SQ, counting it as a block if it
+     *  was empty. */
+    private void setBlocked(int sq) {
+        if (get(sq) == EMPTY) {
+            set(sq, BLOCKED);
+            incrPieces(BLOCKED, 1);
+            _layout = null;
+        }
     }
 
     /** Place a block at CR. */
@@ -387,7 +818,8 @@ class Board extends Observable {
         setBlock(cr.charAt(0), cr.charAt(1));
     }
 
-    /** Return numblocks. */
+    /** Return the number of blocked squares on the board (not counting
+     *  the border). */
     int numBlocks() {
         return _numBlocked;
     }
@@ -400,17 +832,17 @@ class Board extends Observable {
 
     /** Return array of extend spots. */
     int[] extendSpots() {
-        return _extendSpots;
+        return EXTEND_SPOTS;
     }
 
     /** Return array of jump spots. */
     int[] jumpSpots() {
-        return _jumpSpots;
+        return JUMP_SPOTS;
     }
 
     /** Return array of both extend and jump spots. */
     int[] bothSpots() {
-        return _bothSpots;
+        return BOTH_SPOTS;
     }
 
     @Override
@@ -473,29 +905,68 @@ class Board extends Observable {
     /** Player that is on move. */
     private PieceColor _whoseMove;
 
+    /** The part of key() that depends on the squares, kept up to date
+     *  as they change. */
+    private long _hash;
+
+    /** ZOBRIST[C.ordinal()][SQ] is the random contribution to key() of
+     *  color C on square SQ (0 for EMPTY). */
+    private static final long[][] ZOBRIST =
+        new long[PieceColor.values().length][EXTENDED_SIDE * EXTENDED_SIDE];
+    /** The contribution to key() of blue's being to move. */
+    private static final long BLUE_KEY;
+    /** JUMPS_KEY[N] is the contribution to key() of N consecutive jumps
+     *  (JUMP_LIMIT standing for any larger number too). */
+    private static final long[] JUMPS_KEY = new long[JUMP_LIMIT + 1];
+
+    static {
+        SplittableRandom random = new SplittableRandom(ZOBRIST_SEED);
+        for (PieceColor c : PieceColor.values()) {
+            if (c != EMPTY) {
+                for (int sq = 0; sq < ZOBRIST[c.ordinal()].length; sq += 1) {
+                    ZOBRIST[c.ordinal()][sq] = random.nextLong();
+                }
+            }
+        }
+        BLUE_KEY = random.nextLong();
+        for (int n = 0; n < JUMPS_KEY.length; n += 1) {
+            JUMPS_KEY[n] = random.nextLong();
+        }
+    }
+
+    /** Receives the changes made by moves and undos, or null. */
+    private Accumulator _accumulator;
+
     /** Stack of past moves made. */
     private Stack<Move> _moves = new Stack<>();
 
     /** Stack of indices that need reversing in undo. */
     private Stack<ArrayList<Integer>> _changedIndices = new Stack<>();
 
+    /** The (empty) list of indices changed by a pass. */
+    private static final ArrayList<Integer> NO_INDICES = new ArrayList<>();
+
     /** Stack of numJumps before extend move. */
     private Stack<Integer> _pastJumps = new Stack<>();
 
     /** List of linearized index distances extends away from index 0. */
-    private final int[] _extendSpots = new int[]{10, 11, 12, -1
+    static final int[] EXTEND_SPOTS = new int[]{10, 11, 12, -1
             , 1, -12, -11, -10};
 
     /** List of linearized index distances jumps away from index 0. */
-    private final int[] _jumpSpots = new int[]{20, 21, 22, 23
+    static final int[] JUMP_SPOTS = new int[]{20, 21, 22, 23
             , 24, 9, 13, -2, 2, -13, -9, -24, -23, -22, -21, -20};
 
     /** Combination of jump spots and extend spots. */
-    private final int[] _bothSpots = new int[]{10, 11, 12, -1
+    private static final int[] BOTH_SPOTS = new int[]{10, 11, 12, -1
             , 1, -12, -11, -10
             , 20, 21, 22, 23, 24
             , 9, 13, -2, 2, -13, -9, -24, -23, -22, -21, -20};
 
+    /** The moves allowed by my blocks, or null if not yet worked out
+     *  since they last changed. */
+    private BlockLayout _layout;
+
     /** Number of moves. */
     private int _numMoves = 0;
 
@@ -510,4 +981,10 @@ class Board extends Observable {
 
     /** Number of blocks. */
     private int _numBlocked = 0;
+
+    /** Number of unmatched calls to suspendNotifications. */
+    private int _suspended;
+
+    /** True iff I have changed since notifications were suspended. */
+    private boolean _changedWhileSuspended;
 }
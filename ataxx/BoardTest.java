@@ -1,5 +1,7 @@
 package ataxx;
 
+import java.util.Arrays;
+
 import org.junit.Test;
 import static org.junit.Assert.*;
 
@@ -78,4 +80,196 @@ public class BoardTest {
         assertEquals(b0.legalBlock('b', '7'), false);
     }
 
+    @Test public void testCopyKeepsHistory() {
+        Board b0 = new Board();
+        b0.setBlock('c', '3');
+        makeMoves(b0, GAME1);
+        Board b1 = new Board(b0);
+        assertEquals(b0.numBlocks(), b1.numBlocks());
+        assertEquals(b0.allMoves(), b1.allMoves());
+        for (int i = 0; i < GAME1.length; i += 1) {
+            b1.undo();
+        }
+        assertEquals(2, b1.redPieces());
+        assertEquals(2, b1.bluePieces());
+        assertEquals(6, b0.bluePieces());
+    }
+
+    @Test public void testSnapshot() {
+        SnapshotPool pool = new SnapshotPool(2);
+        Board b0 = new Board();
+        makeMoves(b0, GAME1);
+        Board b1 = new Board(b0);
+        Snapshot snap = pool.take(b0);
+        assertEquals(1, pool.available());
+        makeMoves(b0, new String[] { "b7-c7", "a4-b4" });
+        b0.restore(snap);
+        assertEquals(b1, b0);
+        assertEquals(b1.key(), b0.key());
+        assertEquals(b1.whoseMove(), b0.whoseMove());
+        assertEquals(b1.redPieces(), b0.redPieces());
+        assertEquals(b1.bluePieces(), b0.bluePieces());
+        assertEquals(b1.numMoves(), b0.numMoves());
+        makeMoves(b0, new String[] { "b7-c7" });
+        b0.undo();
+        assertEquals(b1, b0);
+        pool.release(snap);
+        assertEquals(2, pool.available());
+
+        Board blocked = new Board();
+        blocked.setPosition("r5b/7/2X1X2/7/2X1X2/7/b5r r 0 0");
+        snap = pool.take(blocked);
+        b0.restore(snap);
+        assertEquals(blocked.key(), b0.key());
+        assertEquals(blocked.layout(), b0.layout());
+        Move[] expected = new Move[Board.MAX_MOVES],
+            moves = new Move[Board.MAX_MOVES];
+        int n = blocked.legalMoves(expected);
+        assertEquals(n, b0.legalMoves(moves));
+        assertArrayEquals(Arrays.copyOf(expected, n),
+                          Arrays.copyOf(moves, n));
+    }
+
+    @Test public void testSuspendedNotifications() {
+        Board b0 = new Board();
+        int[] count = new int[1];
+        b0.addObserver((obs, arg) -> count[0] += 1);
+        b0.makeMove('a', '7', 'b', '7');
+        assertEquals(1, count[0]);
+        b0.suspendNotifications();
+        b0.suspendNotifications();
+        makeMoves(b0, new String[] { "a1-a2", "b7-b6" });
+        b0.undo();
+        b0.resumeNotifications();
+        assertEquals(1, count[0]);
+        b0.resumeNotifications();
+        assertEquals(2, count[0]);
+        b0.suspendNotifications();
+        b0.resumeNotifications();
+        assertEquals(2, count[0]);
+    }
+
+    @Test public void testLegalMoves() {
+        Board b0 = new Board();
+        Move[] moves = new Move[Board.MAX_MOVES];
+        assertEquals(16, b0.legalMoves(moves));
+        for (int i = 0; i < 16; i += 1) {
+            assertTrue(b0.legalMove(moves[i]));
+        }
+        b0.setBlock('b', '2');
+        assertEquals(14, b0.legalMoves(moves));
+    }
+
+    @Test public void testCaptureMoves() {
+        Board b0 = new Board();
+        Move[] moves = new Move[Board.MAX_MOVES];
+        assertEquals(0, b0.captureMoves(moves, 1));
+        b0.setup("- - - - - - -"
+                 + "- - b b b - -"
+                 + "- - - - - - -"
+                 + "- - - r - - -"
+                 + "- - - - - - -"
+                 + "- - - - - - -"
+                 + "r - - - - - -", PieceColor.RED);
+        assertEquals(1, b0.captureMoves(moves, 3));
+        assertEquals(Move.move('d', '4', 'd', '5'), moves[0]);
+        assertEquals(3, b0.captureMoves(moves, 2));
+        assertEquals(7, b0.captureMoves(moves, 1));
+    }
+
+    @Test public void testSetupAndPass() {
+        Board b0 = new Board();
+        b0.setup("r b b - - - -"
+                 + "b b b - - - -"
+                 + "b b b - - - -"
+                 + "- - - - - - -"
+                 + "- - - - - - -"
+                 + "- - - - - - X"
+                 + "- - - - - X -", PieceColor.RED);
+        assertEquals(1, b0.redPieces());
+        assertEquals(8, b0.bluePieces());
+        assertEquals(2, b0.numBlocks());
+        assertEquals(PieceColor.BLOCKED, b0.get('g', '2'));
+        assertEquals(0, b0.legalMoves(new Move[Board.MAX_MOVES]));
+        assertFalse(b0.gameOver());
+        Board b1 = new Board(b0);
+        b0.makeMove(Move.pass());
+        b0.makeMove('c', '5', 'd', '4');
+        assertEquals(2, b0.numMoves());
+        b0.undo();
+        b0.undo();
+        assertEquals(0, b0.numMoves());
+        assertEquals(b1, b0);
+        assertEquals(PieceColor.RED, b0.whoseMove());
+    }
+
+    @Test public void testPosition() {
+        Board b0 = new Board();
+        assertEquals("r5b/7/7/7/7/7/b5r r 0 0", b0.position());
+        b0.setBlock('c', '3');
+        makeMoves(b0, GAME2);
+        String pos = b0.position();
+        assertEquals("6b/r6/2X1X2/7/bbX1X2/bb5/b5r r 0 6", pos);
+        Board b1 = new Board();
+        b1.setPosition(pos);
+        assertEquals(b0, b1);
+        assertEquals(pos, b1.position());
+        assertEquals(b0.redPieces(), b1.redPieces());
+        assertEquals(b0.bluePieces(), b1.bluePieces());
+        assertEquals(b0.numBlocks(), b1.numBlocks());
+        assertEquals(b0.numJumps(), b1.numJumps());
+        assertEquals(b0.whoseMove(), b1.whoseMove());
+        String text = "moves: " + pos + " after";
+        assertEquals(text.length() - 6, b1.setPosition(text, 7));
+        b1.setPosition("7/7/7/3X3/7/7/7 b 12");
+        assertEquals(0, b1.numMoves());
+        assertEquals(12, b1.numJumps());
+        assertEquals(PieceColor.BLUE, b1.whoseMove());
+        for (String bad : new String[] {
+                "r5b/7/7/7/7/7/b5r", "r5b/7/7/7/7/7/b4r r 0",
+                "r5b/7/7/7/7/7/b6r r 0", "r5b/7/7/7/7/7b5r r 0",
+                "r5b/7/7/7/7/7/b5r g 0", "r5b/7/7/7/7/7/b5r r x",
+                "r5b/7/7/7/7/7/b5r r 26", "r5b/8/7/7/7/7/b5r r 0" }) {
+            try {
+                b1.setPosition(bad);
+                fail("accepted " + bad);
+            } catch (GameException excp) {
+                /* Expected */
+            }
+        }
+    }
+
+    @Test public void testPositionRoundTrip() {
+        Board b0 = new Board();
+        Board b1 = new Board();
+        Move[] moves = new Move[Board.MAX_MOVES];
+        StringBuilder text = new StringBuilder();
+        java.util.Random random = new java.util.Random(42);
+        for (int k = 0; k < 2000 && !b0.gameOver(); k += 1) {
+            int n = b0.legalMoves(moves);
+            b0.makeMove(n == 0 ? Move.pass() : moves[random.nextInt(n)]);
+            text.setLength(0);
+            b0.appendPosition(text);
+            b1.setPosition(text);
+            assertEquals(b0, b1);
+            assertEquals(b0.redPieces(), b1.redPieces());
+            assertEquals(b0.bluePieces(), b1.bluePieces());
+            assertEquals(b0.numJumps(), b1.numJumps());
+            assertEquals(b0.numMoves(), b1.numMoves());
+        }
+    }
+
+    @Test public void testPerft() {
+        Board b0 = new Board();
+        long[] expected = { 1, 16, 256, 6460, 155888 };
+        for (int depth = 0; depth < expected.length; depth += 1) {
+            assertEquals(expected[depth], new Perft(b0).count(depth));
+        }
+        assertEquals("r5b/7/7/7/7/7/b5r r 0 0", b0.position());
+        assertEquals(6460, Perft.total(Perft.divide(b0, 3, 2)));
+        b0.setPosition("r5b/7/2X1X2/7/2X1X2/7/b5r r 0");
+        assertEquals(14, new Perft(b0).count(1));
+        assertEquals(196, new Perft(b0).count(2));
+    }
+
 }
@@ -26,6 +26,10 @@ class Command {
         PIECEMOVE("([a-g])([1-7])-([a-g])([1-7])"),
         /* Valid at any time. */
         LOAD("(?i)load\\s+([^\\s]*\\.[^\\s]*)"),
+        PERFT("(?i)perft\\s+([0-9]{1,2})"),
+        BENCH("(?i)bench(?:\\s+([0-9]{1,2}))?"),
+        SET("(?i)set\\s+([a-z][-a-z]*)\\s+(\\S+)"),
+        STOP("(?i)stop|move\\s+now"),
         QUIT, CLEAR, DUMP, HELP,
         /* Special "commands" internally generated. */
         /** Syntax error in command. */
@@ -57,6 +61,13 @@ class Command {
     Command(Type type, String... operands) {
         _type = type;
         _operands = operands;
+        _move = null;
+    }
+
+    /** A new PIECEMOVE command for MOVE. */
+    Command(Move move) {
+        _type = Type.PIECEMOVE;
+        _move = move;
     }
 
     /** Return the type of this Command. */
@@ -64,34 +75,128 @@ class Command {
         return _type;
     }
 
-    /** Returns this Command's operands. */
+    /** Returns this Command's operands.  Those of a PIECEMOVE are its
+     *  column and row letters, in order. */
     String[] operands() {
+        if (_operands == null) {
+            _operands = new String[] {
+                String.valueOf(_move.col0()), String.valueOf(_move.row0()),
+                String.valueOf(_move.col1()), String.valueOf(_move.row1())
+            };
+        }
         return _operands;
     }
 
-    /** Parse COMMAND, returning the command and its operands.
-     *  COMMAND is assumed to be trimmed of all leading and
-     *  trailing whitespace.  */
+    /** Return the move denoted by this command, if it is a PIECEMOVE,
+     *  and otherwise null. */
+    Move move() {
+        return _move;
+    }
+
+    /** Parse COMMAND, returning the command and its operands.  Leading
+     *  and trailing whitespace in COMMAND are ignored.
+     *
+     *  A single pass finds the bounds of the command.  Moves and passes,
+     *  which make up most input, are recognized directly, without
+     *  creating any strings.  Otherwise, the initial keyword selects the
+     *  one Type whose pattern may match, and that pattern checks the
+     *  rest and extracts the operands.  Anything else is an ERROR. */
     static Command parseCommand(String command) {
         if (command == null) {
             return new Command(Type.EOF);
         }
-        command = command.trim();
-        for (Type type : Type.values()) {
-            Matcher mat = type._pattern.matcher(command);
+        int start, end;
+        start = 0;
+        end = command.length();
+        while (start < end && isSpace(command.charAt(start))) {
+            start += 1;
+        }
+        while (end > start && isSpace(command.charAt(end - 1))) {
+            end -= 1;
+        }
+        if (end - start == MOVE_LENGTH && command.charAt(start + 2) == '-') {
+            char c0 = command.charAt(start), r0 = command.charAt(start + 1),
+                c1 = command.charAt(start + 3), r1 = command.charAt(start + 4);
+            if (isCol(c0) && isRow(r0) && isCol(c1) && isRow(r1)) {
+                return new Command(Move.move(c0, r0, c1, r1));
+            }
+        } else if (end - start == 1 && command.charAt(start) == '-') {
+            return PASS_COMMAND;
+        }
+        int wordEnd;
+        for (wordEnd = start; wordEnd < end; wordEnd += 1) {
+            if (isSpace(command.charAt(wordEnd))) {
+                break;
+            }
+        }
+        Type type = keywordType(command, start, wordEnd - start);
+        if (type != null) {
+            Matcher mat = type._pattern.matcher(command).region(start, end);
             if (mat.matches()) {
-                String[] operands = new String [mat.groupCount()];
+                String[] operands = new String[mat.groupCount()];
                 for (int i = 1; i <= operands.length; i += 1) {
                     operands[i - 1] = mat.group(i);
                 }
                 return new Command(type, operands);
             }
         }
-        throw new Error("Internal failure: error command did not match.");
+        return new Command(Type.ERROR, NO_OPERANDS);
     }
 
+    /** Return the Type of command whose keyword is the LEN characters of
+     *  COMMAND starting at START, ignoring case, or null if there is
+     *  none. */
+    private static Type keywordType(String command, int start, int len) {
+        for (int i = 0; i < KEYWORDS.length; i += 1) {
+            String keyword = KEYWORDS[i];
+            if (keyword.length() == len
+                && command.regionMatches(true, start, keyword, 0, len)) {
+                return KEYWORD_TYPES[i];
+            }
+        }
+        return null;
+    }
+
+    /** Return true iff C is whitespace. */
+    private static boolean isSpace(char c) {
+        return Character.isWhitespace(c);
+    }
+
+    /** Return true iff C is a column letter. */
+    private static boolean isCol(char c) {
+        return c >= 'a' && c <= 'g';
+    }
+
+    /** Return true iff C is a row number. */
+    private static boolean isRow(char c) {
+        return c >= '1' && c <= '7';
+    }
+
+    /** Length of a PIECEMOVE command. */
+    private static final int MOVE_LENGTH = 5;
+    /** Keywords beginning commands other than moves and passes. */
+    private static final String[] KEYWORDS = {
+        "auto", "block", "manual", "seed", "start", "pass", "load",
+        "perft", "bench", "set", "stop", "move", "quit", "clear", "dump",
+        "help",
+    };
+    /** KEYWORD_TYPES[i] is the type of command beginning with
+     *  KEYWORDS[i]. */
+    private static final Type[] KEYWORD_TYPES = {
+        Type.AUTO, Type.BLOCK, Type.MANUAL, Type.SEED, Type.START,
+        Type.PASS, Type.LOAD, Type.PERFT, Type.BENCH, Type.SET, Type.STOP,
+        Type.STOP, Type.QUIT, Type.CLEAR, Type.DUMP, Type.HELP,
+    };
+    /** Operands of commands that have none. */
+    private static final String[] NO_OPERANDS = {};
+    /** The (immutable) result of parsing a pass. */
+    private static final Command PASS_COMMAND =
+        new Command(Type.PASS, NO_OPERANDS);
+
     /** The command name. */
     private final Type _type;
-    /** Command arguments. */
-    private final String[] _operands;
+    /** Command arguments, or null if not yet computed from _move. */
+    private String[] _operands;
+    /** The move denoted by a PIECEMOVE, or null. */
+    private final Move _move;
 }
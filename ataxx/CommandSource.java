@@ -11,4 +11,11 @@ interface CommandSource {
      *  PROMPT suggests a prompt string that might be used, if
      *  appropriate to the input method. */
     String getLine(String prompt);
+
+    /** Release whatever resources I hold, as when I am abandoned before
+     *  my input is exhausted.  Afterwards, getLine returns null.  May be
+     *  called while another thread is in getLine.  By default, does
+     *  nothing. */
+    default void close() {
+    }
 }
@@ -3,6 +3,9 @@ package ataxx;
 import java.util.Stack;
 
 /** Provides command input from a stack of CommandSource objects.
+ *  Sources are closed as they are dropped from the stack.  The stack
+ *  may be changed (by addSource or close) while another thread is
+ *  reading from it.
  *  @author P. N. Hilfinger
  */
 class CommandSources implements CommandSource {
@@ -13,9 +16,16 @@ class CommandSources implements CommandSource {
      *  PROMPT suggests a prompt string that might be used, if
      *  appropriate to the input method. */
     public String getLine(String prompt) {
-        while (!_inputs.isEmpty()) {
+        while (true) {
+            CommandSource source;
+            synchronized (this) {
+                if (_inputs.isEmpty()) {
+                    return null;
+                }
+                source = _inputs.peek();
+            }
             String line;
-            line = _inputs.peek().getLine(prompt);
+            line = source.getLine(prompt);
             if (line != null) {
                 if (line.indexOf('#') != -1) {
                     line = line.substring(0, line.indexOf('#'));
@@ -25,18 +35,28 @@ class CommandSources implements CommandSource {
                     return line;
                 }
             } else {
-                _inputs.pop();
+                synchronized (this) {
+                    _inputs.remove(source);
+                }
+                source.close();
             }
         }
-        return null;
     }
 
     /** Make SOURCE the latest input source from which subsequent input
      *  will be read. */
-    void addSource(CommandSource source) {
+    synchronized void addSource(CommandSource source) {
         _inputs.add(source);
     }
 
+    /** Close and drop all my sources. */
+    @Override
+    public synchronized void close() {
+        while (!_inputs.isEmpty()) {
+            _inputs.pop().close();
+        }
+    }
+
     /** Stack of input sources, most recent on top. */
     private Stack<CommandSource> _inputs = new Stack<>();
 
@@ -56,6 +56,7 @@ public class CommandTest {
     @Test public void testPASS() {
         check("pass", PASS);
         check("-", PASS);
+        check(" PASS ", PASS);
         checkError("pass foo");
     }
 
@@ -71,6 +72,9 @@ public class CommandTest {
 
     @Test public void testMOVE() {
         check("a3-b3", PIECEMOVE, "a", "3", "b", "3");
+        assertSame(Move.move('a', '3', 'b', '3'),
+                   Command.parseCommand("  a3-b3\t").move());
+        assertNull(Command.parseCommand("dump").move());
         checkError("a3b3");
         checkError("a3-b3 foo");
         checkError("3a-3b");
@@ -79,4 +83,30 @@ public class CommandTest {
         checkError("a7-a8");
     }
 
+    @Test public void testPERFT() {
+        check("perft 5", PERFT, "5");
+        check("PERFT  12", PERFT, "12");
+        checkError("perft");
+        checkError("perft 123");
+        checkError("perft x");
+    }
+
+    @Test public void testBENCH() {
+        check("bench", BENCH, (String) null);
+        check("bench 6", BENCH, "6");
+        checkError("bench x");
+    }
+
+    @Test public void testSET() {
+        check("set pvs off", SET, "pvs", "off");
+        check("set lmr-depth 3", SET, "lmr-depth", "3");
+        checkError("set pvs");
+    }
+
+    @Test public void testSTOP() {
+        check("stop", STOP);
+        check("Move  now", STOP);
+        checkError("stop now");
+    }
+
 }
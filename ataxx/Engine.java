@@ -0,0 +1,55 @@
+package ataxx;
+
+/** The Ataxx engine for use as a library: a source of independent game
+ *  sessions (see Session), each holding one position that can be moved
+ *  in, searched and queried.
+ *
+ *  Nothing here is global, and nothing writes output.  An Engine is
+ *  immutable once constructed and may be shared by any number of
+ *  threads.  Each Session is safe for use by several threads at once
+ *  (its operations are serialized), and different sessions may be used
+ *  in parallel without any coordination.  A session holds little more
+ *  than its Board; the memory a search needs belongs to the searching
+ *  thread, and is kept by the engine for reuse by all sessions searched
+ *  on that thread.  So a single JVM can host as many sessions as its
+ *  heap allows.
+ *  @author Peter Sorensen
+ */
+class Engine {
+
+    /** An engine whose searches use the default settings. */
+    Engine() {
+        this(new SearchParams());
+    }
+
+    /** An engine whose searches use the settings PARAMS (which are
+     *  copied). */
+    Engine(SearchParams params) {
+        _params = new SearchParams(params);
+        _searchers = ThreadLocal.withInitial(() -> new AI(_params));
+    }
+
+    /** Return a new session starting from the initial position. */
+    Session newSession() {
+        return new Session(this, new Board());
+    }
+
+    /** Return a new session starting from POSITION, in compact notation
+     *  (see Board.position()).  Throws a GameException if POSITION is
+     *  malformed. */
+    Session newSession(String position) {
+        Board board = new Board();
+        board.setPosition(position);
+        return new Session(this, board);
+    }
+
+    /** Return the searcher to be used by the current thread. */
+    AI searcher() {
+        return _searchers.get();
+    }
+
+    /** Search settings.  Never modified. */
+    private final SearchParams _params;
+    /** One searcher per thread that has searched a session. */
+    private final ThreadLocal<AI> _searchers;
+}
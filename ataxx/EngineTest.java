@@ -0,0 +1,107 @@
+package ataxx;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import static ataxx.PieceColor.*;
+
+/** Tests of the Engine library interface.
+ *  @author Peter Sorensen
+ */
+public class EngineTest {
+
+    /** Number of sessions in testManySessions. */
+    private static final int SESSIONS = 500;
+
+    @Test public void testMoves() {
+        Session s = new Engine().newSession();
+        assertEquals(RED, s.whoseMove());
+        s.makeMove("a7-b6");
+        assertEquals(BLUE, s.whoseMove());
+        assertEquals(3, s.numPieces(RED));
+        String position = s.position();
+        for (String bad : new String[] { "a1-a1", "g7-d7", "-", "dump" }) {
+            try {
+                s.makeMove(bad);
+                fail("accepted " + bad);
+            } catch (GameException excp) {
+                assertEquals(position, s.position());
+            }
+        }
+        s.makeMove("g7-e7");
+        assertEquals(2, s.numMoves());
+        assertFalse(s.gameOver());
+    }
+
+    @Test public void testForcedPass() {
+        Session s =
+            new Engine().newSession("7/7/7/7/rrrrrrr/rrrrrrr/brrrrrr b 0 10");
+        assertEquals("-", s.bestMove(2, 0));
+        s.makeMove("-");
+        assertEquals(RED, s.whoseMove());
+        assertEquals(11, s.numMoves());
+        assertEquals("7/7/7/7/rrrrrrr/rrrrrrr/brrrrrr r 0 11", s.position());
+        try {
+            s.makeMove("-");
+            fail("accepted a pass by a side that can move");
+        } catch (GameException excp) {
+            assertEquals(11, s.numMoves());
+        }
+    }
+
+    @Test public void testBestMove() {
+        Session s = new Engine().newSession("1b5/b6/2r4/7/7/7/6r r 0 7");
+        assertEquals("c5-b6", s.bestMove(3, 0));
+        assertEquals(3, s.lastDepth());
+        assertTrue(s.lastScore() > AI.WON);
+        s.makeMove("c5-b6");
+        assertTrue(s.gameOver());
+        assertNull(s.bestMove(3, 0));
+    }
+
+    @Test public void testBudget() {
+        Session s = new Engine().newSession();
+        long start = System.nanoTime();
+        String move = s.bestMove(40, 100);
+        assertTrue("search overran its budget",
+                   System.nanoTime() - start < 5_000_000_000L);
+        assertTrue(s.lastDepth() < 40);
+        s.makeMove(move);
+        assertEquals(1, s.numMoves());
+    }
+
+    @Test public void testManySessions() throws Exception {
+        Engine engine = new Engine();
+        ExecutorService workers = Executors.newFixedThreadPool(4);
+        try {
+            List<Session> sessions = new ArrayList<>();
+            List<Future<?>> games = new ArrayList<>();
+            for (int i = 0; i < SESSIONS; i += 1) {
+                Session s = engine.newSession();
+                sessions.add(s);
+                games.add(workers.submit(() -> {
+                    for (int k = 0; k < 4; k += 1) {
+                        s.makeMove(s.bestMove(2, 0));
+                    }
+                }));
+            }
+            for (Future<?> game : games) {
+                game.get();
+            }
+            String expected = sessions.get(0).position();
+            for (Session s : sessions) {
+                assertEquals(4, s.numMoves());
+                assertEquals(expected, s.position());
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+}
@@ -0,0 +1,211 @@
+package ataxx;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static ataxx.PieceColor.*;
+import static ataxx.GameException.error;
+
+/** A static evaluation of positions: a weighted sum of features, each
+ *  the difference between red's and blue's value of some count, so
+ *  that positive values favor red.  Values are in units of one piece.
+ *  The weights are read from and written to text files containing one
+ *  line "NAME WEIGHT" per feature, in which blank lines and text after
+ *  '#' are ignored and unmentioned features have weight 0.
+ *  Evaluations are immutable.
+ *  @author Peter Sorensen
+ */
+class Evaluation {
+
+    /** Feature: number of pieces. */
+    static final int MATERIAL = 0;
+    /** Feature: number of pieces on the edges, but not in corners. */
+    static final int EDGE = 1;
+    /** Feature: number of pieces in corners. */
+    static final int CORNER = 2;
+    /** Feature: number of pieces next to an empty square. */
+    static final int FRONTIER = 3;
+    /** Feature: 1 if red is to move, -1 if blue is. */
+    static final int TEMPO = 4;
+    /** Number of features. */
+    static final int FEATURES = 5;
+
+    /** Names of the features in weight files, indexed by feature. */
+    static final String[] NAMES = {
+        "material", "edge", "corner", "frontier", "tempo"
+    };
+
+    /** Multiplier combining the parts of a fingerprint (see
+     *  fingerprint()). */
+    static final long FINGERPRINT_MULTIPLIER = 0x9e3779b97f4a7c15L;
+
+    /** The evaluation that counts pieces only. */
+    static final Evaluation MATERIAL_ONLY =
+        new Evaluation(new double[] { 1, 0, 0, 0, 0 });
+
+    /** An evaluation with WEIGHTS[K] the weight of feature K. */
+    Evaluation(double[] weights) {
+        if (weights.length != FEATURES) {
+            throw new IllegalArgumentException("wrong number of weights");
+        }
+        _weights = weights.clone();
+        _scaled = new int[FEATURES];
+        boolean materialOnly = true;
+        for (int k = 0; k < FEATURES; k += 1) {
+            _scaled[k] = (int) Math.round(weights[k] * SCALE);
+            materialOnly &= k == MATERIAL ? _scaled[k] == SCALE
+                : _scaled[k] == 0;
+        }
+        _materialOnly = materialOnly;
+    }
+
+    /** Return the evaluation whose weights are in FILE.  Throws a
+     *  GameException if FILE is malformed. */
+    static Evaluation read(Path file) throws IOException {
+        double[] weights = new double[FEATURES];
+        try (BufferedReader input = Files.newBufferedReader(file)) {
+            int lineNum = 0;
+            for (String line = input.readLine(); line != null;
+                 line = input.readLine()) {
+                lineNum += 1;
+                int comment = line.indexOf('#');
+                if (comment >= 0) {
+                    line = line.substring(0, comment);
+                }
+                String[] words = line.trim().split("\\s+");
+                if (words[0].isEmpty()) {
+                    continue;
+                }
+                int k = Arrays.asList(NAMES).indexOf(words[0].toLowerCase());
+                if (k < 0 || words.length != 2) {
+                    throw error("line %d: expected FEATURE WEIGHT",
+                                lineNum);
+                }
+                try {
+                    weights[k] = Double.parseDouble(words[1]);
+                } catch (NumberFormatException excp) {
+                    throw error("line %d: bad weight: %s", lineNum,
+                                words[1]);
+                }
+                if (!Double.isFinite(weights[k])) {
+                    throw error("line %d: bad weight: %s", lineNum,
+                                words[1]);
+                }
+            }
+        }
+        return new Evaluation(weights);
+    }
+
+    /** Write my weights to FILE, preceded by the comment COMMENT, if it
+     *  is not null. */
+    void write(Path file, String comment) throws IOException {
+        try (PrintWriter output =
+             new PrintWriter(Files.newBufferedWriter(file))) {
+            if (comment != null) {
+                output.printf("# %s%n", comment);
+            }
+            for (int k = 0; k < FEATURES; k += 1) {
+                output.printf("%s %.6f%n", NAMES[k], _weights[k]);
+            }
+            if (output.checkError()) {
+                throw new IOException("could not write " + file);
+            }
+        }
+    }
+
+    /** Return a hash of my weights (as rounded for score), which
+     *  differs (nearly always) between evaluations that score
+     *  differently. */
+    long fingerprint() {
+        long h = 0;
+        for (int w : _scaled) {
+            h = h * FINGERPRINT_MULTIPLIER + w;
+        }
+        return h;
+    }
+
+    /** Return the weight of feature K. */
+    double weight(int k) {
+        return _weights[k];
+    }
+
+    /** Return the value of BOARD, rounded to a whole number of pieces. */
+    int score(Board board) {
+        if (_materialOnly) {
+            return board.redPieces() - board.bluePieces();
+        }
+        long red = board.mask(RED), blue = board.mask(BLUE),
+            blocks = board.mask(BLOCKED);
+        boolean redToMove = board.whoseMove() == RED;
+        long sum = 0;
+        for (int k = 0; k < FEATURES; k += 1) {
+            if (_scaled[k] != 0) {
+                sum += _scaled[k] * feature(k, red, blue, blocks, redToMove);
+            }
+        }
+        return (int) ((sum + SCALE / 2) >> SCALE_BITS);
+    }
+
+    /** Return the value of feature K of a position with red pieces at
+     *  RED, blue pieces at BLUE and blocks at BLOCKS (masks as for
+     *  Board.mask), in which red is to move iff REDTOMOVE. */
+    static int feature(int k, long red, long blue, long blocks,
+                       boolean redToMove) {
+        switch (k) {
+        case MATERIAL:
+            return Long.bitCount(red) - Long.bitCount(blue);
+        case EDGE:
+            return Long.bitCount(red & EDGES) - Long.bitCount(blue & EDGES);
+        case CORNER:
+            return Long.bitCount(red & CORNERS)
+                - Long.bitCount(blue & CORNERS);
+        case FRONTIER:
+            long exposed = grow(ALL & ~(red | blue | blocks));
+            return Long.bitCount(red & exposed)
+                - Long.bitCount(blue & exposed);
+        case TEMPO:
+            return redToMove ? 1 : -1;
+        default:
+            throw new IllegalArgumentException("no such feature");
+        }
+    }
+
+    /** Return MASK together with all squares adjacent to its squares. */
+    private static long grow(long mask) {
+        long row = (mask | mask << 1 & ~FILE_A | mask >>> 1 & ~FILE_G) & ALL;
+        return (row | row << SIDE | row >>> SIDE) & ALL;
+    }
+
+    /** Number of squares on a side. */
+    private static final int SIDE = Board.SIDE;
+    /** All squares. */
+    private static final long ALL = (1L << (SIDE * SIDE)) - 1;
+    /** Squares in column a. */
+    private static final long FILE_A = ALL / ((1L << SIDE) - 1);
+    /** Squares in column g. */
+    private static final long FILE_G = FILE_A << (SIDE - 1);
+    /** The corners. */
+    private static final long CORNERS =
+        1L | 1L << (SIDE - 1) | 1L << (SIDE * (SIDE - 1))
+        | 1L << (SIDE * SIDE - 1);
+    /** The edges, excluding corners. */
+    private static final long EDGES =
+        (FILE_A | FILE_G | (1L << SIDE) - 1
+         | ((1L << SIDE) - 1) << (SIDE * (SIDE - 1))) & ~CORNERS;
+
+    /** Log2 of the factor by which weights are scaled to integers. */
+    private static final int SCALE_BITS = 10;
+    /** Factor by which weights are scaled to integers. */
+    private static final int SCALE = 1 << SCALE_BITS;
+
+    /** The weights. */
+    private final double[] _weights;
+    /** The weights, times SCALE, rounded. */
+    private final int[] _scaled;
+    /** True iff I just count pieces. */
+    private final boolean _materialOnly;
+}
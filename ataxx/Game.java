@@ -5,10 +5,23 @@ package ataxx;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigInteger;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.Random;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 
 import static ataxx.PieceColor.*;
@@ -34,17 +47,42 @@ class Game {
         _reporter = reporter;
     }
 
-    /** Run a session of Ataxx gaming.  Use an AtaxxGUI iff USEGUI. */
+    /** Run a session of Ataxx gaming.  Use an AtaxxGUI iff USEGUI.
+     *  Returns when a 'quit' command or the end of input is processed. */
     void process(boolean useGUI) {
+        try {
+            play();
+        } finally {
+            _reporter.flush();
+            if (_reader != null) {
+                _reader.shutdownNow();
+                _thinker.shutdownNow();
+                _reader = _thinker = null;
+            }
+            _inputs.close();
+            while (!_loaded.isEmpty()) {
+                _loaded.remove().close();
+            }
+        }
+    }
+
+    /** Play games until a 'quit' command or the end of input is
+     *  processed. */
+    private void play() {
         Player red, blue;
         GameLoop:
-        while (true) {
+        while (!_quit) {
             doClear(null);
             SetupLoop:
-            while (_state == SETUP) {
+            while (_state == SETUP && !_quit) {
                 doCommand();
             }
+            if (_quit) {
+                break GameLoop;
+            }
             setState(PLAYING);
+            /* The blocks are now fixed for the rest of the game. */
+            _board.layout();
             if (_blueManual) {
                 blue = new Manual(this, BLUE);
             } else {
@@ -56,8 +94,9 @@ class Game {
                 red = new AI(this, RED);
             }
 
-            while (_state != SETUP && !_board.gameOver()) {
+            while (_state != SETUP && !_quit && !_board.gameOver()) {
                 Move move;
+                long start = System.nanoTime();
                 if (board().whoseMove() == RED) {
                     move = red.myMove();
                 } else {
@@ -66,9 +105,10 @@ class Game {
                 if (move == null) {
                     continue;
                 }
+                int millis = (int) ((System.nanoTime() - start) / 1_000_000);
                 if (move.isPass() && !board().canMove(board().whoseMove())) {
-                    System.out.println(board().whoseMove() + " passes.");
-                    board().pass();
+                    reportMove("%s passes.", board().whoseMove());
+                    makeMove(move, millis);
                     continue;
                 }
                 if (!board().legalMove(move)) {
@@ -76,19 +116,25 @@ class Game {
                     continue;
                 }
                 if (_state == PLAYING) {
-                    _board.makeMove(move);
+                    makeMove(move, millis);
                 }
             }
+            if (_quit) {
+                break GameLoop;
+            }
 
-            if (_state != SETUP) {
+            if (_state != SETUP && _board.gameOver()) {
                 reportWinner();
+                if (_log != null) {
+                    _log.record(GameRecord.of(_board, _thinkTimes));
+                }
             }
 
             if (_state == PLAYING) {
                 _state = FINISHED;
             }
 
-            while (_state == FINISHED) {
+            while (_state == FINISHED && !_quit) {
                 doCommand();
             }
         }
@@ -104,28 +150,48 @@ class Game {
     /** Perform the next command from our input source. */
     void doCommand() {
         try {
-            Command cmnd =
-                Command.parseCommand(_inputs.getLine("ataxx: "));
-            _commands.get(cmnd.commandType()).accept(cmnd.operands());
+            execute(Command.parseCommand(nextLine("ataxx: ")));
         } catch (GameException excp) {
             _reporter.errMsg(excp.getMessage());
         }
     }
 
+    /** Make MOVE, which took MILLIS milliseconds to choose, on my
+     *  board. */
+    private void makeMove(Move move, int millis) {
+        _board.makeMove(move);
+        _thinkTimes.add(millis);
+    }
+
+    /** Record each game finished from now on in LOG, if it is not
+     *  null. */
+    void setLog(GameLog log) {
+        _log = log;
+    }
+
+    /** Execute CMND. */
+    private void execute(Command cmnd) {
+        if (cmnd.commandType() == PIECEMOVE) {
+            doMove(cmnd.move());
+        } else {
+            _commands.get(cmnd.commandType()).accept(cmnd.operands());
+        }
+    }
+
     /** Read and execute commands until encountering a move or until
      *  the game leaves playing state due to one of the commands. Return
      *  the terminating move command, or null if the game first drops out
      *  of playing mode. If appropriate to the current input source, use
      *  PROMPT to prompt for input. */
     Command getMoveCmnd(String prompt) {
-        while (_state == PLAYING) {
+        while (_state == PLAYING && !_quit) {
             try {
-                Command cmnd = Command.parseCommand(_inputs.getLine(prompt));
+                Command cmnd = Command.parseCommand(nextLine(prompt));
                 if (cmnd.commandType() == PIECEMOVE || cmnd.commandType()
                         == PASS) {
                     return cmnd;
                 } else {
-                    _commands.get(cmnd.commandType()).accept(cmnd.operands());
+                    execute(cmnd);
                 }
             } catch (GameException excp) {
                 _reporter.errMsg(excp.getMessage());
@@ -134,7 +200,144 @@ class Game {
         return null;
     }
 
-    /** Return random integer between 0 (inclusive) and MAX>0 (exclusive). */
+    /** Return the result of calling SEARCH on a separate thread,
+     *  meanwhile continuing to read commands.  'stop' (or 'move now')
+     *  calls STOP, which should make SEARCH return promptly with the
+     *  best result (for an AI, move) it has found so far.  'quit' and
+     *  'clear' also call STOP and are then carried out, abandoning the
+     *  search: the result is then null.  All other commands are held
+     *  and executed in order after the search, so that scripted input
+     *  behaves as if the search had been done in line.  If SEARCH throws
+     *  an exception, reports it and ends the game where it stands,
+     *  returning null. */
+    <T> T think(Callable<T> search, Runnable stop) {
+        startThreads();
+        Future<T> result = _thinker.submit(() -> {
+            try {
+                return search.call();
+            } finally {
+                _events.add(SEARCH_DONE);
+            }
+        });
+        boolean abandon, clear, ended;
+        abandon = clear = ended = false;
+        while (true) {
+            String line = nextEvent("", !ended && !abandon);
+            if (line == SEARCH_DONE) {
+                break;
+            }
+            ended = line == END_OF_INPUT;
+            Command.Type type =
+                ended ? EOF : Command.parseCommand(line).commandType();
+            if (type == STOP || type == QUIT || type == CLEAR) {
+                stop.run();
+                abandon |= type != STOP;
+                clear |= type == CLEAR;
+                _quit |= type == QUIT;
+            } else {
+                _deferred.add(line);
+            }
+        }
+        if (clear) {
+            doClear(null);
+        }
+        try {
+            T value = result.get();
+            return abandon ? null : value;
+        } catch (InterruptedException excp) {
+            _quit = true;
+            return null;
+        } catch (ExecutionException excp) {
+            reportError("Search failed: %s", excp.getCause());
+            setState(FINISHED);
+            return null;
+        }
+    }
+
+    /** Return the next line of input, or null at the end of input.  Lines
+     *  held while an AI was thinking come first.  If appropriate to the
+     *  current input source, use PROMPT to prompt for input. */
+    private String nextLine(String prompt) {
+        String line;
+        if (_deferred.isEmpty()) {
+            startThreads();
+            line = nextEvent(prompt, true);
+        } else {
+            line = _deferred.remove();
+        }
+        return line == END_OF_INPUT ? null : line;
+    }
+
+    /** Return the next item from _events: an input line, END_OF_INPUT,
+     *  or SEARCH_DONE.  If READ and no line is being read, first start
+     *  reading one, using PROMPT as for nextLine.  Flushes reported
+     *  output before waiting, so that it is held back only while the
+     *  game is busy.  A line that was being read when a script was
+     *  loaded (see doLoad) is put back after the script instead of
+     *  being returned. */
+    private String nextEvent(String prompt, boolean read) {
+        while (true) {
+            if (read && !_reading) {
+                _reading = true;
+                _reader.execute(() -> {
+                    String line = null;
+                    try {
+                        line = _inputs.getLine(prompt);
+                    } finally {
+                        _events.add(line == null ? END_OF_INPUT : line);
+                    }
+                });
+            }
+            if (_events.isEmpty()) {
+                _reporter.flush();
+            }
+            String event;
+            try {
+                event = _events.take();
+            } catch (InterruptedException excp) {
+                return END_OF_INPUT;
+            }
+            if (event == SEARCH_DONE) {
+                return event;
+            }
+            _reading = false;
+            if (_loaded.isEmpty()) {
+                return event;
+            }
+            if (event != END_OF_INPUT) {
+                _inputs.addSource(lineSource(Arrays.asList(event)));
+            }
+            while (!_loaded.isEmpty()) {
+                _inputs.addSource(_loaded.remove());
+            }
+            read = true;
+        }
+    }
+
+    /** Create the threads that read input and run searches, unless
+     *  they exist already. */
+    private void startThreads() {
+        if (_reader == null) {
+            _reader = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "ataxx-input");
+                t.setDaemon(true);
+                return t;
+            });
+            _thinker = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "ataxx-search");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    /** Return the search settings used by this game's AIs. */
+    SearchParams searchParams() {
+        return _params;
+    }
+
+    /** Return random integer between 0 (inclusive) and MAX>0 (exclusive),
+     *  from the sequence shared by all players and started by setSeed. */
     int nextRandom(int max) {
         return _randoms.nextInt(max);
     }
@@ -167,7 +370,7 @@ class Game {
         InputStream helpIn =
             Game.class.getClassLoader().getResourceAsStream("ataxx/help.txt");
         if (helpIn == null) {
-            System.err.println("No help available.");
+            reportError("No help available.");
         } else {
             try {
                 BufferedReader r
@@ -177,7 +380,7 @@ class Game {
                     if (line == null) {
                         break;
                     }
-                    System.out.println(line);
+                    reportMove("%s", line);
                 }
                 r.close();
             } catch (IOException e) {
@@ -186,15 +389,41 @@ class Game {
         }
     }
 
-    /** Perform the command 'load OPERANDS[0]'. */
+    /** Perform the command 'load OPERANDS[0]'.  Lines still held from
+     *  a search are put back to be read after the file.  _inputs belongs
+     *  to the _reader thread while it is reading a line, so if it is,
+     *  the file is added only once that line arrives (see nextEvent). */
     void doLoad(String[] operands) {
+        CommandSource script;
         try {
-            FileReader reader = new FileReader(operands[0]);
-            ReaderSource read = new ReaderSource(reader, true);
-            _inputs.addSource(read);
-        } catch (IOException e) {
+            script = new MappedSource(Paths.get(operands[0]), _reporter);
+        } catch (IOException | InvalidPathException e) {
             throw error("Cannot open file %s", operands[0]);
         }
+        ArrayList<String> held = new ArrayList<>();
+        for (String line : _deferred) {
+            if (line != END_OF_INPUT) {
+                held.add(line);
+            }
+        }
+        _deferred.clear();
+        ArrayDeque<CommandSource> sources =
+            _reading ? _loaded : new ArrayDeque<>();
+        if (!held.isEmpty()) {
+            sources.add(lineSource(held));
+        }
+        sources.add(script);
+        if (!_reading) {
+            for (CommandSource source : sources) {
+                _inputs.addSource(source);
+            }
+        }
+    }
+
+    /** Return a source that supplies LINES in order. */
+    private static CommandSource lineSource(List<String> lines) {
+        return new ReaderSource(new StringReader(String.join("\n", lines)),
+                                null);
     }
 
     /** Perform the command 'manual OPERANDS[0]'. */
@@ -206,9 +435,15 @@ class Game {
         }
     }
 
-    /** Exit the program. */
+    /** Stop processing commands, causing process to return. */
     void doQuit(String[] unused) {
-        System.exit(0);
+        _quit = true;
+    }
+
+    /** Perform 'stop' when no AI is thinking (see think): there is
+     *  nothing to stop, and the command may simply have arrived just
+     *  after a move, so it is ignored. */
+    void doStop(String[] unused) {
     }
 
     /** Perform the command 'start'. */
@@ -217,26 +452,24 @@ class Game {
         setState(PLAYING);
     }
 
-    /** Perform the move OPERANDS[0]. */
-    void doMove(String[] operands) {
+    /** Perform the move WHAT. */
+    void doMove(Move what) {
         if (_board.gameOver()) {
             setState(FINISHED);
             return;
         }
-        Move what = Move.move(operands[0].charAt(0), operands[1].charAt(0),
-                operands[2].charAt(0), operands[3].charAt(0));
         if (what == null || !_board.legalMove(what)) {
             reportError("Illegal move.");
             return;
         }
-        _board.makeMove(what);
+        makeMove(what, 0);
     }
 
     /** Cause current player to pass. */
     void doPass(String[] unused) {
         if (!_board.canMove(_board.whoseMove())) {
-            System.out.println(_board.whoseMove() + " passes.");
-            _board.pass();
+            reportMove("%s passes.", _board.whoseMove());
+            makeMove(Move.pass(), 0);
         } else {
             reportError("Player can move, so may not pass.", _board);
         }
@@ -245,19 +478,99 @@ class Game {
     /** Perform the command 'clear'. */
     void doClear(String[] unused) {
         _board = new Board();
+        if (_params.table() != null && !_params.table().persistent()) {
+            _params.table().clear();
+        }
+        _thinkTimes.clear();
         setState(SETUP);
     }
 
     /** Perform the command 'dump'. */
     void doDump(String[] unused) {
-        System.out.println(_board.toString());
+        reportMove("%s", _board);
     }
 
     /** Execute 'seed OPERANDS[0]' command, where the operand is a string
      *  of decimal digits. Silently substitutes another value if
      *  too large. */
     void doSeed(String[] operands) {
-        return;
+        setSeed(new BigInteger(operands[0]).longValue());
+    }
+
+    /** Restart the random numbers used by all players (see nextRandom)
+     *  from SEED, so that games after this are repeatable. */
+    void setSeed(long seed) {
+        _randoms.setSeed(seed);
+    }
+
+    /** Execute 'perft OPERANDS[0]': report the number of move sequences
+     *  of that length (at most MAX_PERFT_DEPTH) from the current
+     *  position, divided by first move.  Counts while reading commands,
+     *  as for think, so that 'stop' or 'quit' ends it. */
+    void doPerft(String[] operands) {
+        int depth = Integer.parseInt(operands[0]);
+        if (depth > MAX_PERFT_DEPTH) {
+            reportError("perft depth may be at most %d.", MAX_PERFT_DEPTH);
+            return;
+        }
+        AtomicBoolean stop = new AtomicBoolean();
+        List<String> lines = new ArrayList<>();
+        Boolean done =
+            think(() -> Perft.report(_board, depth,
+                                     Runtime.getRuntime()
+                                     .availableProcessors(),
+                                     lines::add, stop),
+                  () -> stop.set(true));
+        reportLines(done, lines, "perft");
+    }
+
+    /** Execute 'bench' or 'bench OPERANDS[0]': search the reference
+     *  positions in Bench to the given depth (default Bench.DEPTH, at
+     *  most MAX_BENCH_DEPTH) and report the node count and speed.
+     *  Searches while reading commands, as for think, so that 'stop' or
+     *  'quit' ends it. */
+    void doBench(String[] operands) {
+        int depth = Bench.DEPTH;
+        if (operands[0] != null) {
+            depth = Integer.parseInt(operands[0]);
+        }
+        if (depth > MAX_BENCH_DEPTH) {
+            reportError("bench depth may be at most %d.", MAX_BENCH_DEPTH);
+            return;
+        }
+        int benchDepth = depth;
+        AI ai = new AI(_params.freshCopy());
+        AtomicBoolean stop = new AtomicBoolean();
+        List<String> lines = new ArrayList<>();
+        Long nodes = think(() -> Bench.run(benchDepth, ai, lines::add),
+                           () -> {
+                               stop.set(true);
+                               ai.stop();
+                           });
+        reportLines(nodes == null ? null : Boolean.valueOf(!stop.get()),
+                    lines, "bench");
+    }
+
+    /** Report LINES, the output of the command NAME run by think, if
+     *  DONE is true, and otherwise that it was stopped, unless it was
+     *  abandoned (DONE null). */
+    private void reportLines(Boolean done, List<String> lines,
+                             String name) {
+        if (done == null) {
+            return;
+        } else if (done) {
+            for (String line : lines) {
+                reportMove("%s", line);
+            }
+        } else {
+            reportMove("%s stopped.", name);
+        }
+    }
+
+    /** Execute 'set OPERANDS[0] OPERANDS[1]': change a search setting
+     *  (see SearchParams.set). */
+    void doSet(String[] operands) {
+        _params.set(operands[0], operands[1]);
     }
 
     /** Execute the command 'block OPERANDS[0]'. */
@@ -326,26 +639,64 @@ class Game {
         _commands.put(HELP, this::doHelp);
         _commands.put(MANUAL, this::doManual);
         _commands.put(PASS, this::doPass);
-        _commands.put(PIECEMOVE, this::doMove);
         _commands.put(SEED, this::doSeed);
         _commands.put(START, this::doStart);
         _commands.put(LOAD, this::doLoad);
+        _commands.put(PERFT, this::doPerft);
+        _commands.put(BENCH, this::doBench);
+        _commands.put(SET, this::doSet);
+        _commands.put(STOP, this::doStop);
         _commands.put(QUIT, this::doQuit);
         _commands.put(ERROR, this::doError);
         _commands.put(EOF, this::doQuit);
     }
 
+    /** Greatest depth allowed for 'perft', which takes seconds from a
+     *  typical position. */
+    static final int MAX_PERFT_DEPTH = 5;
+    /** Greatest depth allowed for 'bench', which takes seconds. */
+    static final int MAX_BENCH_DEPTH = 6;
+
+    /** Marks the end of input in _events and _deferred.  Compared by
+     *  identity. */
+    private static final String END_OF_INPUT = new String("");
+    /** Marks the end of a search in _events.  Compared by identity. */
+    private static final String SEARCH_DONE = new String("");
+
     /** Input source. */
     private final CommandSources _inputs = new CommandSources();
+    /** Reads lines from _inputs one at a time, on request. */
+    private ExecutorService _reader;
+    /** Runs AI searches. */
+    private ExecutorService _thinker;
+    /** Lines read by _reader, and notices of finished searches. */
+    private final LinkedBlockingQueue<String> _events =
+        new LinkedBlockingQueue<>();
+    /** True while _reader is reading a line. */
+    private boolean _reading;
+    /** Lines read during a search, to be executed after it. */
+    private final ArrayDeque<String> _deferred = new ArrayDeque<>();
+    /** Sources loaded while _reader was reading a line, to be pushed
+     *  onto _inputs in order above that line once it arrives. */
+    private final ArrayDeque<CommandSource> _loaded = new ArrayDeque<>();
 
     /** My board. */
     private Board _board;
+    /** The time taken to choose each move on _board (milliseconds). */
+    private final ArrayList<Integer> _thinkTimes = new ArrayList<>();
+    /** Where finished games are recorded, or null. */
+    private GameLog _log;
     /** Current game state. */
     private State _state = SETUP;
     /** Used to send messages to the user. */
     private Reporter _reporter;
+    /** Search settings for AIs. */
+    private final SearchParams _params = new SearchParams();
     /** Source of pseudo-random numbers (used by AIs). */
-    private Random _randoms = new Random();
+    private final SeededRandom _randoms = new SeededRandom();
+
+    /** True once a 'quit' command (or end of input) has been processed. */
+    private boolean _quit;
 
     /** Stores whether Red is a manual or auto player. */
     private boolean _redManual = true;
@@ -0,0 +1,223 @@
+package ataxx;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardOpenOption.*;
+import static ataxx.GameException.error;
+
+/** An append-only binary log of finished games (see GameRecord), which
+ *  may be shared by any number of games and threads.  The log file
+ *  starts with HEADER, followed by one record per game: a 4-byte length
+ *  and the game's encoding.  A separate index file (the log's name plus
+ *  ".idx") holds, as 8-byte numbers, the offset in the log of game
+ *  number K * INDEX_INTERVAL for each K, so that a reader can find any
+ *  game quickly (see GameLogReader.seek).
+ *
+ *  Games are encoded by the thread that records them, and written in
+ *  batches through a buffer by a thread of the log's own, which writes
+ *  whenever it has nothing else to do.  Opening an existing log
+ *  discards any partial record left at its end by a crash.
+ *  @author Peter Sorensen
+ */
+class GameLog implements Closeable {
+
+    /** The first bytes of every log file. */
+    static final byte[] HEADER =
+        "ATAXXLOG\u0001".getBytes(StandardCharsets.ISO_8859_1);
+    /** Number of games between index entries. */
+    static final int INDEX_INTERVAL = 1024;
+    /** Largest valid record length (bytes). */
+    static final int MAX_RECORD = 1 << 24;
+    /** Size of the write buffer (bytes). */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** A log appending to FILE, which is created if necessary. */
+    GameLog(Path file) throws IOException {
+        _log = FileChannel.open(file, CREATE, READ, WRITE);
+        _index = FileChannel.open(indexFile(file), CREATE, READ, WRITE);
+        if (_log.size() == 0) {
+            _log.write(ByteBuffer.wrap(HEADER), 0);
+            _end = HEADER.length;
+            _index.truncate(0);
+        } else {
+            recover(file);
+        }
+        _writer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS,
+                                         new LinkedBlockingQueue<>(), r -> {
+                Thread t = new Thread(r, "ataxx-game-log");
+                t.setDaemon(true);
+                return t;
+            });
+    }
+
+    /** Return the name of the index file for the log FILE. */
+    static Path indexFile(Path file) {
+        return file.resolveSibling(file.getFileName() + ".idx");
+    }
+
+    /** Append GAME to the log.  The record is written soon, but not
+     *  necessarily before this returns.  Throws a GameException if an
+     *  earlier write failed. */
+    void record(GameRecord game) {
+        checkFailure();
+        int len = game.encodedLength();
+        ByteBuffer rec = ByteBuffer.allocate(4 + len);
+        rec.putInt(len);
+        game.encode(rec);
+        rec.flip();
+        _writer.execute(() -> append(rec));
+    }
+
+    /** Wait until all games recorded so far are written and stored on
+     *  the device.  Throws a GameException if that fails. */
+    void flush() {
+        try {
+            _writer.submit(() -> {
+                write();
+                _log.force(false);
+                _index.force(false);
+                return null;
+            }).get();
+        } catch (InterruptedException excp) {
+            throw error("interrupted while writing game log");
+        } catch (ExecutionException excp) {
+            _failure = excp.getCause();
+        }
+        checkFailure();
+    }
+
+    /** Write all recorded games and close the log. */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            _writer.shutdown();
+            _log.close();
+            _index.close();
+        }
+    }
+
+    /** Return the number of games in the log, counting those recorded but
+     *  not yet written. */
+    long games() {
+        return _games + _writer.getQueue().size();
+    }
+
+    /** Add the encoded game record REC to the buffer, writing out the
+     *  buffer first if it is full, and afterwards if there are no other
+     *  records waiting.  Runs in the writing thread. */
+    private void append(ByteBuffer rec) {
+        try {
+            if (rec.remaining() > _buffer.remaining()) {
+                write();
+            }
+            if (_games % INDEX_INTERVAL == 0) {
+                _pendingIndex.putLong(_end + _buffer.position());
+            }
+            if (rec.remaining() > _buffer.remaining()) {
+                writeFully(_log, rec, _end);
+                _end += rec.limit();
+            } else {
+                _buffer.put(rec);
+            }
+            _games += 1;
+            if (_writer.getQueue().isEmpty()
+                || !_pendingIndex.hasRemaining()) {
+                write();
+            }
+        } catch (IOException excp) {
+            _failure = excp;
+        }
+    }
+
+    /** Write out the buffer and any pending index entries.  Runs in the
+     *  writing thread. */
+    private void write() throws IOException {
+        _buffer.flip();
+        int len = _buffer.remaining();
+        writeFully(_log, _buffer, _end);
+        _end += len;
+        _buffer.clear();
+        _pendingIndex.flip();
+        long indexEnd = _index.size();
+        writeFully(_index, _pendingIndex, indexEnd);
+        _pendingIndex.clear();
+    }
+
+    /** Write all of DATA to CHANNEL at POSITION. */
+    private static void writeFully(FileChannel channel, ByteBuffer data,
+                                   long position) throws IOException {
+        while (data.hasRemaining()) {
+            position += channel.write(data, position);
+        }
+    }
+
+    /** Find the end of the last complete record of the existing log
+     *  FILE, discarding anything after it, and set up to append after it.
+     *  Throws a GameException if FILE is not a game log. */
+    private void recover(Path file) throws IOException {
+        try (GameLogReader reader = new GameLogReader(file)) {
+            reader.seek(Long.MAX_VALUE);
+            _games = reader.gameNumber();
+            _end = reader.offset();
+        }
+        _log.truncate(_end);
+        long entries = (_games + INDEX_INTERVAL - 1) / INDEX_INTERVAL;
+        if (_index.size() > entries * Long.BYTES) {
+            _index.truncate(entries * Long.BYTES);
+        } else if (_index.size() < entries * Long.BYTES) {
+            rebuildIndex(file);
+        }
+    }
+
+    /** Rewrite the index of the log FILE, which contains _games games,
+     *  from the log itself. */
+    private void rebuildIndex(Path file) throws IOException {
+        _index.truncate(0);
+        ByteBuffer entry = ByteBuffer.allocate(Long.BYTES);
+        try (GameLogReader reader = new GameLogReader(file)) {
+            for (long g = 0; g < _games; g += 1) {
+                if (g % INDEX_INTERVAL == 0) {
+                    entry.clear();
+                    entry.putLong(reader.offset()).flip();
+                    writeFully(_index, entry, _index.size());
+                }
+                reader.skip();
+            }
+        }
+    }
+
+    /** Throw a GameException if a write has failed. */
+    private void checkFailure() {
+        if (_failure != null) {
+            throw error("could not write game log: %s", _failure);
+        }
+    }
+
+    /** The log file. */
+    private final FileChannel _log;
+    /** The index file. */
+    private final FileChannel _index;
+    /** The thread that writes the files. */
+    private final ThreadPoolExecutor _writer;
+    /** Records not yet written.  Used only by _writer. */
+    private final ByteBuffer _buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    /** Index entries not yet written.  Used only by _writer. */
+    private final ByteBuffer _pendingIndex = ByteBuffer.allocate(64);
+    /** Offset in the log of the start of _buffer. */
+    private long _end;
+    /** Number of games in the log, including those in _buffer. */
+    private volatile long _games;
+    /** The first failure to write, if any. */
+    private volatile Throwable _failure;
+}
@@ -0,0 +1,254 @@
+package ataxx;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import static java.nio.file.StandardOpenOption.READ;
+import static ataxx.GameException.error;
+
+/** Reads the games in a log written by GameLog, in order, starting at
+ *  any game.  A partial record at the end of the log (left by a crash)
+ *  is treated as the end.
+ *  @author Peter Sorensen
+ */
+class GameLogReader implements Closeable {
+
+    /** Size of the read buffer (bytes). */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** A reader of the log FILE, positioned at its first game.  Throws a
+     *  GameException if FILE is not a game log. */
+    GameLogReader(Path file) throws IOException {
+        _log = FileChannel.open(file, READ);
+        _indexFile = GameLog.indexFile(file);
+        byte[] header = new byte[GameLog.HEADER.length];
+        if (!ensure(header.length)) {
+            throw error("%s is not a game log", file);
+        }
+        _buffer.get(header);
+        if (!Arrays.equals(header, GameLog.HEADER)) {
+            throw error("%s is not a game log", file);
+        }
+        _first = offset();
+    }
+
+    /** Return the next game, or null if there are no more.  Throws a
+     *  GameException if the log is corrupt. */
+    GameRecord next() throws IOException {
+        int len = nextLength();
+        if (len < 0) {
+            return null;
+        }
+        GameRecord game = GameRecord.decode(_buffer, len);
+        _gameNumber += 1;
+        return game;
+    }
+
+    /** Skip the next game.  Return false if there are no more. */
+    boolean skip() throws IOException {
+        int len = nextLength();
+        if (len < 0) {
+            return false;
+        }
+        _buffer.position(_buffer.position() + len);
+        _gameNumber += 1;
+        return true;
+    }
+
+    /** Position me at game number GAME (numbering from 0), or at the end
+     *  of the log if there are not that many games. */
+    void seek(long game) throws IOException {
+        long entry = game / GameLog.INDEX_INTERVAL;
+        long offset = _first;
+        long start = 0;
+        if (entry > 0 && Files.exists(_indexFile)) {
+            try (FileChannel index = FileChannel.open(_indexFile, READ)) {
+                entry = Math.min(entry, index.size() / Long.BYTES - 1);
+                ByteBuffer buf = ByteBuffer.allocate(Long.BYTES);
+                while (entry > 0) {
+                    buf.clear();
+                    if (index.read(buf, entry * Long.BYTES) == Long.BYTES
+                        && buf.getLong(0) < _log.size()) {
+                        offset = buf.getLong(0);
+                        start = entry * GameLog.INDEX_INTERVAL;
+                        break;
+                    }
+                    entry -= 1;
+                }
+            }
+        }
+        _bufferStart = offset;
+        _buffer.clear().flip();
+        _gameNumber = start;
+        while (_gameNumber < game && skip()) {
+            continue;
+        }
+    }
+
+    /** Return the number of the next game (numbering from 0). */
+    long gameNumber() {
+        return _gameNumber;
+    }
+
+    /** Return the offset in the log of the next game. */
+    long offset() {
+        return _bufferStart + _buffer.position();
+    }
+
+    @Override
+    public void close() throws IOException {
+        _log.close();
+    }
+
+    /** Read the length of the next record, leaving it entirely in
+     *  _buffer, and return it, or return -1 if there is no complete
+     *  record.  Throws a GameException if the length is invalid. */
+    private int nextLength() throws IOException {
+        if (!ensure(Integer.BYTES)) {
+            return -1;
+        }
+        int len = _buffer.getInt(_buffer.position());
+        if (len < 0 || len > GameLog.MAX_RECORD) {
+            throw error("corrupt game log at offset %d", offset());
+        }
+        if (!ensure(Integer.BYTES + len)) {
+            return -1;
+        }
+        _buffer.position(_buffer.position() + Integer.BYTES);
+        return len;
+    }
+
+    /** Make sure that at least N bytes from the log are available in
+     *  _buffer, reading more if needed.  Return false if the log ends
+     *  first. */
+    private boolean ensure(int n) throws IOException {
+        if (_buffer.remaining() >= n) {
+            return true;
+        }
+        _bufferStart += _buffer.position();
+        if (n > _buffer.capacity()) {
+            ByteBuffer bigger = ByteBuffer.allocate(n);
+            bigger.put(_buffer);
+            _buffer = bigger;
+        } else {
+            _buffer.compact();
+        }
+        while (_buffer.position() < n) {
+            int k = _log.read(_buffer, _bufferStart + _buffer.position());
+            if (k < 0) {
+                break;
+            }
+        }
+        _buffer.flip();
+        return _buffer.remaining() >= n;
+    }
+
+    /** Print the games in a log.  ARGS are the log's name, optionally
+     *  followed by '--from N' (the first game to print, numbering from
+     *  0), '--count K' (the number of games to print) and '--positions'
+     *  (print every position of each game in compact notation, as
+     *  accepted by Analyzer, instead of a summary line per game). */
+    public static void main(String[] args) {
+        String name = null;
+        long from = 0, count = Long.MAX_VALUE;
+        boolean positions = false;
+        try {
+            for (int i = 0; i < args.length; i += 1) {
+                if (args[i].equals("--from") && i + 1 < args.length) {
+                    i += 1;
+                    from = Long.parseLong(args[i]);
+                } else if (args[i].equals("--count") && i + 1 < args.length) {
+                    i += 1;
+                    count = Long.parseLong(args[i]);
+                } else if (args[i].equals("--positions")) {
+                    positions = true;
+                } else if (name == null) {
+                    name = args[i];
+                } else {
+                    name = null;
+                    break;
+                }
+            }
+        } catch (NumberFormatException excp) {
+            name = null;
+        }
+        if (name == null || from < 0 || count < 0) {
+            System.err.println("Usage: java ataxx.GameLogReader FILE"
+                               + " [--from N] [--count K] [--positions]");
+            System.exit(1);
+        }
+        TextReporter output = new TextReporter();
+        try (GameLogReader reader = new GameLogReader(Paths.get(name))) {
+            reader.seek(from);
+            Board board = new Board();
+            board.suspendNotifications();
+            for (long k = 0; k < count; k += 1) {
+                long number = reader.gameNumber();
+                GameRecord game = reader.next();
+                if (game == null) {
+                    break;
+                }
+                print(number, game, board, positions, output);
+            }
+        } catch (IOException | GameException excp) {
+            output.flush();
+            System.err.printf("%s: %s%n", name, excp.getMessage());
+            System.exit(1);
+        }
+        output.flush();
+    }
+
+    /** Print GAME, number NUMBER, to OUTPUT, using BOARD to replay it,
+     *  printing each of its positions iff POSITIONS. */
+    private static void print(long number, GameRecord game, Board board,
+                              boolean positions, TextReporter output) {
+        if (positions) {
+            game.replay(board, 0);
+            output.moveMsg("%s", board.position());
+            for (int k = 0; k < game.numMoves(); k += 1) {
+                board.makeMove(game.move(k));
+                output.moveMsg("%s", board.position());
+            }
+            return;
+        }
+        long millis;
+        millis = 0;
+        for (int k = 0; k < game.numMoves(); k += 1) {
+            millis += game.thinkMillis(k);
+        }
+        String result;
+        switch (game.winner()) {
+        case RED:
+            result = "Red wins";
+            break;
+        case BLUE:
+            result = "Blue wins";
+            break;
+        default:
+            result = "Draw";
+            break;
+        }
+        output.moveMsg("Game %d: %s, red %d blue %d, %d moves, %d ms",
+                       number, result, game.redPieces(), game.bluePieces(),
+                       game.numMoves(), millis);
+    }
+
+    /** The log file. */
+    private final FileChannel _log;
+    /** The log's index file. */
+    private final Path _indexFile;
+    /** Offset of the first game in the log. */
+    private final long _first;
+    /** Data read from the log, from the offset _bufferStart. */
+    private ByteBuffer _buffer = ByteBuffer.allocate(BUFFER_SIZE).flip();
+    /** Offset in the log of the start of _buffer. */
+    private long _bufferStart;
+    /** Number of the next game. */
+    private long _gameNumber;
+}
@@ -0,0 +1,129 @@
+package ataxx;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import static java.nio.file.StandardOpenOption.APPEND;
+
+/** Tests of GameRecord, GameLog and GameLogReader.
+ *  @author Peter Sorensen
+ */
+public class GameLogTest {
+
+    /** Number of games logged in testLog. */
+    private static final int GAMES = 2 * GameLog.INDEX_INTERVAL + 100;
+
+    /** Return the moves of a game played at random from the initial
+     *  position with blocks at c3 and its reflections, using RANDOM. */
+    private static Board randomGame(Random random) {
+        Board board = new Board();
+        board.setBlock('c', '3');
+        board.suspendNotifications();
+        Move[] moves = new Move[Board.MAX_MOVES];
+        while (!board.gameOver()) {
+            int n = board.legalMoves(moves);
+            board.makeMove(n == 0 ? Move.pass() : moves[random.nextInt(n)]);
+        }
+        return board;
+    }
+
+    /** Return a record of the first LEN moves of the game on BOARD, with
+     *  think times of LEN ms each. */
+    private static GameRecord record(Board board, int len) {
+        Board copy = new Board(board);
+        while (copy.numMoves() > len) {
+            copy.undo();
+        }
+        return GameRecord.of(copy,
+                             Collections.nCopies(len, len));
+    }
+
+    /** Assert that records EXPECTED and ACTUAL are the same. */
+    private static void assertSameGame(GameRecord expected,
+                                       GameRecord actual) {
+        assertEquals(expected.blocks(), actual.blocks());
+        assertEquals(expected.numMoves(), actual.numMoves());
+        for (int k = 0; k < expected.numMoves(); k += 1) {
+            assertSame(expected.move(k), actual.move(k));
+            assertEquals(expected.thinkMillis(k), actual.thinkMillis(k));
+        }
+        assertEquals(expected.redPieces(), actual.redPieces());
+        assertEquals(expected.bluePieces(), actual.bluePieces());
+    }
+
+    @Test public void testRecord() {
+        Board board = randomGame(new Random(42));
+        GameRecord game = GameRecord.of(board, List.of(5, 1000000));
+        ByteBuffer buf = ByteBuffer.allocate(game.encodedLength());
+        game.encode(buf);
+        assertFalse(buf.hasRemaining());
+        buf.flip();
+        GameRecord copy = GameRecord.decode(buf, buf.limit());
+        assertSameGame(game, copy);
+        assertEquals(1000000, copy.thinkMillis(1));
+        assertEquals(0, copy.thinkMillis(2));
+        Board replayed = new Board();
+        copy.replay(replayed, copy.numMoves());
+        assertEquals(board.position(), replayed.position());
+        assertTrue(replayed.gameOver());
+    }
+
+    @Test public void testLog() throws IOException {
+        Path file = Files.createTempFile("ataxx", ".log");
+        Path index = GameLog.indexFile(file);
+        try {
+            Board game = randomGame(new Random(1));
+            List<GameRecord> games = new ArrayList<>();
+            try (GameLog log = new GameLog(file)) {
+                for (int g = 0; g < GAMES; g += 1) {
+                    games.add(record(game, g % game.numMoves()));
+                    log.record(games.get(g));
+                }
+            }
+            try (GameLogReader reader = new GameLogReader(file)) {
+                for (int g = 0; g < GAMES; g += 1) {
+                    assertEquals(g, reader.gameNumber());
+                    assertSameGame(games.get(g), reader.next());
+                }
+                assertNull(reader.next());
+                for (int g : new int[] { 1500, 7, GAMES - 1, 1024 }) {
+                    reader.seek(g);
+                    assertEquals(g, reader.gameNumber());
+                    assertSameGame(games.get(g), reader.next());
+                }
+                reader.seek(GAMES + 10);
+                assertEquals(GAMES, reader.gameNumber());
+            }
+            assertEquals(3 * Long.BYTES, Files.size(index));
+
+            try (FileChannel channel = FileChannel.open(file, APPEND)) {
+                channel.write(ByteBuffer.wrap(new byte[] { 0, 0, 1 }));
+            }
+            Files.delete(index);
+            try (GameLog log = new GameLog(file)) {
+                assertEquals(GAMES, log.games());
+                log.record(games.get(3));
+            }
+            try (GameLogReader reader = new GameLogReader(file)) {
+                reader.seek(GAMES);
+                assertSameGame(games.get(3), reader.next());
+                assertNull(reader.next());
+            }
+            assertEquals(3 * Long.BYTES, Files.size(index));
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(index);
+        }
+    }
+
+}
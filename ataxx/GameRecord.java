@@ -0,0 +1,262 @@
+package ataxx;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static ataxx.PieceColor.*;
+import static ataxx.GameException.error;
+
+/** The record of a finished game: its blocks, its moves with the time
+ *  taken to choose each, and its final piece counts.  Games always start
+ *  from the standard position plus blocks (moves made during setup are
+ *  simply the first moves of the record).
+ *
+ *  A record is encoded (see encode) as
+ *      7 bytes    the blocked squares, as a 49-bit mask
+ *      varint     the number of moves, N
+ *      2N bytes   the moves: the numbers of the from and to squares, or
+ *                 PASS_CODE twice for a pass
+ *      N varints  the think time of each move, in milliseconds
+ *      2 bytes    the final numbers of red and blue pieces
+ *  where squares are numbered 0-48 from a7 across and down to g1 (the
+ *  order of Board.setup), and a varint is an unsigned number stored 7
+ *  bits to a byte, least significant first, with the high bit set on all
+ *  bytes but the last.
+ *  @author Peter Sorensen
+ */
+class GameRecord {
+
+    /** Encoding of a pass. */
+    static final int PASS_CODE = 0xff;
+
+    /** A record of a game with the blocked squares BLOCKS (a mask indexed
+     *  by square number), MOVES (which I keep), the think time of
+     *  MOVES[k] being MILLIS[k] milliseconds, ending with RED red and BLUE
+     *  blue pieces. */
+    GameRecord(long blocks, Move[] moves, int[] millis, int red, int blue) {
+        assert moves.length == millis.length;
+        _blocks = blocks;
+        _moves = moves;
+        _millis = millis;
+        _red = red;
+        _blue = blue;
+    }
+
+    /** Return the record of the game played on BOARD, which must have
+     *  been started from the standard position and blocks, where the
+     *  think time of the Kth move was MILLIS.get(K) milliseconds. */
+    static GameRecord of(Board board, List<Integer> millis) {
+        List<Move> played = board.allMoves();
+        Move[] moves = new Move[played.size()];
+        int[] times = new int[moves.length];
+        for (int k = 0; k < moves.length; k += 1) {
+            Move move = played.get(k);
+            moves[k] = move == null ? Move.pass() : move;
+            times[k] = k < millis.size() ? millis.get(k) : 0;
+        }
+        long blocks;
+        blocks = 0;
+        for (int sq = 0; sq < SQUARES; sq += 1) {
+            if (board.get(col(sq), row(sq)) == BLOCKED) {
+                blocks |= 1L << sq;
+            }
+        }
+        return new GameRecord(blocks, moves, times, board.redPieces(),
+                              board.bluePieces());
+    }
+
+    /** Return the mask of blocked squares, bit K being set iff square K
+     *  is blocked. */
+    long blocks() {
+        return _blocks;
+    }
+
+    /** Return the number of moves (including passes). */
+    int numMoves() {
+        return _moves.length;
+    }
+
+    /** Return move #K (numbering from 0). */
+    Move move(int k) {
+        return _moves[k];
+    }
+
+    /** Return the time taken to choose move #K, in milliseconds. */
+    int thinkMillis(int k) {
+        return _millis[k];
+    }
+
+    /** Return the final number of red pieces. */
+    int redPieces() {
+        return _red;
+    }
+
+    /** Return the final number of blue pieces. */
+    int bluePieces() {
+        return _blue;
+    }
+
+    /** Return the winner, or EMPTY for a draw. */
+    PieceColor winner() {
+        return _red > _blue ? RED : _blue > _red ? BLUE : EMPTY;
+    }
+
+    /** Set BOARD to the position after the first PLIES of my moves. */
+    void replay(Board board, int plies) {
+        StringBuilder squares = new StringBuilder(SQUARES);
+        for (int sq = 0; sq < SQUARES; sq += 1) {
+            if ((_blocks & (1L << sq)) != 0) {
+                squares.append('X');
+            } else {
+                squares.append('-');
+            }
+        }
+        int last = SQUARES - 1;
+        squares.setCharAt(0, 'r');
+        squares.setCharAt(last, 'r');
+        squares.setCharAt(Board.SIDE - 1, 'b');
+        squares.setCharAt(last - Board.SIDE + 1, 'b');
+        board.setup(squares, RED);
+        for (int k = 0; k < plies; k += 1) {
+            board.makeMove(_moves[k]);
+        }
+    }
+
+    /** Return the length of my encoding, in bytes. */
+    int encodedLength() {
+        int len = BLOCK_BYTES + varintLength(_moves.length)
+            + 2 * _moves.length + 2;
+        for (int t : _millis) {
+            len += varintLength(t);
+        }
+        return len;
+    }
+
+    /** Append my encoding to OUT, which must have room for it. */
+    void encode(ByteBuffer out) {
+        for (int i = 0; i < BLOCK_BYTES; i += 1) {
+            out.put((byte) (_blocks >>> (8 * i)));
+        }
+        putVarint(out, _moves.length);
+        for (Move move : _moves) {
+            if (move.isPass()) {
+                out.put((byte) PASS_CODE).put((byte) PASS_CODE);
+            } else {
+                out.put((byte) square(move.col0(), move.row0()));
+                out.put((byte) square(move.col1(), move.row1()));
+            }
+        }
+        for (int t : _millis) {
+            putVarint(out, t);
+        }
+        out.put((byte) _red).put((byte) _blue);
+    }
+
+    /** Return the record encoded in the LEN bytes at the position of IN,
+     *  advancing past them.  Throws a GameException if they are not a
+     *  valid encoding. */
+    static GameRecord decode(ByteBuffer in, int len) {
+        int end = in.position() + len;
+        try {
+            long blocks;
+            blocks = 0;
+            for (int i = 0; i < BLOCK_BYTES; i += 1) {
+                blocks |= (in.get() & 0xffL) << (8 * i);
+            }
+            int n = getVarint(in);
+            if (n > len) {
+                throw error("bad game record");
+            }
+            Move[] moves = new Move[n];
+            for (int k = 0; k < n; k += 1) {
+                int from = in.get() & 0xff, to = in.get() & 0xff;
+                if (from == PASS_CODE && to == PASS_CODE) {
+                    moves[k] = Move.pass();
+                } else if (from < SQUARES && to < SQUARES) {
+                    moves[k] = Move.move(col(from), row(from),
+                                         col(to), row(to));
+                }
+                if (moves[k] == null) {
+                    throw error("bad move in game record");
+                }
+            }
+            int[] millis = new int[n];
+            for (int k = 0; k < n; k += 1) {
+                millis[k] = getVarint(in);
+            }
+            int red = in.get() & 0xff, blue = in.get() & 0xff;
+            if (in.position() != end) {
+                throw error("bad game record length");
+            }
+            return new GameRecord(blocks, moves, millis, red, blue);
+        } catch (BufferUnderflowException excp) {
+            throw error("truncated game record");
+        }
+    }
+
+    /** Return the number of the square at column C, row R. */
+    static int square(char c, char r) {
+        return ('7' - r) * Board.SIDE + (c - 'a');
+    }
+
+    /** Return the column letter of square SQ. */
+    static char col(int sq) {
+        return (char) ('a' + sq % Board.SIDE);
+    }
+
+    /** Return the row number of square SQ. */
+    static char row(int sq) {
+        return (char) ('7' - sq / Board.SIDE);
+    }
+
+    /** Return the length of the varint encoding of N. */
+    private static int varintLength(int n) {
+        int len;
+        len = 1;
+        while ((n >>>= 7) != 0) {
+            len += 1;
+        }
+        return len;
+    }
+
+    /** Append the varint encoding of N to OUT. */
+    private static void putVarint(ByteBuffer out, int n) {
+        while ((n & ~0x7f) != 0) {
+            out.put((byte) (n | 0x80));
+            n >>>= 7;
+        }
+        out.put((byte) n);
+    }
+
+    /** Read and return a varint from IN. */
+    private static int getVarint(ByteBuffer in) {
+        int n, shift;
+        n = shift = 0;
+        while (true) {
+            int b = in.get();
+            n |= (b & 0x7f) << shift;
+            if (b >= 0) {
+                return n;
+            }
+            shift += 7;
+            if (shift > 28) {
+                throw error("bad number in game record");
+            }
+        }
+    }
+
+    /** Number of squares. */
+    private static final int SQUARES = Board.SIDE * Board.SIDE;
+    /** Length of the encoding of the blocked squares. */
+    private static final int BLOCK_BYTES = (SQUARES + 7) / 8;
+
+    /** Blocked squares. */
+    private final long _blocks;
+    /** Moves made. */
+    private final Move[] _moves;
+    /** Think times. */
+    private final int[] _millis;
+    /** Final piece counts. */
+    private final int _red, _blue;
+}
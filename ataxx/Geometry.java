@@ -0,0 +1,155 @@
+package ataxx;
+
+import static ataxx.GameException.error;
+
+/** The shape of a square board of a given side (MIN_SIDE to MAX_SIDE),
+ *  for VariantBoard: how its squares are numbered and which squares are
+ *  an extend or a jump from each.
+ *
+ *  Squares are numbered as for Board.mask: from 0 at the top left (column
+ *  a of the top row) across each row and down to the bottom right.  A
+ *  set of squares is a bit mask of words() longs, square K being bit K %
+ *  64 of word K / 64; on boards of up to 8 squares a side, one long
+ *  suffices.  All tables are derived from the side when a geometry is
+ *  first used, and geometries are shared.
+ *  @author Peter Sorensen
+ */
+class Geometry {
+
+    /** Smallest side allowed. */
+    static final int MIN_SIDE = 5;
+    /** Largest side allowed. */
+    static final int MAX_SIDE = 12;
+
+    /** Return the geometry of a board SIDE squares on a side.  Throws a
+     *  GameException if SIDE is out of range. */
+    static Geometry of(int side) {
+        if (side < MIN_SIDE || side > MAX_SIDE) {
+            throw error("board side must be from %d to %d", MIN_SIDE,
+                        MAX_SIDE);
+        }
+        return GEOMETRIES[side - MIN_SIDE];
+    }
+
+    /** The geometry for SIDE. */
+    private Geometry(int side) {
+        _side = side;
+        _squares = side * side;
+        _words = (_squares + Long.SIZE - 1) / Long.SIZE;
+        _all = new long[_words];
+        _near = new long[_squares * _words];
+        _ring = new long[_squares * _words];
+        long fileA, fileLast;
+        fileA = fileLast = 0;
+        for (int sq = 0; sq < _squares; sq += 1) {
+            _all[sq / Long.SIZE] |= 1L << sq;
+            for (int dr = -2; dr <= 2; dr += 1) {
+                for (int dc = -2; dc <= 2; dc += 1) {
+                    int c = col(sq) + dc, r = row(sq) + dr;
+                    if ((dr == 0 && dc == 0) || c < 0 || c >= side
+                        || r < 0 || r >= side) {
+                        continue;
+                    }
+                    int t = square(c, r);
+                    long[] table =
+                        Math.abs(dr) <= 1 && Math.abs(dc) <= 1 ? _near : _ring;
+                    table[sq * _words + t / Long.SIZE] |= 1L << t;
+                }
+            }
+            if (col(sq) == 0) {
+                fileA |= 1L << sq;
+            } else if (col(sq) == side - 1) {
+                fileLast |= 1L << sq;
+            }
+        }
+        _fileA = _words == 1 ? fileA : 0;
+        _fileLast = _words == 1 ? fileLast : 0;
+    }
+
+    /** Return the number of squares on a side. */
+    int side() {
+        return _side;
+    }
+
+    /** Return the number of squares. */
+    int squares() {
+        return _squares;
+    }
+
+    /** Return the number of longs in a mask of squares. */
+    int words() {
+        return _words;
+    }
+
+    /** Return the number of the square in column COL and row ROW
+     *  (both numbered from 0, rows from the bottom). */
+    int square(int col, int row) {
+        return (_side - 1 - row) * _side + col;
+    }
+
+    /** Return the column (from 0) of square SQ. */
+    int col(int sq) {
+        return sq % _side;
+    }
+
+    /** Return the row (from 0 at the bottom) of square SQ. */
+    int row(int sq) {
+        return _side - 1 - sq / _side;
+    }
+
+    /** Return the name of square SQ: its column letter followed by its
+     *  row number, as in "a1" or "l12". */
+    String name(int sq) {
+        return (char) ('a' + col(sq)) + Integer.toString(row(sq) + 1);
+    }
+
+    /** Return word W of the mask of all squares. */
+    long all(int w) {
+        return _all[w];
+    }
+
+    /** Return word W of the mask of the squares adjacent to SQ. */
+    long near(int sq, int w) {
+        return _near[sq * _words + w];
+    }
+
+    /** Return word W of the mask of the squares a jump from SQ. */
+    long ring(int sq, int w) {
+        return _ring[sq * _words + w];
+    }
+
+    /** Return the squares in the one-word mask MASK together with those
+     *  adjacent to them.  Only for geometries with one word. */
+    long grow(long mask) {
+        long all = _all[0];
+        long row = (mask | mask << 1 & ~_fileA | mask >>> 1 & ~_fileLast)
+            & all;
+        return (row | row << _side | row >>> _side) & all;
+    }
+
+    /** The geometries, by side - MIN_SIDE. */
+    private static final Geometry[] GEOMETRIES =
+        new Geometry[MAX_SIDE - MIN_SIDE + 1];
+
+    static {
+        for (int side = MIN_SIDE; side <= MAX_SIDE; side += 1) {
+            GEOMETRIES[side - MIN_SIDE] = new Geometry(side);
+        }
+    }
+
+    /** Squares on a side. */
+    private final int _side;
+    /** Number of squares. */
+    private final int _squares;
+    /** Longs in a mask. */
+    private final int _words;
+    /** Mask of all squares. */
+    private final long[] _all;
+    /** Masks of the squares adjacent to each square, one after another. */
+    private final long[] _near;
+    /** Masks of the squares a jump from each square, one after
+     *  another. */
+    private final long[] _ring;
+    /** Squares in the first and last columns, if one word suffices. */
+    private final long _fileA, _fileLast;
+}
@@ -1,7 +1,15 @@
 package ataxx;
 
+import java.io.BufferedOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.PrintStream;
 import java.io.InputStreamReader;
 import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
 import java.io.PipedReader;
 import java.io.PipedWriter;
 import java.awt.HeadlessException;
@@ -11,21 +19,151 @@ import java.awt.HeadlessException;
  */
 public class Main {
 
-    /** Run Ataxx game.  Use display if ARGS[k] is '--display'. */
+    /** Run Ataxx game.  Use display if ARGS[k] is '--display'.  If
+     *  ARGS[k] is '--server' and ARGS[k+1] is a port number, instead
+     *  serve games over TCP on that port (see RemoteServer).  If ARGS[k]
+     *  is '--analyze' and ARGS[k+1] is a file name, instead analyze the
+     *  positions in that file (see Analyzer), searching to the depth
+     *  given by '--depth D' with the number of threads given by
+     *  '--threads N'.  If ARGS[k] is '--bench', instead run the search
+     *  benchmark (see Bench) to the depth given by '--depth D'.  Each
+     *  '--set NAME=VALUE' changes a search setting (see SearchParams)
+     *  for whichever of these is run.  '--log FILE' appends a record of
+     *  each finished game, played locally or served, to FILE (see
+     *  GameLog).  If ARGS[k] is '--selfplay' and ARGS[k+1] is a file
+     *  name, instead append training positions to that file (see
+     *  SelfPlay) from the number of games given by '--games N', seeded
+     *  by '--seed S', searching to depth D with N threads as for
+     *  '--analyze'.  Otherwise, play a game, whose AIs draw their random
+     *  numbers from the seed S, if given.  With '--set deterministic=on',
+     *  analysis and self-play use a single thread whatever N is. */
     public static void main(String[] args) {
         boolean useGUI;
         useGUI = false;
+        int port = -1;
+        String analyze = null;
+        int depth = -1;
+        boolean bench = false;
+        String selfPlay = null;
+        int games = SELF_PLAY_GAMES;
+        long seed = 0;
+        boolean seeded = false;
+        GameLog log = null;
+        SearchParams params = new SearchParams();
+        int threads = Runtime.getRuntime().availableProcessors();
         for (int i = 0; i < args.length; i += 1) {
             switch (args[i]) {
             case "--display":
                 useGUI = true;
                 break;
+            case "--server":
+                if (i + 1 == args.length) {
+                    usage();
+                }
+                i += 1;
+                port = parsePort(args[i]);
+                break;
+            case "--set":
+                if (i + 1 == args.length
+                    || args[i + 1].indexOf('=') < 0) {
+                    usage();
+                }
+                i += 1;
+                try {
+                    int eq = args[i].indexOf('=');
+                    params.set(args[i].substring(0, eq),
+                               args[i].substring(eq + 1));
+                } catch (GameException excp) {
+                    System.err.println(excp.getMessage());
+                    usage();
+                }
+                break;
+            case "--bench":
+                bench = true;
+                break;
+            case "--log":
+                if (i + 1 == args.length) {
+                    usage();
+                }
+                i += 1;
+                log = openLog(args[i]);
+                break;
+            case "--analyze":
+                if (i + 1 == args.length) {
+                    usage();
+                }
+                i += 1;
+                analyze = args[i];
+                break;
+            case "--selfplay":
+                if (i + 1 == args.length) {
+                    usage();
+                }
+                i += 1;
+                selfPlay = args[i];
+                break;
+            case "--games":
+                if (i + 1 == args.length) {
+                    usage();
+                }
+                i += 1;
+                games = parseCount(args[i]);
+                break;
+            case "--seed":
+                if (i + 1 == args.length) {
+                    usage();
+                }
+                i += 1;
+                seed = parseSeed(args[i]);
+                seeded = true;
+                break;
+            case "--depth":
+                if (i + 1 == args.length) {
+                    usage();
+                }
+                i += 1;
+                depth = parseCount(args[i]);
+                break;
+            case "--threads":
+                if (i + 1 == args.length) {
+                    usage();
+                }
+                i += 1;
+                threads = parseCount(args[i]);
+                break;
             default:
                 usage();
                 break;
             }
         }
 
+        if (params.deterministic()) {
+            threads = 1;
+        }
+
+        if (port >= 0) {
+            serve(port, log, params);
+            return;
+        }
+        if (bench) {
+            TextReporter output = new TextReporter();
+            Bench.run(depth < 0 ? Bench.DEPTH : depth, params,
+                      line -> output.moveMsg("%s", line));
+            output.flush();
+            System.exit(0);
+        }
+        if (analyze != null) {
+            analyze(analyze, depth < 0 ? AI.MAX_DEPTH : depth, params,
+                    threads);
+            return;
+        }
+
+        if (selfPlay != null) {
+            selfPlay(selfPlay, games, seed,
+                     depth < 0 ? SelfPlay.DEPTH : depth, params, threads);
+            return;
+        }
+
         Game game;
         Board board = new Board();
 
@@ -39,7 +177,7 @@ public class Main {
                 game = new Game(board,
                                 new ReaderSource(new PipedReader(writer,
                                                                  BUFFER_LEN),
-                                                 false),
+                                                 null),
                                 display);
                 display.display(true);
             } catch (HeadlessException excp) {
@@ -50,21 +188,171 @@ public class Main {
                 System.exit(1);
             }
         } else {
+            TextReporter reporter = new TextReporter();
             game = new Game(board,
                             new ReaderSource(new InputStreamReader(System.in),
-                                             true),
-                            new TextReporter());
+                                             reporter),
+                            reporter);
         }
+        game.searchParams().set(params);
+        if (seeded) {
+            game.setSeed(seed);
+        }
+        game.setLog(log);
         game.process(false);
+        if (log != null) {
+            try {
+                log.close();
+            } catch (IOException | GameException excp) {
+                System.err.printf("Could not write game log: %s%n",
+                                  excp.getMessage());
+                System.exit(1);
+            }
+        }
+        System.exit(0);
+    }
+
+    /** Return a log appending to the file NAME, exiting with an error
+     *  message if it cannot be opened. */
+    static GameLog openLog(String name) {
+        try {
+            return new GameLog(Paths.get(name));
+        } catch (IOException | GameException | InvalidPathException excp) {
+            System.err.printf("Cannot open game log %s: %s%n", name,
+                              excp.getMessage());
+            System.exit(1);
+            return null;
+        }
+    }
+
+    /** Serve games over TCP on PORT until killed, starting each with
+     *  search settings PARAMS and recording finished games in LOG, if it
+     *  is not null. */
+    static void serve(int port, GameLog log, SearchParams params) {
+        try {
+            RemoteServer server =
+                new RemoteServer(new InetSocketAddress(port));
+            server.setParams(params);
+            server.setLog(log);
+            System.err.printf("Serving Ataxx on port %d.%n", server.port());
+            server.run();
+        } catch (IOException excp) {
+            System.err.printf("Could not listen on port %d: %s%n", port,
+                              excp.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /** Analyze the positions in file NAME, searching to DEPTH with
+     *  settings PARAMS using THREADS threads, and exit. */
+    static void analyze(String name, int depth, SearchParams params,
+                        int threads) {
+        PrintStream output =
+            new PrintStream(new BufferedOutputStream(
+                new FileOutputStream(FileDescriptor.out),
+                TextReporter.BUFFER_SIZE));
+        try (FileReader input = new FileReader(name)) {
+            new Analyzer(depth, params, threads, output).analyze(input);
+        } catch (IOException excp) {
+            System.err.printf("Cannot open file %s%n", name);
+            System.exit(1);
+        } catch (GameException excp) {
+            output.flush();
+            System.err.printf("%s: %s%n", name, excp.getMessage());
+            System.exit(1);
+        }
+        System.exit(0);
+    }
+
+    /** Append to file NAME the positions sampled from GAMES games of
+     *  self-play seeded by SEED, searching to DEPTH with settings PARAMS
+     *  using THREADS threads, and exit. */
+    static void selfPlay(String name, int games, long seed, int depth,
+                         SearchParams params, int threads) {
+        SelfPlay generator =
+            new SelfPlay(depth, params, threads, SelfPlay.OPENING_MOVES,
+                         SelfPlay.SAMPLE_RATE);
+        long time = System.nanoTime();
+        long positions;
+        try (TrainingWriter out =
+             new TrainingWriter(Paths.get(name),
+                                TrainingWriter.BUFFER_SIZE)) {
+            positions = generator.play(games, seed, out);
+        } catch (IOException | GameException | InvalidPathException excp) {
+            System.err.printf("Could not write %s: %s%n", name,
+                              excp.getMessage());
+            System.exit(1);
+            return;
+        }
+        time = Math.max(1, (System.nanoTime() - time) / 1_000_000);
+        System.out.printf("Games: %d  Positions: %d  Positions/second: %d%n",
+                          games, positions, positions * 1000 / time);
+        System.exit(0);
+    }
+
+    /** Return the integer denoted by TEXT, exiting with a usage message
+     *  if it is not one. */
+    static long parseSeed(String text) {
+        try {
+            return Long.parseLong(text);
+        } catch (NumberFormatException excp) {
+            usage();
+            return 0;
+        }
+    }
+
+    /** Return the positive integer denoted by TEXT, exiting with a usage
+     *  message if it is not one. */
+    static int parseCount(String text) {
+        try {
+            int n = Integer.parseInt(text);
+            if (n > 0) {
+                return n;
+            }
+        } catch (NumberFormatException excp) {
+            /* Fall through to usage message. */
+        }
+        usage();
+        return -1;
+    }
+
+    /** Return the port number denoted by TEXT, exiting with a usage
+     *  message if it is not one. */
+    static int parsePort(String text) {
+        try {
+            int port = Integer.parseInt(text);
+            if (port >= 0 && port <= MAX_PORT) {
+                return port;
+            }
+        } catch (NumberFormatException excp) {
+            /* Fall through to usage message. */
+        }
+        usage();
+        return -1;
     }
 
     /** Give usage message and exit. */
     static void usage() {
         System.err.println("Usage: java ataxx.Main [--display] [--timing]"
-                           + " [--strict]");
+                           + " [--strict] [--server PORT]"
+                           + " [--log FILE] [--seed S]\n"
+                           + "       java ataxx.Main --analyze FILE"
+                           + " [--depth D] [--threads N]\n"
+                           + "       java ataxx.Main --bench [--depth D]\n"
+                           + "       java ataxx.Main --selfplay FILE"
+                           + " [--games N] [--seed S] [--depth D]"
+                           + " [--threads N]\n"
+                           + "  Any of these may also be given"
+                           + " --set NAME=VALUE.");
         System.exit(1);
     }
 
+    /** Default number of games played by --selfplay. */
+    private static final int SELF_PLAY_GAMES = 100;
+
+    /** Largest TCP port number. */
+    private static final int MAX_PORT = 65535;
+
     /** Size of the buffer for reading commands from a GUI (bytes). */
     private static final int BUFFER_LEN = 128;
 
@@ -20,10 +20,7 @@ class Manual extends Player {
         if (var.commandType() == Command.Type.PASS) {
             return Move.pass();
         }
-        return Move.move(var.operands()[0].charAt(0),
-                var.operands()[1].charAt(0),
-                var.operands()[2].charAt(0),
-                var.operands()[3].charAt(0));
+        return var.move();
     }
 }
 
@@ -0,0 +1,198 @@
+package ataxx;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/** Provides command input from a file, which is mapped into memory and
+ *  scanned in place rather than read through a stream.  Comments (from
+ *  '#' to the end of the line) and leading and trailing whitespace are
+ *  removed here, and a line that is just a move (as in the scripts and
+ *  game records replayed with 'load') is returned as a shared string, so
+ *  that a long list of moves costs no allocation per line.  The file is
+ *  taken to be in ISO-8859-1 (so ASCII works), and is mapped a window at
+ *  a time so that its size is not limited by that of a buffer.
+ *  @author Peter Sorensen
+ */
+class MappedSource implements CommandSource {
+
+    /** Default size of the part of the file mapped at once (bytes).
+     *  Lines longer than the window are split. */
+    static final int WINDOW = 1 << 28;
+
+    /** A new source that reads FILE and displays prompts using PROMPTER,
+     *  if it is not null. */
+    MappedSource(Path file, Reporter prompter) throws IOException {
+        this(file, prompter, WINDOW);
+    }
+
+    /** A new source that reads FILE, mapping WINDOW bytes at a time, and
+     *  displays prompts using PROMPTER, if it is not null. */
+    MappedSource(Path file, Reporter prompter, int window)
+        throws IOException {
+        _channel = FileChannel.open(file, StandardOpenOption.READ);
+        _windowSize = window;
+        _prompter = prompter;
+        try {
+            _size = _channel.size();
+            map(0);
+        } catch (IOException excp) {
+            close();
+            throw excp;
+        }
+    }
+
+    @Override
+    public synchronized String getLine(String prompt) {
+        if (_channel == null) {
+            return null;
+        }
+        if (_prompter != null) {
+            _prompter.prompt(prompt);
+        }
+        try {
+            int end = lineEnd();
+            while (end == _window.limit() && _base + end < _size
+                   && _pos > 0) {
+                map(_base + _pos);
+                end = lineEnd();
+            }
+            if (_pos == end && _base + end >= _size) {
+                close();
+                return null;
+            }
+            int start = _pos;
+            _pos = end < _window.limit() ? end + 1 : end;
+            return text(start, end);
+        } catch (IOException excp) {
+            close();
+            return null;
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (_channel != null) {
+            try {
+                _channel.close();
+            } catch (IOException excp) {
+                /* Ignore IOException */
+            }
+            _channel = null;
+        }
+    }
+
+    /** Return the index in _window of the end of the line beginning at
+     *  _pos: the index of its '\n', or the window's limit. */
+    private int lineEnd() {
+        int end;
+        for (end = _pos; end < _window.limit(); end += 1) {
+            if (_window.get(end) == '\n') {
+                break;
+            }
+        }
+        return end;
+    }
+
+    /** Return the command on the line from START to END in _window,
+     *  without its comment and surrounding whitespace. */
+    private String text(int start, int end) {
+        for (int i = start; i < end; i += 1) {
+            if (_window.get(i) == '#') {
+                end = i;
+                break;
+            }
+        }
+        while (start < end && isSpace(_window.get(start))) {
+            start += 1;
+        }
+        while (end > start && isSpace(_window.get(end - 1))) {
+            end -= 1;
+        }
+        if (start == end) {
+            return "";
+        }
+        if (end - start == MOVE_LENGTH && _window.get(start + 2) == '-') {
+            String move =
+                moveText(_window.get(start), _window.get(start + 1),
+                         _window.get(start + 3), _window.get(start + 4));
+            if (move != null) {
+                return move;
+            }
+        }
+        byte[] chars = new byte[end - start];
+        _window.get(start, chars);
+        return new String(chars, StandardCharsets.ISO_8859_1);
+    }
+
+    /** Map the part of my file beginning at OFFSET. */
+    private void map(long offset) throws IOException {
+        _base = offset;
+        _window = _channel.map(FileChannel.MapMode.READ_ONLY, offset,
+                               Math.min(_windowSize, _size - offset));
+        _pos = 0;
+    }
+
+    /** Return true iff C is whitespace. */
+    private static boolean isSpace(byte c) {
+        return c == ' ' || c == '\t' || c == '\r' || c == '\f';
+    }
+
+    /** Return the text of the move C0R0-C1R1, if those denote squares,
+     *  and otherwise null. */
+    private static String moveText(byte c0, byte r0, byte c1, byte r1) {
+        if (!isCol(c0) || !isRow(r0) || !isCol(c1) || !isRow(r1)) {
+            return null;
+        }
+        int sq0 = (c0 - 'a') * Board.SIDE + r0 - '1',
+            sq1 = (c1 - 'a') * Board.SIDE + r1 - '1';
+        return MOVE_TEXT[sq0 * Board.SIDE * Board.SIDE + sq1];
+    }
+
+    /** Return true iff C is a column letter. */
+    private static boolean isCol(byte c) {
+        return c >= 'a' && c < 'a' + Board.SIDE;
+    }
+
+    /** Return true iff C is a row number. */
+    private static boolean isRow(byte c) {
+        return c >= '1' && c < '1' + Board.SIDE;
+    }
+
+    /** Length of a move command. */
+    private static final int MOVE_LENGTH = 5;
+    /** The text of every command C0R0-C1R1 naming two squares, indexed
+     *  as in moveText. */
+    private static final String[] MOVE_TEXT;
+
+    static {
+        int n = Board.SIDE * Board.SIDE;
+        MOVE_TEXT = new String[n * n];
+        for (int sq0 = 0; sq0 < n; sq0 += 1) {
+            for (int sq1 = 0; sq1 < n; sq1 += 1) {
+                MOVE_TEXT[sq0 * n + sq1] = String.format(
+                    "%c%c-%c%c", 'a' + sq0 / Board.SIDE,
+                    '1' + sq0 % Board.SIDE, 'a' + sq1 / Board.SIDE,
+                    '1' + sq1 % Board.SIDE);
+            }
+        }
+    }
+
+    /** My file, or null once it has been read or I am closed. */
+    private FileChannel _channel;
+    /** Number of bytes mapped at once. */
+    private final int _windowSize;
+    /** Size of my file. */
+    private final long _size;
+    /** The mapped part of my file. */
+    private MappedByteBuffer _window;
+    /** Offset in my file of the start of _window. */
+    private long _base;
+    /** Index in _window of the next line. */
+    private int _pos;
+    /** Displays a prompt for each getLine, unless null. */
+    private final Reporter _prompter;
+}
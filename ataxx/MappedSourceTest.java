@@ -0,0 +1,99 @@
+package ataxx;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of MappedSource.
+ *  @author Peter Sorensen
+ */
+public class MappedSourceTest {
+
+    /** A script with comments, blank lines and DOS line ends. */
+    private static final String SCRIPT =
+        "# a game\n"
+        + "auto red\r\n"
+        + "\n"
+        + "  a7-b6   # red\n"
+        + "g7-g6\n"
+        + "a7-b6\n"
+        + "a7-z6\n"
+        + "dump";
+
+    /** Return all lines read from a MappedSource on a file containing
+     *  CONTENTS, mapping WINDOW bytes at a time. */
+    private static List<String> lines(String contents, int window)
+        throws IOException {
+        Path file = Files.createTempFile("ataxx", ".txt");
+        try {
+            Files.write(file, contents.getBytes(StandardCharsets.US_ASCII));
+            MappedSource source = new MappedSource(file, null, window);
+            List<String> result = new ArrayList<>();
+            for (String line = source.getLine("");
+                 line != null; line = source.getLine("")) {
+                result.add(line);
+            }
+            assertNull(source.getLine(""));
+            return result;
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test public void testLines() throws IOException {
+        List<String> lines = lines(SCRIPT, MappedSource.WINDOW);
+        assertEquals(List.of("", "auto red", "", "a7-b6", "g7-g6", "a7-b6",
+                             "a7-z6", "dump"), lines);
+        assertSame(lines.get(3), lines.get(5));
+    }
+
+    @Test public void testSmallWindows() throws IOException {
+        List<String> expected = lines(SCRIPT, MappedSource.WINDOW);
+        int longest = "  a7-b6   # red\n".length();
+        for (int window = longest; window <= SCRIPT.length(); window += 1) {
+            assertEquals("window " + window, expected,
+                         lines(SCRIPT, window));
+        }
+    }
+
+    @Test public void testClose() throws IOException {
+        Path file = Files.createTempFile("ataxx", ".txt");
+        try {
+            Files.write(file, SCRIPT.getBytes(StandardCharsets.US_ASCII));
+            boolean[] closed = new boolean[1];
+            CommandSources inputs = new CommandSources();
+            inputs.addSource(new CommandSource() {
+                @Override
+                public String getLine(String prompt) {
+                    return null;
+                }
+
+                @Override
+                public void close() {
+                    closed[0] = true;
+                }
+            });
+            MappedSource source = new MappedSource(file, null);
+            inputs.addSource(source);
+            assertEquals("auto red", inputs.getLine(""));
+            inputs.close();
+            assertNull(source.getLine(""));
+            assertNull(inputs.getLine(""));
+            assertTrue(closed[0]);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test public void testEmpty() throws IOException {
+        assertEquals(List.of(), lines("", MappedSource.WINDOW));
+        assertEquals(List.of(""), lines("\n", MappedSource.WINDOW));
+    }
+
+}
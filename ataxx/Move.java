@@ -44,6 +44,15 @@ class Move {
             [col1 - 'a' + 2][row1 - '1' + 2];
     }
 
+    /** A factory method that returns the Move from the square with
+     *  linearized index FROM to the one with linearized index TO (see
+     *  Board), or null if TO is more than 2 squares from FROM. */
+    static Move move(int from, int to) {
+        return
+            ALL_MOVES[from % EXTENDED_SIDE][from / EXTENDED_SIDE]
+            [to % EXTENDED_SIDE][to / EXTENDED_SIDE];
+    }
+
     /** Returns a pass. */
     static Move pass() {
         return PASS;
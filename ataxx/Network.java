@@ -0,0 +1,341 @@
+package ataxx;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import static ataxx.PieceColor.*;
+import static ataxx.GameException.error;
+
+/** The weights of a small neural network that evaluates positions, in
+ *  the style of the "efficiently updatable" networks of other game
+ *  engines.  The network sees the position from each side's point of
+ *  view ("perspective"): as the set of that side's pieces and the set of
+ *  its opponent's, with the board turned over for blue, so that each
+ *  side's starting corner is at a7.  Each perspective has INPUTS
+ *  features, one per (square, own or opposing piece).
+ *
+ *  The layers are:
+ *   1. For each perspective, an accumulator of hidden() 16-bit sums of
+ *      the input weights of its features that are present, plus a bias.
+ *      Since a move changes few squares, an Accumulator keeps these
+ *      sums up to date as moves are made and undone.
+ *   2. The accumulators of the side to move and of its opponent, each
+ *      clipped to 0 .. ACTIVATION_MAX and laid end to end, are
+ *      multiplied by 8-bit weights into l1() 32-bit sums plus biases,
+ *      which are shifted right by L1_SHIFT and clipped again.
+ *   3. These are multiplied by 8-bit weights into one sum, plus a bias,
+ *      which divided by outputScale() is the value of the position in
+ *      pieces for the side to move.
+ *
+ *  A network file contains (big-endian): the bytes of MAGIC, the ints
+ *  hidden(), l1() and outputScale(), then the input weights (shorts,
+ *  hidden() per feature, features of own pieces on squares 0-48 followed
+ *  by those of opposing pieces, numbering squares as for Board.mask),
+ *  the accumulator biases (hidden() shorts), the layer 2 weights
+ *  (2 * hidden() bytes for each of l1() sums), its biases (l1() ints),
+ *  the output weights (l1() bytes), and the output bias (an int).
+ *  Networks are immutable.
+ *  @author Peter Sorensen
+ */
+class Network {
+
+    /** Number of squares. */
+    static final int SQUARES = Board.SIDE * Board.SIDE;
+    /** Number of input features in each perspective. */
+    static final int INPUTS = 2 * SQUARES;
+    /** Largest value passed on by each layer. */
+    static final int ACTIVATION_MAX = 127;
+    /** Shift applied to the sums of layer 2. */
+    static final int L1_SHIFT = 6;
+    /** Start of a network file. */
+    static final byte[] MAGIC =
+        "ATAXXNET\u0001".getBytes(StandardCharsets.US_ASCII);
+    /** Number of accumulator sums in networks made by fromEvaluation. */
+    static final int DEFAULT_HIDDEN = 64;
+    /** Number of layer 2 sums in networks made by fromEvaluation. */
+    static final int DEFAULT_L1 = 16;
+
+    /** A network with HIDDEN accumulator sums per perspective, L1
+     *  second-layer sums and output divisor OUTPUTSCALE, whose weights
+     *  and biases are INPUT and INPUTBIAS, L1WEIGHTS and L1BIAS, and
+     *  OUTPUT and OUTPUTBIAS, laid out as in a network file.  The arrays
+     *  become mine. */
+    Network(int hidden, int l1, int outputScale, short[] input,
+            short[] inputBias, byte[] l1Weights, int[] l1Bias,
+            byte[] output, int outputBias) {
+        if (hidden <= 0 || hidden > MAX_HIDDEN || l1 <= 0 || l1 > MAX_L1
+            || outputScale <= 0 || input.length != INPUTS * hidden
+            || inputBias.length != hidden
+            || l1Weights.length != 2 * hidden * l1
+            || l1Bias.length != l1 || output.length != l1) {
+            throw new IllegalArgumentException("bad network shape");
+        }
+        _hidden = hidden;
+        _l1 = l1;
+        _outputScale = outputScale;
+        _input = input;
+        _inputBias = inputBias;
+        _l1Weights = l1Weights;
+        _l1Bias = l1Bias;
+        _output = output;
+        _outputBias = outputBias;
+        long h = ((long) hidden * MAX_L1 + l1) * 31 + outputScale;
+        for (int part : new int[] {
+                Arrays.hashCode(input), Arrays.hashCode(inputBias),
+                Arrays.hashCode(l1Weights), Arrays.hashCode(l1Bias),
+                Arrays.hashCode(output), outputBias }) {
+            h = h * Evaluation.FINGERPRINT_MULTIPLIER + part;
+        }
+        _fingerprint = h;
+    }
+
+    /** Return a network that computes the part of EVAL that depends
+     *  only on which pieces are on which squares (material, edges and
+     *  corners) plus the tempo term, as nearly as its precision
+     *  allows.  The other features of EVAL are ignored.  This is a
+     *  starting point for training, and gives the same values as EVAL
+     *  when EVAL counts pieces only.  EVAL must not give a piece on any
+     *  square negative value. */
+    static Network fromEvaluation(Evaluation eval) {
+        int hidden = DEFAULT_HIDDEN, l1 = DEFAULT_L1;
+        double[] values = new double[SQUARES];
+        double most = 0;
+        for (int sq = 0; sq < values.length; sq += 1) {
+            long bit = 1L << sq;
+            for (int k : PIECE_FEATURES) {
+                values[sq] += eval.weight(k)
+                    * Evaluation.feature(k, bit, 0, 0, true);
+            }
+            if (values[sq] < 0) {
+                throw new IllegalArgumentException("negative piece value");
+            }
+            most = Math.max(most, values[sq]);
+        }
+        int side = Board.SIDE;
+        int scale = most == 0 ? 1
+            : (int) Math.max(1, ACTIVATION_MAX / (side * most));
+        short[] input = new short[INPUTS * hidden];
+        byte[] l1Weights = new byte[2 * hidden * l1];
+        byte[] output = new byte[l1];
+        for (int sq = 0; sq < values.length; sq += 1) {
+            short w = (short) Math.round(values[sq] * scale);
+            int row = sq / side;
+            input[sq * hidden + row] = w;
+            input[(SQUARES + sq) * hidden + side + row] = w;
+        }
+        for (int i = 0; i < 2 * side; i += 1) {
+            l1Weights[i * 2 * hidden + i] = 1 << L1_SHIFT;
+            output[i] = (byte) (i < side ? 1 : -1);
+        }
+        int tempo =
+            (int) Math.round(eval.weight(Evaluation.TEMPO) * scale);
+        return new Network(hidden, l1, scale, input, new short[hidden],
+                           l1Weights, new int[l1], output, tempo);
+    }
+
+    /** Return the network in FILE.  Throws a GameException if it is not
+     *  a network file. */
+    static Network read(Path file) throws IOException {
+        try (DataInputStream in =
+             new DataInputStream(new BufferedInputStream(
+                 Files.newInputStream(file)))) {
+            byte[] magic = new byte[MAGIC.length];
+            in.readFully(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw error("%s is not a network file", file);
+            }
+            int hidden = in.readInt(), l1 = in.readInt(),
+                scale = in.readInt();
+            if (hidden <= 0 || hidden > MAX_HIDDEN || l1 <= 0 || l1 > MAX_L1
+                || scale <= 0) {
+                throw error("%s: bad network shape", file);
+            }
+            short[] input = new short[INPUTS * hidden];
+            short[] inputBias = new short[hidden];
+            byte[] l1Weights = new byte[2 * hidden * l1];
+            int[] l1Bias = new int[l1];
+            byte[] output = new byte[l1];
+            for (int i = 0; i < input.length; i += 1) {
+                input[i] = in.readShort();
+            }
+            for (int i = 0; i < hidden; i += 1) {
+                inputBias[i] = in.readShort();
+            }
+            in.readFully(l1Weights);
+            for (int i = 0; i < l1; i += 1) {
+                l1Bias[i] = in.readInt();
+            }
+            in.readFully(output);
+            int outputBias = in.readInt();
+            if (in.read() != -1) {
+                throw error("%s: extra data after network", file);
+            }
+            return new Network(hidden, l1, scale, input, inputBias,
+                               l1Weights, l1Bias, output, outputBias);
+        } catch (EOFException excp) {
+            throw error("%s: network file is truncated", file);
+        }
+    }
+
+    /** Write me to FILE. */
+    void write(Path file) throws IOException {
+        try (DataOutputStream out =
+             new DataOutputStream(new BufferedOutputStream(
+                 Files.newOutputStream(file)))) {
+            out.write(MAGIC);
+            out.writeInt(_hidden);
+            out.writeInt(_l1);
+            out.writeInt(_outputScale);
+            for (short w : _input) {
+                out.writeShort(w);
+            }
+            for (short w : _inputBias) {
+                out.writeShort(w);
+            }
+            out.write(_l1Weights);
+            for (int w : _l1Bias) {
+                out.writeInt(w);
+            }
+            out.write(_output);
+            out.writeInt(_outputBias);
+        }
+    }
+
+    /** Return the number of accumulator sums per perspective. */
+    int hidden() {
+        return _hidden;
+    }
+
+    /** Return the number of second-layer sums. */
+    int l1() {
+        return _l1;
+    }
+
+    /** Return the divisor that converts output sums to pieces. */
+    int outputScale() {
+        return _outputScale;
+    }
+
+    /** Return a hash of my shape and weights, which differs (nearly
+     *  always) between networks that evaluate differently. */
+    long fingerprint() {
+        return _fingerprint;
+    }
+
+    /** Return the input feature, in the perspective of side P, of a
+     *  piece of color C on the square numbered SQ as for Board.mask. */
+    static int feature(PieceColor p, PieceColor c, int sq) {
+        if (p == BLUE) {
+            int side = Board.SIDE;
+            sq = (side - 1 - sq / side) * side + sq % side;
+        }
+        return c == p ? sq : SQUARES + sq;
+    }
+
+    /** Add the input weights of feature F, times SIGN (1 or -1), to
+     *  the sums in ACC. */
+    void addFeature(short[] acc, int f, int sign) {
+        int base = f * _hidden;
+        short[] input = _input;
+        if (sign > 0) {
+            for (int j = 0; j < acc.length; j += 1) {
+                acc[j] += input[base + j];
+            }
+        } else {
+            for (int j = 0; j < acc.length; j += 1) {
+                acc[j] -= input[base + j];
+            }
+        }
+    }
+
+    /** Set ACC to the accumulator biases. */
+    void clear(short[] acc) {
+        System.arraycopy(_inputBias, 0, acc, 0, _hidden);
+    }
+
+    /** Return the value in pieces, for the side to move, of a position
+     *  whose accumulators for the side to move and its opponent are US
+     *  and THEM, using ACTIVE (of length 2 * hidden()) as scratch. */
+    int evaluate(short[] us, short[] them, byte[] active) {
+        int hidden = _hidden;
+        for (int j = 0; j < hidden; j += 1) {
+            active[j] = (byte) Math.min(Math.max(us[j], 0), ACTIVATION_MAX);
+            active[hidden + j] =
+                (byte) Math.min(Math.max(them[j], 0), ACTIVATION_MAX);
+        }
+        byte[] weights = _l1Weights;
+        int width = 2 * hidden;
+        int out = _outputBias;
+        for (int i = 0, base = 0; i < _l1; i += 1, base += width) {
+            int sum = 0;
+            for (int j = 0; j < width; j += 1) {
+                sum += weights[base + j] * active[j];
+            }
+            int h = (sum + _l1Bias[i]) >> L1_SHIFT;
+            out += _output[i] * Math.min(Math.max(h, 0), ACTIVATION_MAX);
+        }
+        return Math.floorDiv(out + _outputScale / 2, _outputScale);
+    }
+
+    /** Write a network made by fromEvaluation from the evaluation weights
+     *  in file ARGS[0] to file ARGS[1]. */
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.err.println("Usage: java ataxx.Network WEIGHTS OUT");
+            System.exit(1);
+        }
+        try {
+            fromEvaluation(Evaluation.read(Paths.get(args[0])))
+                .write(Paths.get(args[1]));
+        } catch (IOException | InvalidPathException excp) {
+            System.err.printf("I/O error: %s%n", excp.getMessage());
+            System.exit(1);
+        } catch (GameException | IllegalArgumentException excp) {
+            System.err.println(excp.getMessage());
+            System.exit(1);
+        }
+        System.exit(0);
+    }
+
+    /** The features of an Evaluation that depend only on which pieces
+     *  are on which squares. */
+    private static final int[] PIECE_FEATURES = {
+        Evaluation.MATERIAL, Evaluation.EDGE, Evaluation.CORNER
+    };
+
+    /** Largest number of accumulator sums accepted. */
+    private static final int MAX_HIDDEN = 1024;
+    /** Largest number of layer 2 sums accepted. */
+    private static final int MAX_L1 = 256;
+
+    /** Accumulator sums per perspective. */
+    private final int _hidden;
+    /** Layer 2 sums. */
+    private final int _l1;
+    /** Divisor of the output. */
+    private final int _outputScale;
+    /** Input weights. */
+    private final short[] _input;
+    /** Accumulator biases. */
+    private final short[] _inputBias;
+    /** Layer 2 weights. */
+    private final byte[] _l1Weights;
+    /** Layer 2 biases. */
+    private final int[] _l1Bias;
+    /** Output weights. */
+    private final byte[] _output;
+    /** Output bias. */
+    private final int _outputBias;
+    /** Value of fingerprint(). */
+    private final long _fingerprint;
+}
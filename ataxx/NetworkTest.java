@@ -0,0 +1,128 @@
+package ataxx;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of Network and Accumulator.
+ *  @author Peter Sorensen
+ */
+public class NetworkTest {
+
+    /** Return a network with HIDDEN accumulator sums and L1 second-layer
+     *  sums, with weights chosen using RANDOM. */
+    private static Network randomNetwork(int hidden, int l1,
+                                         Random random) {
+        short[] input = new short[Network.INPUTS * hidden];
+        short[] inputBias = new short[hidden];
+        byte[] l1Weights = new byte[2 * hidden * l1];
+        int[] l1Bias = new int[l1];
+        byte[] output = new byte[l1];
+        for (int i = 0; i < input.length; i += 1) {
+            input[i] = (short) (random.nextInt(21) - 10);
+        }
+        for (int i = 0; i < hidden; i += 1) {
+            inputBias[i] = (short) random.nextInt(64);
+        }
+        random.nextBytes(l1Weights);
+        for (int i = 0; i < l1; i += 1) {
+            l1Bias[i] = random.nextInt(1000) - 500;
+        }
+        random.nextBytes(output);
+        return new Network(hidden, l1, 1 + random.nextInt(100), input,
+                           inputBias, l1Weights, l1Bias, output,
+                           random.nextInt(1000) - 500);
+    }
+
+    /** Play random games from the initial position, making and undoing
+     *  moves chosen using RANDOM with an accumulator for NET attached,
+     *  and check after each change that its score is that of a fresh
+     *  accumulator and, if MATERIAL, that it counts pieces. */
+    private static void checkGames(Network net, boolean material,
+                                   Random random) {
+        Move[] moves = new Move[Board.MAX_MOVES];
+        Accumulator fresh = new Accumulator(net);
+        for (int game = 0; game < 20; game += 1) {
+            Board board = new Board();
+            board.setBlock('c', '3');
+            Accumulator acc = new Accumulator(net);
+            acc.refresh(board);
+            board.setAccumulator(acc);
+            while (!board.gameOver()) {
+                int n = board.legalMoves(moves);
+                board.makeMove(n == 0 ? Move.pass()
+                               : moves[random.nextInt(n)]);
+                if (random.nextInt(4) == 0 && board.numMoves() > 1) {
+                    board.undo();
+                }
+                PieceColor who = board.whoseMove();
+                fresh.refresh(board);
+                assertEquals(fresh.score(who), acc.score(who));
+                if (material) {
+                    assertEquals(board.redPieces() - board.bluePieces(),
+                                 acc.score(who));
+                }
+            }
+        }
+    }
+
+    @Test public void testMaterial() {
+        checkGames(Network.fromEvaluation(Evaluation.MATERIAL_ONLY), true,
+                   new Random(1));
+    }
+
+    @Test public void testIncremental() {
+        Random random = new Random(2);
+        checkGames(randomNetwork(32, 8, random), false, random);
+    }
+
+    @Test public void testPerspective() {
+        Network net = randomNetwork(16, 4, new Random(3));
+        Board board = new Board(), mirror = new Board();
+        board.setPosition("r4bb/2r4/1X3X1/7/1X3X1/7/b6 r 0 0");
+        mirror.setPosition("r6/7/1X3X1/7/1X3X1/2b4/b4rr b 0 0");
+        Accumulator acc1 = new Accumulator(net),
+            acc2 = new Accumulator(net);
+        acc1.refresh(board);
+        acc2.refresh(mirror);
+        assertEquals(acc1.score(board.whoseMove()),
+                     -acc2.score(mirror.whoseMove()));
+    }
+
+    @Test public void testReadWrite() throws IOException {
+        Network net = randomNetwork(16, 4, new Random(4));
+        Path file = Files.createTempFile("ataxx", ".net");
+        try {
+            net.write(file);
+            Network copy = Network.read(file);
+            Board board = new Board();
+            Accumulator acc1 = new Accumulator(net),
+                acc2 = new Accumulator(copy);
+            acc1.refresh(board);
+            acc2.refresh(board);
+            assertEquals(acc1.score(board.whoseMove()),
+                         acc2.score(board.whoseMove()));
+            Files.write(file, "ATAXXNET\u0001\0\0".getBytes());
+            try {
+                Network.read(file);
+                fail("accepted truncated network");
+            } catch (GameException excp) {
+                /* Expected. */
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test public void testSearch() {
+        SearchParams params = new SearchParams();
+        long nodes = Bench.run(3, params, line -> { });
+        params.setNetwork(Network.fromEvaluation(Evaluation.MATERIAL_ONLY));
+        assertEquals(nodes, Bench.run(3, params, line -> { }));
+    }
+
+}
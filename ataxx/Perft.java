@@ -0,0 +1,257 @@
+package ataxx;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static ataxx.GameException.error;
+
+/** Move-path enumeration ("perft"): counts the positions reachable in
+ *  exactly a given number of moves, for checking move generation and
+ *  Board.makeMove/undo and for measuring their speed.  Extends to the
+ *  same square count once (see Board.legalMoves); a pass counts as a
+ *  move when it is the only legal one, and positions in which the game
+ *  is over have no moves.
+ *  @author Peter Sorensen
+ */
+class Perft {
+
+    /** A counter that makes and undoes moves on BOARD. */
+    Perft(Board board) {
+        this(board, new AtomicBoolean());
+    }
+
+    /** A counter that makes and undoes moves on BOARD and gives up
+     *  counting once STOP is set. */
+    Perft(Board board, AtomicBoolean stop) {
+        _board = board;
+        _board.suspendNotifications();
+        _stop = stop;
+    }
+
+    /** Return the number of move sequences of length DEPTH from my
+     *  board's position.  The last ply is counted without making its
+     *  moves.  The result is meaningless if my stop flag is set
+     *  meanwhile. */
+    long count(int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+        if (_board.gameOver() || _stop.get()) {
+            return 0;
+        }
+        Move[] moves = moveBuffer(depth);
+        int n = _board.legalMoves(moves);
+        if (depth == 1) {
+            return n == 0 ? 1 : n;
+        }
+        if (n == 0) {
+            _board.makeMove(Move.pass());
+            long result = count(depth - 1);
+            _board.undo();
+            return result;
+        }
+        long total;
+        total = 0;
+        for (int i = 0; i < n; i += 1) {
+            _board.makeMove(moves[i]);
+            total += count(depth - 1);
+            _board.undo();
+        }
+        return total;
+    }
+
+    /** Return the root moves from BOARD's position, each paired with the
+     *  number of move sequences of length DEPTH that begin with it,
+     *  counted using THREADS threads, each of which restores its own
+     *  board from a Snapshot of BOARD for each root move.  BOARD is not
+     *  modified. */
+    static List<Division> divide(Board board, int depth, int threads) {
+        return divide(board, depth, threads, new AtomicBoolean());
+    }
+
+    /** As for divide(BOARD, DEPTH, THREADS), but giving up once STOP is
+     *  set, in which case the counts are meaningless. */
+    static List<Division> divide(Board board, int depth, int threads,
+                                 AtomicBoolean stop) {
+        List<Division> result = new ArrayList<>();
+        if (depth == 0 || board.gameOver()) {
+            return result;
+        }
+        Move[] moves = new Move[Board.MAX_MOVES];
+        int n = board.legalMoves(moves);
+        if (n == 0) {
+            moves[0] = Move.pass();
+            n = 1;
+        }
+        Snapshot root = new Snapshot();
+        board.save(root);
+        int numMoves = n;
+        long[] counts = new long[n];
+        AtomicInteger next = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Void>> done = new ArrayList<>();
+            for (int t = 0; t < Math.min(threads, n); t += 1) {
+                done.add(workers.submit(() -> {
+                    Board b = new Board();
+                    Perft counter = new Perft(b, stop);
+                    for (int i = next.getAndIncrement(); i < numMoves;
+                         i = next.getAndIncrement()) {
+                        b.restore(root);
+                        b.makeMove(moves[i]);
+                        counts[i] = counter.count(depth - 1);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<Void> worker : done) {
+                worker.get();
+            }
+            for (int i = 0; i < n; i += 1) {
+                result.add(new Division(moves[i], counts[i]));
+            }
+        } catch (InterruptedException | ExecutionException excp) {
+            throw error("perft failed: %s", excp);
+        } finally {
+            workers.shutdownNow();
+        }
+        return result;
+    }
+
+    /** Return the total count in DIVISIONS. */
+    static long total(List<Division> divisions) {
+        long total;
+        total = 0;
+        for (Division d : divisions) {
+            total += d.count();
+        }
+        return total;
+    }
+
+    /** A root move and the number of move sequences beginning with it. */
+    static class Division {
+
+        /** A division for MOVE with COUNT sequences. */
+        Division(Move move, long count) {
+            _move = move;
+            _count = count;
+        }
+
+        /** Return my root move. */
+        Move move() {
+            return _move;
+        }
+
+        /** Return my number of move sequences. */
+        long count() {
+            return _count;
+        }
+
+        @Override
+        public String toString() {
+            if (_move.isPass()) {
+                return "-: " + _count;
+            }
+            return String.format("%c%c-%c%c: %d", _move.col0(),
+                                 _move.row0(), _move.col1(), _move.row1(),
+                                 _count);
+        }
+
+        /** Root move. */
+        private final Move _move;
+        /** Number of sequences. */
+        private final long _count;
+    }
+
+    /** Print divided perft counts.  ARGS are DEPTH, optionally followed
+     *  by a position in compact notation (see Board.position()) and by
+     *  '--threads N'.  The position defaults to the initial one. */
+    public static void main(String[] args) {
+        int threads = Runtime.getRuntime().availableProcessors();
+        int depth = -1;
+        StringBuilder position = new StringBuilder();
+        try {
+            for (int i = 0; i < args.length; i += 1) {
+                if (args[i].equals("--threads") && i + 1 < args.length) {
+                    i += 1;
+                    threads = Integer.parseInt(args[i]);
+                } else if (depth < 0) {
+                    depth = Integer.parseInt(args[i]);
+                } else {
+                    position.append(position.length() == 0 ? "" : " ")
+                        .append(args[i]);
+                }
+            }
+        } catch (NumberFormatException excp) {
+            depth = -1;
+        }
+        if (depth < 0 || threads <= 0) {
+            System.err.println("Usage: java ataxx.Perft DEPTH [POSITION]"
+                               + " [--threads N]");
+            System.exit(1);
+        }
+        Board board = new Board();
+        try {
+            if (position.length() > 0) {
+                board.setPosition(position);
+            }
+        } catch (GameException excp) {
+            System.err.println(excp.getMessage());
+            System.exit(1);
+        }
+        TextReporter output = new TextReporter();
+        report(board, depth, threads, line -> output.moveMsg("%s", line),
+               new AtomicBoolean());
+        output.flush();
+    }
+
+    /** Count move sequences of length DEPTH from BOARD using THREADS
+     *  threads and send the divided counts, total and speed as lines to
+     *  OUTPUT.  If STOP is set meanwhile, give up, send nothing, and
+     *  return false; otherwise return true. */
+    static boolean report(Board board, int depth, int threads,
+                          Consumer<String> output, AtomicBoolean stop) {
+        long start = System.nanoTime();
+        List<Division> divisions = divide(board, depth, threads, stop);
+        if (stop.get()) {
+            return false;
+        }
+        long total = depth == 0 ? 1 : total(divisions);
+        double secs = Math.max(System.nanoTime() - start, 1) * 1e-9;
+        for (Division d : divisions) {
+            output.accept(d.toString());
+        }
+        output.accept(String.format("Nodes: %d  Time: %.3f s"
+                                    + "  (%.0f nodes/s)",
+                                    total, secs, total / secs));
+        return true;
+    }
+
+    /** Return the array used to hold the moves generated at DEPTH. */
+    private Move[] moveBuffer(int depth) {
+        if (depth >= _moveBuffers.length) {
+            Move[][] bigger = new Move[depth + 1][];
+            System.arraycopy(_moveBuffers, 0, bigger, 0,
+                             _moveBuffers.length);
+            _moveBuffers = bigger;
+        }
+        if (_moveBuffers[depth] == null) {
+            _moveBuffers[depth] = new Move[Board.MAX_MOVES];
+        }
+        return _moveBuffers[depth];
+    }
+
+    /** The board on which I make moves. */
+    private final Board _board;
+    /** Set when counting should stop. */
+    private final AtomicBoolean _stop;
+    /** Move lists for each remaining depth. */
+    private Move[][] _moveBuffers = new Move[0][];
+}
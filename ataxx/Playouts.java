@@ -0,0 +1,314 @@
+package ataxx;
+
+import java.util.Arrays;
+
+import static ataxx.PieceColor.*;
+
+/** A batch of independent random games ("playouts"), played to the end
+ *  in lockstep.  Each game makes a move chosen uniformly at random from
+ *  its legal moves as listed by Board.legalMoves (one extend to each
+ *  square an extend reaches, and every jump), passing when it must, and
+ *  ends when Board.gameOver would say it does.
+ *
+ *  Positions are held as bit masks (squares numbered as for Board.mask),
+ *  one array per kind of mask with one element per game ("structure of
+ *  arrays"): the pieces of the side to move, those of its opponent, and
+ *  the blocks.  Each step first computes the squares reachable by each
+ *  game's side to move in one pass over the whole batch of simple mask
+ *  arithmetic (which the JIT compiler can turn into vector
+ *  instructions), and then chooses and makes each game's move.
+ *  @author Peter Sorensen
+ */
+class Playouts {
+
+    /** A batch of CAPACITY games, all initially over. */
+    Playouts(int capacity) {
+        _mine = new long[capacity];
+        _theirs = new long[capacity];
+        _blocks = new long[capacity];
+        _extends = new long[capacity];
+        _reach = new long[capacity];
+        _jumps = new int[capacity];
+        _redToMove = new boolean[capacity];
+        _done = new boolean[capacity];
+        _random = new long[capacity];
+        Arrays.fill(_done, true);
+    }
+
+    /** Return the number of games in the batch. */
+    int capacity() {
+        return _mine.length;
+    }
+
+    /** Set game K to the position on BOARD. */
+    void setup(int k, Board board) {
+        PieceColor who = board.whoseMove();
+        _mine[k] = board.mask(who);
+        _theirs[k] = board.mask(who.opposite());
+        _blocks[k] = board.mask(BLOCKED);
+        _jumps[k] = board.numJumps();
+        _redToMove[k] = who == RED;
+        _done[k] = board.gameOver();
+    }
+
+    /** Set all games to the position on BOARD. */
+    void fill(Board board) {
+        setup(0, board);
+        for (int k = 1; k < capacity(); k += 1) {
+            _mine[k] = _mine[0];
+            _theirs[k] = _theirs[0];
+            _blocks[k] = _blocks[0];
+            _jumps[k] = _jumps[0];
+            _redToMove[k] = _redToMove[0];
+            _done[k] = _done[0];
+        }
+    }
+
+    /** Seed the random choices of game K with a function of SEED and K,
+     *  for all K. */
+    void seed(long seed) {
+        for (int k = 0; k < capacity(); k += 1) {
+            long z = seed + (k + 1) * GOLDEN_GAMMA;
+            z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+            z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+            z ^= z >>> 31;
+            _random[k] = z == 0 ? GOLDEN_GAMMA : z;
+        }
+    }
+
+    /** Play all games to the end, with random choices seeded by SEED. */
+    void play(long seed) {
+        seed(seed);
+        while (step()) {
+            continue;
+        }
+    }
+
+    /** Make one move (possibly a pass) in each game that is not over.
+     *  Return true iff some game is still not over afterwards. */
+    boolean step() {
+        int n = capacity();
+        long[] mine = _mine, theirs = _theirs, blocks = _blocks;
+        long[] ext = _extends, reach = _reach;
+        for (int k = 0; k < n; k += 1) {
+            long empty = ALL & ~(mine[k] | theirs[k] | blocks[k]);
+            long one = grow(mine[k]) & ALL;
+            ext[k] = one & empty;
+            reach[k] = grow(one) & empty;
+        }
+        boolean more = false;
+        for (int k = 0; k < n; k += 1) {
+            if (!_done[k]) {
+                move(k);
+                more |= !_done[k];
+            }
+        }
+        return more;
+    }
+
+    /** Make a random move in game K, given the squares its side to move
+     *  can reach by extending and by extending or jumping. */
+    private void move(int k) {
+        long mine = _mine[k], theirs = _theirs[k];
+        long empty = ALL & ~(mine | theirs | _blocks[k]);
+        if (_reach[k] == 0) {
+            _mine[k] = theirs;
+            _theirs[k] = mine;
+            _redToMove[k] = !_redToMove[k];
+            return;
+        }
+        long ext = _extends[k];
+        int extendCount = Long.bitCount(ext);
+        int jumpCount = 0;
+        for (long m = mine; m != 0; m &= m - 1) {
+            int from = Long.numberOfTrailingZeros(m);
+            jumpCount += Long.bitCount(RING[from] & empty);
+        }
+        int choice = nextInt(k, extendCount + jumpCount);
+        int to;
+        if (choice < extendCount) {
+            to = nthBit(ext, choice);
+            _jumps[k] = 0;
+        } else {
+            choice -= extendCount;
+            int from = -1;
+            for (long m = mine; m != 0; m &= m - 1) {
+                from = Long.numberOfTrailingZeros(m);
+                int c = Long.bitCount(RING[from] & empty);
+                if (choice < c) {
+                    break;
+                }
+                choice -= c;
+            }
+            to = nthBit(RING[from] & empty, choice);
+            mine &= ~(1L << from);
+            _jumps[k] += 1;
+        }
+        long captured = NEIGHBORS[to] & theirs;
+        mine |= 1L << to | captured;
+        theirs &= ~captured;
+        _mine[k] = theirs;
+        _theirs[k] = mine;
+        _redToMove[k] = !_redToMove[k];
+        empty = ALL & ~(mine | theirs | _blocks[k]);
+        _done[k] = theirs == 0 || _jumps[k] >= Board.JUMP_LIMIT
+            || Long.bitCount(mine | theirs) == SQUARES
+            || (grow(grow(mine | theirs)) & empty) == 0;
+    }
+
+    /** Return true iff game K is over. */
+    boolean done(int k) {
+        return _done[k];
+    }
+
+    /** Return the side to move in game K. */
+    PieceColor whoseMove(int k) {
+        return _redToMove[k] ? RED : BLUE;
+    }
+
+    /** Return the mask (as for Board.mask) of the squares containing
+     *  COLOR in game K. */
+    long mask(int k, PieceColor color) {
+        switch (color) {
+        case RED:
+            return _redToMove[k] ? _mine[k] : _theirs[k];
+        case BLUE:
+            return _redToMove[k] ? _theirs[k] : _mine[k];
+        case BLOCKED:
+            return _blocks[k];
+        default:
+            return ALL & ~(_mine[k] | _theirs[k] | _blocks[k]);
+        }
+    }
+
+    /** Return the result of game K, which should be over: 1 if red has
+     *  more pieces, -1 if blue has, and 0 otherwise. */
+    int result(int k) {
+        return Integer.signum(Long.bitCount(mask(k, RED))
+                              - Long.bitCount(mask(k, BLUE)));
+    }
+
+    /** Return the number of games whose result is RESULT. */
+    int count(int result) {
+        int n = 0;
+        for (int k = 0; k < capacity(); k += 1) {
+            if (result(k) == result) {
+                n += 1;
+            }
+        }
+        return n;
+    }
+
+    /** Return a random integer in 0 .. N-1 (N > 0) from game K's
+     *  generator. */
+    private int nextInt(int k, int n) {
+        long x = _random[k];
+        x ^= x >>> 12;
+        x ^= x << 25;
+        x ^= x >>> 27;
+        _random[k] = x;
+        return (int) (((x * 0x2545f4914f6cdd1dL >>> 32) * n) >>> 32);
+    }
+
+    /** Return the number of the Nth (from 0) lowest set bit of MASK. */
+    private static int nthBit(long mask, int n) {
+        for (; n > 0; n -= 1) {
+            mask &= mask - 1;
+        }
+        return Long.numberOfTrailingZeros(mask);
+    }
+
+    /** Return MASK together with all squares adjacent to its squares,
+     *  possibly including bits outside ALL. */
+    private static long grow(long mask) {
+        long row = (mask | mask << 1 & ~FILE_A | mask >>> 1 & ~FILE_G) & ALL;
+        return row | row << SIDE | row >>> SIDE;
+    }
+
+    /** Run playouts from the initial position, or the position given by
+     *  ARGS[1..] (see Board.setPosition), in batches, for about a number
+     *  of seconds given by ARGS[0] (default 5), and print the results
+     *  and the number per second. */
+    public static void main(String[] args) {
+        double seconds = DEFAULT_SECONDS;
+        Board board = new Board();
+        try {
+            if (args.length > 0) {
+                seconds = Double.parseDouble(args[0]);
+            }
+            if (args.length > 1) {
+                board.setPosition(String.join(" ", Arrays.copyOfRange(args, 1,
+                                                                args.length)));
+            }
+        } catch (NumberFormatException | GameException excp) {
+            System.err.println("Usage: java ataxx.Playouts [SECONDS]"
+                               + " [POSITION]");
+            System.exit(1);
+        }
+        Playouts batch = new Playouts(BATCH);
+        long games, red, blue, start = System.nanoTime(), time;
+        games = red = blue = 0;
+        do {
+            batch.fill(board);
+            batch.play(games);
+            games += BATCH;
+            red += batch.count(1);
+            blue += batch.count(-1);
+            time = System.nanoTime() - start;
+        } while (time < seconds * 1e9);
+        System.out.printf("Playouts: %d  Red wins: %d  Blue wins: %d"
+                          + "  Draws: %d%nPlayouts/second: %.0f%n",
+                          games, red, blue, games - red - blue,
+                          games / (time / 1e9));
+    }
+
+    /** Number of games in each batch run by main. */
+    private static final int BATCH = 1024;
+    /** Default duration of main's run (seconds). */
+    private static final double DEFAULT_SECONDS = 5;
+
+    /** Number of squares on a side. */
+    private static final int SIDE = Board.SIDE;
+    /** Number of squares. */
+    private static final int SQUARES = SIDE * SIDE;
+    /** All squares. */
+    private static final long ALL = (1L << SQUARES) - 1;
+    /** Squares in column a. */
+    private static final long FILE_A = ALL / ((1L << SIDE) - 1);
+    /** Squares in column g. */
+    private static final long FILE_G = FILE_A << (SIDE - 1);
+    /** Increment of the seeds of successive games. */
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    /** NEIGHBORS[K] is the mask of the squares adjacent to square K. */
+    private static final long[] NEIGHBORS = new long[SQUARES];
+    /** RING[K] is the mask of the squares a jump from square K. */
+    private static final long[] RING = new long[SQUARES];
+
+    static {
+        for (int k = 0; k < SQUARES; k += 1) {
+            long one = grow(1L << k) & ALL;
+            NEIGHBORS[k] = one & ~(1L << k);
+            RING[k] = grow(one) & ALL & ~one;
+        }
+    }
+
+    /** Pieces of the side to move in each game. */
+    private final long[] _mine;
+    /** Pieces of the other side in each game. */
+    private final long[] _theirs;
+    /** Blocks in each game. */
+    private final long[] _blocks;
+    /** Squares reachable by an extend in each game, during step. */
+    private final long[] _extends;
+    /** Squares reachable by any move in each game, during step. */
+    private final long[] _reach;
+    /** Number of consecutive jumps in each game. */
+    private final int[] _jumps;
+    /** Whether red is to move in each game. */
+    private final boolean[] _redToMove;
+    /** Whether each game is over. */
+    private final boolean[] _done;
+    /** State of each game's random number generator. */
+    private final long[] _random;
+}
@@ -0,0 +1,125 @@
+package ataxx;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import static ataxx.PieceColor.*;
+
+/** Tests of Playouts.
+ *  @author Peter Sorensen
+ */
+public class PlayoutsTest {
+
+    /** Number of games in each batch. */
+    private static final int GAMES = 64;
+
+    /** Return true iff game K of BATCH has the same position as BOARD. */
+    private static boolean same(Playouts batch, int k, Board board) {
+        return batch.whoseMove(k) == board.whoseMove()
+            && batch.mask(k, RED) == board.mask(RED)
+            && batch.mask(k, BLUE) == board.mask(BLUE)
+            && batch.mask(k, BLOCKED) == board.mask(BLOCKED);
+    }
+
+    /** Play a batch of games from positions reached by a few random
+     *  moves, following each on a Board, and check that every step of
+     *  each game is a legal move and that the games end exactly when
+     *  the Boards' games do. */
+    @Test public void testGames() {
+        Random random = new Random(5);
+        Move[] moves = new Move[Board.MAX_MOVES];
+        Playouts batch = new Playouts(GAMES);
+        Board[] boards = new Board[GAMES];
+        for (int k = 0; k < GAMES; k += 1) {
+            boards[k] = new Board();
+            if (k % 2 == 0) {
+                boards[k].setBlock('c', '3');
+            }
+            for (int i = random.nextInt(10); i > 0; i -= 1) {
+                int n = boards[k].legalMoves(moves);
+                boards[k].makeMove(n == 0 ? Move.pass()
+                                   : moves[random.nextInt(n)]);
+            }
+            batch.setup(k, boards[k]);
+        }
+        batch.seed(7);
+        boolean more = true;
+        while (more) {
+            boolean[] wasDone = new boolean[GAMES];
+            for (int k = 0; k < GAMES; k += 1) {
+                wasDone[k] = batch.done(k);
+            }
+            more = batch.step();
+            for (int k = 0; k < GAMES; k += 1) {
+                Board board = boards[k];
+                if (wasDone[k]) {
+                    assertTrue(board.gameOver());
+                    continue;
+                }
+                int n = board.legalMoves(moves);
+                if (n == 0) {
+                    moves[n++] = Move.pass();
+                }
+                boolean found = false;
+                for (int i = 0; i < n && !found; i += 1) {
+                    board.makeMove(moves[i]);
+                    found = same(batch, k, board);
+                    if (!found) {
+                        board.undo();
+                    }
+                }
+                assertTrue("illegal move in playout", found
+                           || batch.done(k) && board.gameOver()
+                              && same(batch, k, board));
+                assertEquals(board.gameOver(), batch.done(k));
+            }
+        }
+        for (int k = 0; k < GAMES; k += 1) {
+            assertTrue(batch.done(k));
+            assertEquals(Integer.signum(boards[k].redPieces()
+                                        - boards[k].bluePieces()),
+                         batch.result(k));
+        }
+    }
+
+    /** The first moves of playouts from the initial position should be
+     *  about equally distributed among its 16 moves. */
+    @Test public void testUniform() {
+        int games = 16 * 500;
+        Playouts batch = new Playouts(games);
+        batch.fill(new Board());
+        batch.seed(11);
+        batch.step();
+        Map<Long, Integer> counts = new HashMap<>();
+        for (int k = 0; k < games; k += 1) {
+            counts.merge(batch.mask(k, RED) * 31 + batch.mask(k, BLUE), 1,
+                         Integer::sum);
+        }
+        assertEquals(16, counts.size());
+        for (int c : counts.values()) {
+            assertTrue(c > 400 && c < 600);
+        }
+    }
+
+    @Test public void testPlay() {
+        Playouts batch = new Playouts(GAMES);
+        batch.fill(new Board());
+        batch.play(3);
+        assertEquals(GAMES, batch.count(1) + batch.count(0)
+                     + batch.count(-1));
+        for (int k = 0; k < GAMES; k += 1) {
+            assertTrue(batch.done(k));
+        }
+        Playouts again = new Playouts(GAMES);
+        again.fill(new Board());
+        again.play(3);
+        for (int k = 0; k < GAMES; k += 1) {
+            assertEquals(batch.mask(k, RED), again.mask(k, RED));
+        }
+    }
+
+}
@@ -9,11 +9,11 @@ import java.io.IOException;
  */
 class ReaderSource implements CommandSource {
 
-    /** A new source that reads from INPUT and prints prompts
-     *  if SHOULDPROMPT. */
-    ReaderSource(Reader input, boolean shouldPrompt) {
+    /** A new source that reads from INPUT and displays prompts
+     *  using PROMPTER, if it is not null. */
+    ReaderSource(Reader input, Reporter prompter) {
         _input = new BufferedReader(input);
-        _shouldPrompt = shouldPrompt;
+        _prompter = prompter;
     }
 
     @Override
@@ -23,9 +23,11 @@ class ReaderSource implements CommandSource {
         }
 
         try {
-            if (_shouldPrompt) {
-                System.out.print(prompt);
-                System.out.flush();
+            if (_prompter != null) {
+                _prompter.prompt(prompt);
+                if (!_input.ready()) {
+                    _prompter.flush();
+                }
             }
             String result = _input.readLine();
             if (result == null) {
@@ -39,7 +41,8 @@ class ReaderSource implements CommandSource {
 
     /** Input source. */
     private BufferedReader _input;
-    /** True if we request a prompt for each getLine. */
-    private boolean _shouldPrompt;
+    /** Displays a prompt for each getLine, unless null.  Output is
+     *  flushed only if the read might wait for input. */
+    private Reporter _prompter;
 }
 
@@ -0,0 +1,226 @@
+package ataxx;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/** A server that plays any number of simultaneous games of Ataxx over
+ *  TCP.  Each connection gets its own Game and Board (see RemoteSession).
+ *  The peer sends ordinary commands and moves, one per line, exactly as
+ *  they would be typed to the text interface, and receives the same
+ *  lines ("Red moves a7-b6.", board dumps, "Blue wins.", ...) that the
+ *  text interface would print.  Closing the connection or sending 'quit'
+ *  ends that game only.
+ *
+ *  All socket I/O is done by a single thread running a Selector loop
+ *  over non-blocking channels.  Each game runs Game.process on a thread
+ *  of its own with a small stack, since Game pulls its input a line at a
+ *  time.
+ *  @author Peter Sorensen
+ */
+class RemoteServer implements Runnable {
+
+    /** Stack size requested for game threads (bytes). */
+    private static final long GAME_STACK_SIZE = 512 * 1024;
+
+    /** Size of each connection's read buffer (bytes). */
+    static final int BUFFER_LEN = 4096;
+
+    /** A server listening on ADDRESS.  Use port 0 in ADDRESS to have the
+     *  system choose a free port (see port()). */
+    RemoteServer(InetSocketAddress address) throws IOException {
+        _selector = Selector.open();
+        _listener = ServerSocketChannel.open();
+        _listener.bind(address);
+        _listener.configureBlocking(false);
+        _listener.register(_selector, SelectionKey.OP_ACCEPT);
+        _games = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(null, r, "ataxx-game", GAME_STACK_SIZE);
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /** Record the games finished from now on in LOG, if it is not
+     *  null. */
+    void setLog(GameLog log) {
+        _log = log;
+    }
+
+    /** Return the log in which games are recorded, or null. */
+    GameLog log() {
+        return _log;
+    }
+
+    /** Start each game from now on with search settings PARAMS (a copy
+     *  of which becomes mine). */
+    void setParams(SearchParams params) {
+        _params = new SearchParams(params);
+    }
+
+    /** Return the search settings for a new game: a copy of those given
+     *  to setParams.  A transposition table kept in a file is shared by
+     *  all games; otherwise each game gets an empty table of its own of
+     *  the same size, since a game's 'clear' empties its table. */
+    SearchParams gameParams() {
+        TranspositionTable table = _params.table();
+        if (table != null && !table.persistent()) {
+            return _params.copyWithNewTable();
+        }
+        return new SearchParams(_params);
+    }
+
+    /** Return the port on which I am listening. */
+    int port() {
+        return _listener.socket().getLocalPort();
+    }
+
+    /** Accept connections and shuttle their input and output until
+     *  close() is called. */
+    @Override
+    public void run() {
+        ByteBuffer readBuffer = ByteBuffer.allocateDirect(BUFFER_LEN);
+        try {
+            while (_selector.isOpen()) {
+                _selector.select();
+                registerWrites();
+                Iterator<SelectionKey> keys =
+                    _selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    try {
+                        if (key.isAcceptable()) {
+                            accept();
+                        } else {
+                            if (key.isReadable()) {
+                                read(key, readBuffer);
+                            }
+                            if (key.isValid() && key.isWritable()) {
+                                write(key);
+                            }
+                        }
+                    } catch (IOException excp) {
+                        drop(key);
+                    }
+                }
+            }
+        } catch (IOException | ClosedSelectorException excp) {
+            /* Server shut down. */
+        } finally {
+            _games.shutdownNow();
+        }
+    }
+
+    /** Stop accepting connections and close all current ones. */
+    void close() {
+        try {
+            for (SelectionKey key : _selector.keys()) {
+                key.channel().close();
+            }
+            _selector.close();
+        } catch (IOException | ClosedSelectorException excp) {
+            /* Ignore IOException */
+        }
+    }
+
+    /** Arrange for SESSION's pending output to be written.  May be called
+     *  from any thread. */
+    void wantWrite(RemoteSession session) {
+        _writers.add(session);
+        _selector.wakeup();
+    }
+
+    /** Accept a new connection and start a game on it. */
+    private void accept() throws IOException {
+        SocketChannel channel = _listener.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        SelectionKey key = channel.register(_selector, SelectionKey.OP_READ);
+        RemoteSession session = new RemoteSession(this, key);
+        key.attach(session);
+        _games.execute(session::play);
+    }
+
+    /** Read whatever is available on KEY's channel into its session,
+     *  using BUFFER as scratch. */
+    private void read(SelectionKey key, ByteBuffer buffer)
+        throws IOException {
+        RemoteSession session = (RemoteSession) key.attachment();
+        buffer.clear();
+        int n = ((SocketChannel) key.channel()).read(buffer);
+        if (n < 0) {
+            session.received(null);
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+        } else {
+            buffer.flip();
+            session.received(buffer);
+        }
+    }
+
+    /** Write as much of KEY's pending output as the channel accepts,
+     *  closing the connection once its game is over and all output
+     *  is sent. */
+    private void write(SelectionKey key) throws IOException {
+        RemoteSession session = (RemoteSession) key.attachment();
+        if (session.writeTo((SocketChannel) key.channel())) {
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+            if (session.finished()) {
+                drop(key);
+            }
+        }
+    }
+
+    /** Turn on write interest for all sessions that asked for it. */
+    private void registerWrites() {
+        RemoteSession session;
+        while ((session = _writers.poll()) != null) {
+            SelectionKey key = session.key();
+            if (key.isValid()) {
+                key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+            }
+        }
+    }
+
+    /** Close KEY's connection, ending its game if still running. */
+    private void drop(SelectionKey key) {
+        RemoteSession session = (RemoteSession) key.attachment();
+        if (session != null) {
+            session.received(null);
+        }
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException excp) {
+            /* Ignore IOException */
+        }
+    }
+
+    /** Multiplexes all connections. */
+    private final Selector _selector;
+    /** Accepts new connections. */
+    private final ServerSocketChannel _listener;
+    /** Runs the games. */
+    private final ExecutorService _games;
+    /** Sessions with output waiting for write interest to be set. */
+    private final ConcurrentLinkedQueue<RemoteSession> _writers =
+        new ConcurrentLinkedQueue<>();
+    /** Where finished games are recorded, or null. */
+    private volatile GameLog _log;
+    /** Search settings with which games start. */
+    private volatile SearchParams _params = new SearchParams();
+}
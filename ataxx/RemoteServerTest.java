@@ -0,0 +1,102 @@
+package ataxx;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of RemoteServer over the loopback interface.
+ *  @author Peter Sorensen
+ */
+public class RemoteServerTest {
+
+    /** Number of simultaneous connections in testManyGames. */
+    private static final int GAMES = 20;
+
+    /** Send each of COMMANDS as a line on S, followed by the end of
+     *  input, and return all lines sent back until the server closes the
+     *  connection. */
+    private static List<String> converse(Socket s, String... commands)
+        throws IOException {
+        PrintWriter out = new PrintWriter(s.getOutputStream(), true);
+        for (String c : commands) {
+            out.println(c);
+        }
+        s.shutdownOutput();
+        BufferedReader in =
+            new BufferedReader(new InputStreamReader(s.getInputStream()));
+        List<String> result = new ArrayList<>();
+        for (String line = in.readLine(); line != null;
+             line = in.readLine()) {
+            result.add(line);
+        }
+        return result;
+    }
+
+    @Test public void testDump() throws IOException {
+        RemoteServer server =
+            new RemoteServer(new InetSocketAddress("127.0.0.1", 0));
+        new Thread(server).start();
+        try (Socket s = new Socket("127.0.0.1", server.port())) {
+            List<String> lines = converse(s, "block c3", "dump", "quit");
+            assertEquals("===", lines.get(0));
+            assertEquals("  r - - - - - b", lines.get(1));
+            assertEquals("  - - X - X - -", lines.get(5));
+            assertEquals("===", lines.get(8));
+            assertEquals(9, lines.size());
+        } finally {
+            server.close();
+        }
+    }
+
+    @Test public void testParams() throws IOException {
+        RemoteServer server =
+            new RemoteServer(new InetSocketAddress("127.0.0.1", 0));
+        try {
+            SearchParams params = new SearchParams();
+            params.set("multipv", "3");
+            params.set("hash", "1");
+            server.setParams(params);
+            params.set("multipv", "2");
+            SearchParams first = server.gameParams(),
+                second = server.gameParams();
+            assertEquals(3, first.multiPV());
+            assertEquals(1, first.table().megabytes());
+            assertNotSame(first.table(), second.table());
+            assertNotSame(params.table(), first.table());
+        } finally {
+            server.close();
+        }
+    }
+
+    @Test public void testManyGames() throws IOException {
+        RemoteServer server =
+            new RemoteServer(new InetSocketAddress("127.0.0.1", 0));
+        new Thread(server).start();
+        try {
+            Socket[] sockets = new Socket[GAMES];
+            for (int i = 0; i < GAMES; i += 1) {
+                sockets[i] = new Socket("127.0.0.1", server.port());
+            }
+            for (int i = 0; i < GAMES; i += 1) {
+                try (Socket s = sockets[i]) {
+                    List<String> lines =
+                        converse(s, "auto red", "manual blue", "start",
+                                 "a1-a2");
+                    assertTrue(lines.get(0).matches("Red moves .*\\."));
+                    assertTrue(lines.get(1).matches("Red moves .*\\."));
+                }
+            }
+        } finally {
+            server.close();
+        }
+    }
+
+}
@@ -0,0 +1,160 @@
+package ataxx;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/** One game played over a connection accepted by a RemoteServer.  A
+ *  session is both the CommandSource and the Reporter of its Game:
+ *  lines arriving on the connection become commands, and messages
+ *  the Game reports are queued for the server to send back.
+ *  @author Peter Sorensen
+ */
+class RemoteSession implements CommandSource, Reporter {
+
+    /** A session for the connection selected by KEY of SERVER. */
+    RemoteSession(RemoteServer server, SelectionKey key) {
+        _server = server;
+        _key = key;
+    }
+
+    /** Play games on this connection until the peer quits or
+     *  disconnects. */
+    void play() {
+        try {
+            Game game = new Game(new Board(), this, this);
+            game.searchParams().set(_server.gameParams());
+            game.setLog(_server.log());
+            game.process(false);
+        } finally {
+            _finished = true;
+            _server.wantWrite(this);
+        }
+    }
+
+    /** Return the selection key of my connection. */
+    SelectionKey key() {
+        return _key;
+    }
+
+    /** Return true iff my game is over, so that the connection may be
+     *  closed once my output has been sent. */
+    boolean finished() {
+        return _finished;
+    }
+
+    /** Add the bytes remaining in INPUT to my input, or record the end of
+     *  input if INPUT is null.  Called by the server's I/O thread. */
+    void received(ByteBuffer input) {
+        if (input == null) {
+            if (_partial.length() > 0) {
+                _lines.add(_partial.toString());
+                _partial.setLength(0);
+            }
+            _lines.add(END);
+            return;
+        }
+        while (input.hasRemaining()) {
+            char c = (char) (input.get() & 0xff);
+            if (c == '\n') {
+                _lines.add(_partial.toString());
+                _partial.setLength(0);
+            } else if (c != '\r') {
+                _partial.append(c);
+            }
+        }
+    }
+
+    /** Write as much pending output as possible to CHANNEL.  Return true
+     *  iff all of it has been written.  Called by the server's I/O
+     *  thread. */
+    synchronized boolean writeTo(SocketChannel channel) throws IOException {
+        _output.flip();
+        try {
+            channel.write(_output);
+            return !_output.hasRemaining();
+        } finally {
+            _output.compact();
+        }
+    }
+
+    @Override
+    public String getLine(String prompt) {
+        if (_ended) {
+            return null;
+        }
+        try {
+            String line = _lines.take();
+            if (line == END) {
+                _ended = true;
+                return null;
+            }
+            return line;
+        } catch (InterruptedException excp) {
+            _ended = true;
+            return null;
+        }
+    }
+
+    @Override
+    public void errMsg(String format, Object... args) {
+        send(format, args);
+    }
+
+    @Override
+    public void outcomeMsg(String format, Object... args) {
+        send(format, args);
+    }
+
+    @Override
+    public void moveMsg(String format, Object... args) {
+        send(format, args);
+    }
+
+    /** Queue the line formed from FORMAT and ARGS, as for String.format,
+     *  to be sent to the peer on the next flush(). */
+    private void send(String format, Object... args) {
+        byte[] line = (String.format(format, args) + "\n")
+            .getBytes(StandardCharsets.ISO_8859_1);
+        synchronized (this) {
+            if (_output.remaining() < line.length) {
+                int size = 2 * (_output.position() + line.length);
+                ByteBuffer bigger = ByteBuffer.allocate(size);
+                _output.flip();
+                bigger.put(_output);
+                _output = bigger;
+            }
+            _output.put(line);
+        }
+    }
+
+    /** Have the server send my pending output.  Game calls this
+     *  whenever it waits, so a burst of messages costs one wakeup of the
+     *  server's I/O thread rather than one per line. */
+    @Override
+    public void flush() {
+        _server.wantWrite(this);
+    }
+
+    /** Marks the end of input in _lines.  Compared by identity. */
+    private static final String END = new String("");
+
+    /** The server handling my connection. */
+    private final RemoteServer _server;
+    /** My connection's selection key. */
+    private final SelectionKey _key;
+    /** Complete input lines not yet consumed by my game. */
+    private final LinkedBlockingQueue<String> _lines =
+        new LinkedBlockingQueue<>();
+    /** The incomplete last line of input received so far. */
+    private final StringBuilder _partial = new StringBuilder();
+    /** Output not yet sent, in _output[0 .. position-1]. */
+    private ByteBuffer _output = ByteBuffer.allocate(RemoteServer.BUFFER_LEN);
+    /** True once my game has seen the end of its input. */
+    private boolean _ended;
+    /** True once my game has finished. */
+    private volatile boolean _finished;
+}
@@ -17,4 +17,14 @@ interface Reporter {
      *  formed from FORMAT and OPERANDS as for String.format. */
     void moveMsg(String format, Object... operands);
 
+    /** Display PROMPT, with no line break, to request input.  By default,
+     *  does nothing. */
+    default void prompt(String prompt) {
+    }
+
+    /** Make sure that all messages so far have been displayed, for
+     *  reporters that hold them back.  By default, does nothing. */
+    default void flush() {
+    }
+
 }
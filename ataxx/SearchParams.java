@@ -0,0 +1,354 @@
+package ataxx;
+
+import java.io.IOException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
+
+import static ataxx.GameException.error;
+
+/** Tunable settings of the AI's search.  Each search technique can be
+ *  switched off separately, so that its effect on node counts and
+ *  speed can be measured with the 'bench' command.
+ *  @author Peter Sorensen
+ */
+class SearchParams {
+
+    /** Settings with all techniques enabled and default tuning. */
+    SearchParams() {
+    }
+
+    /** A copy of PARAMS. */
+    SearchParams(SearchParams params) {
+        set(params);
+    }
+
+    /** Make my settings the same as those of PARAMS. */
+    void set(SearchParams params) {
+        _pvs = params._pvs;
+        _multiPV = params._multiPV;
+        _aspiration = params._aspiration;
+        _aspirationWindow = params._aspirationWindow;
+        _lmr = params._lmr;
+        _lmrDepth = params._lmrDepth;
+        _lmrMoves = params._lmrMoves;
+        _lmrReduction = params._lmrReduction;
+        _quiescence = params._quiescence;
+        _quiescenceDepth = params._quiescenceDepth;
+        _quiescenceCaptures = params._quiescenceCaptures;
+        _evaluation = params._evaluation;
+        _network = params._network;
+        _deterministic = params._deterministic;
+        _hashOffHeap = params._hashOffHeap;
+        _table = params._table;
+    }
+
+    /** Set the parameter named NAME to VALUE, as for the 'set' command.
+     *  Switches take the values on/off (or true/false, 1/0); the others
+     *  take non-negative integers, except for weights, which takes the
+     *  name of a file of evaluation weights (see Evaluation), and
+     *  network, which takes the name of a network file (see Network) or
+     *  "off".  Setting hash (a size in megabytes, 0 for none) replaces
+     *  the transposition table with an empty one.  Setting cache to a
+     *  file name replaces it with one kept in that file (see
+     *  TranspositionTable.open), created if need be with the current
+     *  hash size (CACHE_MEGABYTES if none), and setting it to "off"
+     *  removes such a table. */
+    void set(String name, String value) {
+        switch (name.toLowerCase()) {
+        case "pvs":
+            _pvs = parseSwitch(value);
+            break;
+        case "multipv":
+            _multiPV = parseInt(value, 1);
+            break;
+        case "aspiration":
+            _aspiration = parseSwitch(value);
+            break;
+        case "aspiration-window":
+            _aspirationWindow = parseInt(value, 1);
+            break;
+        case "lmr":
+            _lmr = parseSwitch(value);
+            break;
+        case "lmr-depth":
+            _lmrDepth = parseInt(value, 1);
+            break;
+        case "lmr-moves":
+            _lmrMoves = parseInt(value, 1);
+            break;
+        case "lmr-reduction":
+            _lmrReduction = parseInt(value, 1);
+            break;
+        case "quiescence":
+            _quiescence = parseSwitch(value);
+            break;
+        case "quiescence-depth":
+            _quiescenceDepth = parseInt(value, 1);
+            break;
+        case "quiescence-captures":
+            _quiescenceCaptures = parseInt(value, 1);
+            break;
+        case "weights":
+            try {
+                _evaluation = Evaluation.read(Paths.get(value));
+            } catch (IOException | InvalidPathException excp) {
+                throw error("cannot read weights from %s", value);
+            }
+            break;
+        case "network":
+            if (value.equalsIgnoreCase("off")) {
+                _network = null;
+                break;
+            }
+            try {
+                _network = Network.read(Paths.get(value));
+            } catch (IOException | InvalidPathException excp) {
+                throw error("cannot read network from %s", value);
+            }
+            break;
+        case "deterministic":
+            _deterministic = parseSwitch(value);
+            break;
+        case "hash":
+            int megabytes = parseInt(value, 0);
+            if (megabytes > TranspositionTable.MAX_MEGABYTES) {
+                throw error("hash table too large: %s", value);
+            }
+            if (_table != null && _table.persistent()) {
+                throw error("hash table is kept in a file (see cache)");
+            }
+            _table = megabytes == 0 ? null
+                : new TranspositionTable(megabytes, _hashOffHeap);
+            break;
+        case "cache":
+            if (value.equalsIgnoreCase("off")) {
+                if (_table != null && _table.persistent()) {
+                    _table.flush();
+                    _table = null;
+                }
+                break;
+            }
+            try {
+                _table = TranspositionTable.open(Paths.get(value),
+                                                 _table == null
+                                                 ? CACHE_MEGABYTES
+                                                 : _table.megabytes());
+            } catch (InvalidPathException excp) {
+                throw error("bad cache file name: %s", value);
+            }
+            break;
+        case "hash-offheap":
+            _hashOffHeap = parseSwitch(value);
+            if (_table != null && !_table.persistent()
+                && _table.offHeap() != _hashOffHeap) {
+                _table = new TranspositionTable(_table.megabytes(),
+                                               _hashOffHeap);
+            }
+            break;
+        default:
+            throw error("unknown search parameter: %s", name);
+        }
+    }
+
+    /** Return the switch setting denoted by VALUE. */
+    private static boolean parseSwitch(String value) {
+        switch (value.toLowerCase()) {
+        case "on": case "true": case "1":
+            return true;
+        case "off": case "false": case "0":
+            return false;
+        default:
+            throw error("expected on or off: %s", value);
+        }
+    }
+
+    /** Return a copy of me for a batch of searches (as by Bench or
+     *  Analyzer).  If deterministic, the copy's transposition table, if
+     *  any, is a new, empty one of the same size, so that the searches
+     *  do not depend on what was searched before. */
+    SearchParams freshCopy() {
+        return _deterministic ? copyWithNewTable() : new SearchParams(this);
+    }
+
+    /** Return a copy of me whose transposition table, if I have one, is
+     *  a new, empty one of the same size as mine rather than mine, for
+     *  searches that must not share my table. */
+    SearchParams copyWithNewTable() {
+        SearchParams copy = new SearchParams(this);
+        if (_table != null) {
+            copy._table = new TranspositionTable(_table.megabytes(),
+                                                 _hashOffHeap);
+        }
+        return copy;
+    }
+
+    /** Return a hash of the settings that affect the values searches
+     *  find, apart from depth: the static evaluation and quiescence
+     *  search.  Transposition table entries found with one fingerprint
+     *  are not valid for another (see TranspositionTable.useSettings).
+     *  Never 0. */
+    long fingerprint() {
+        long h = _network != null ? _network.fingerprint()
+            : _evaluation.fingerprint();
+        h = h * Evaluation.FINGERPRINT_MULTIPLIER + (_network != null ? 1 : 0);
+        if (_quiescence) {
+            h = (h * Evaluation.FINGERPRINT_MULTIPLIER + _quiescenceDepth)
+                * Evaluation.FINGERPRINT_MULTIPLIER + _quiescenceCaptures;
+        }
+        return h == 0 ? 1 : h;
+    }
+
+    /** Size of a newly created cache file when there is no hash table
+     *  (megabytes). */
+    static final int CACHE_MEGABYTES = 64;
+
+    /** Return the integer >= MIN denoted by VALUE. */
+    private static int parseInt(String value, int min) {
+        try {
+            int result = Integer.parseInt(value);
+            if (result >= min) {
+                return result;
+            }
+        } catch (NumberFormatException excp) {
+            /* Fall through to error. */
+        }
+        throw error("expected an integer >= %d: %s", min, value);
+    }
+
+    /** Return true if searches use principal variation search: all
+     *  but the first move at each node are searched with a null window,
+     *  re-searching only those that turn out better. */
+    boolean pvs() {
+        return _pvs;
+    }
+
+    /** Return the number of best root moves whose values are found
+     *  exactly, with their principal variations (see AI.variations). */
+    int multiPV() {
+        return _multiPV;
+    }
+
+    /** Return true if each iteration after the first is searched with a
+     *  window around the previous iteration's value. */
+    boolean aspiration() {
+        return _aspiration;
+    }
+
+    /** Return the half-width of the aspiration window, in pieces. */
+    int aspirationWindow() {
+        return _aspirationWindow;
+    }
+
+    /** Return true if searches use late move reductions: quiet jumps
+     *  late in the move order are searched to reduced depth, re-searching
+     *  if they turn out better. */
+    boolean lmr() {
+        return _lmr;
+    }
+
+    /** Return the minimum remaining depth at which moves are reduced. */
+    int lmrDepth() {
+        return _lmrDepth;
+    }
+
+    /** Return the number of moves at each node searched before any are
+     *  reduced. */
+    int lmrMoves() {
+        return _lmrMoves;
+    }
+
+    /** Return the depth by which late moves are reduced. */
+    int lmrReduction() {
+        return _lmrReduction;
+    }
+
+    /** Return true if, at the search horizon, searches keep searching
+     *  moves that capture many pieces, allowing the side to move to
+     *  stand pat instead. */
+    boolean quiescence() {
+        return _quiescence;
+    }
+
+    /** Return the maximum number of plies searched beyond the horizon. */
+    int quiescenceDepth() {
+        return _quiescenceDepth;
+    }
+
+    /** Return the minimum number of pieces captured by a move searched
+     *  beyond the horizon. */
+    int quiescenceCaptures() {
+        return _quiescenceCaptures;
+    }
+
+    /** Return the static evaluation used at the horizon. */
+    Evaluation evaluation() {
+        return _evaluation;
+    }
+
+    /** Return the network used at the horizon instead of evaluation(),
+     *  or null if none. */
+    Network network() {
+        return _network;
+    }
+
+    /** Use NETWORK (null for none) at the horizon instead of
+     *  evaluation(), as for 'set network' with a network already in
+     *  hand. */
+    void setNetwork(Network network) {
+        _network = network;
+    }
+
+    /** Return true if results are to be repeatable from run to run:
+     *  searches ignore time limits (searching to their full depth), and
+     *  batch searches run on a single thread with a fresh table (see
+     *  freshCopy), so that node counts depend only on the positions and
+     *  settings. */
+    boolean deterministic() {
+        return _deterministic;
+    }
+
+    /** Return true if transposition tables are kept off the Java
+     *  heap. */
+    boolean hashOffHeap() {
+        return _hashOffHeap;
+    }
+
+    /** Return the transposition table, shared by all searches using
+     *  these settings (and copies of them), or null if none. */
+    TranspositionTable table() {
+        return _table;
+    }
+
+    /** Principal variation search. */
+    private boolean _pvs = true;
+    /** Number of root moves searched exactly. */
+    private int _multiPV = 1;
+    /** Aspiration windows. */
+    private boolean _aspiration = true;
+    /** Half-width of the aspiration window. */
+    private int _aspirationWindow = 4;
+    /** Late move reductions. */
+    private boolean _lmr = true;
+    /** Minimum depth for reductions. */
+    private int _lmrDepth = 3;
+    /** Moves searched before reductions. */
+    private int _lmrMoves = 4;
+    /** Depth of reductions. */
+    private int _lmrReduction = 1;
+    /** Quiescence search. */
+    private boolean _quiescence = true;
+    /** Maximum quiescence plies. */
+    private int _quiescenceDepth = 4;
+    /** Minimum captures in quiescence. */
+    private int _quiescenceCaptures = 3;
+    /** Static evaluation. */
+    private Evaluation _evaluation = Evaluation.MATERIAL_ONLY;
+    /** Network, or null. */
+    private Network _network;
+    /** Repeatable results. */
+    private boolean _deterministic;
+    /** Off-heap tables. */
+    private boolean _hashOffHeap = true;
+    /** Transposition table, or null. */
+    private TranspositionTable _table;
+}
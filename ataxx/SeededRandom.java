@@ -0,0 +1,54 @@
+package ataxx;
+
+/** A source of pseudo-random numbers whose sequence is fixed by its seed
+ *  (the SplitMix64 generator), for choices that should be repeatable:
+ *  two generators given the same seed produce the same numbers on every
+ *  platform and run.  Drawing a number allocates nothing and takes no
+ *  lock, so a generator must not be used by two threads at once.
+ *  @author Peter Sorensen
+ */
+class SeededRandom {
+
+    /** A generator seeded with SEED. */
+    SeededRandom(long seed) {
+        setSeed(seed);
+    }
+
+    /** A generator seeded with a value that differs from run to run. */
+    SeededRandom() {
+        this(System.nanoTime() ^ System.identityHashCode(new Object()));
+    }
+
+    /** Restart my sequence as for a new generator seeded with SEED. */
+    void setSeed(long seed) {
+        _state = seed;
+    }
+
+    /** Return the next number from my sequence, any long being equally
+     *  likely. */
+    long nextLong() {
+        _state += GOLDEN_GAMMA;
+        long z = _state;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /** Return a number in 0 .. MAX-1 (MAX > 0) from my sequence, each
+     *  being equally likely. */
+    int nextInt(int max) {
+        long limit = (1L << 32) - (1L << 32) % max;
+        while (true) {
+            long bits = nextLong() >>> 32;
+            if (bits < limit) {
+                return (int) (bits % max);
+            }
+        }
+    }
+
+    /** Increment of the state per number drawn. */
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    /** Current state. */
+    private long _state;
+}
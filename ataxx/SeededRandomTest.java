@@ -0,0 +1,59 @@
+package ataxx;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of SeededRandom and of deterministic searches.
+ *  @author Peter Sorensen
+ */
+public class SeededRandomTest {
+
+    @Test public void testSequence() {
+        SeededRandom a = new SeededRandom(42), b = new SeededRandom(42);
+        long first = a.nextLong();
+        assertEquals(first, b.nextLong());
+        for (int i = 0; i < 1000; i += 1) {
+            int k = a.nextInt(7);
+            assertEquals(k, b.nextInt(7));
+            assertTrue(k >= 0 && k < 7);
+        }
+        a.setSeed(42);
+        assertEquals(first, a.nextLong());
+        assertTrue(first != new SeededRandom(43).nextLong());
+    }
+
+    @Test public void testSpread() {
+        SeededRandom random = new SeededRandom(1);
+        int[] counts = new int[5];
+        for (int i = 0; i < 5000; i += 1) {
+            counts[random.nextInt(counts.length)] += 1;
+        }
+        for (int count : counts) {
+            assertTrue(count > 800 && count < 1200);
+        }
+    }
+
+    @Test public void testBench() {
+        SearchParams params = new SearchParams();
+        params.set("hash", "1");
+        long cold = Bench.run(3, params, line -> { });
+        assertTrue(Bench.run(3, params, line -> { }) < cold);
+        params.set("hash", "1");
+        params.set("deterministic", "on");
+        long first = Bench.run(3, params, line -> { });
+        assertEquals(first, Bench.run(3, params, line -> { }));
+        assertEquals(first, Bench.run(3, params, line -> { }));
+    }
+
+    @Test public void testTimed() {
+        SearchParams params = new SearchParams();
+        params.set("deterministic", "on");
+        AI ai = new AI(params);
+        Board board = new Board();
+        Move best = ai.analyze(board, 4);
+        long nodes = ai.nodes();
+        assertSame(best, ai.analyze(board, 4, 1));
+        assertEquals(nodes, ai.nodes());
+    }
+
+}
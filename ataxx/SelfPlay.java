@@ -0,0 +1,153 @@
+package ataxx;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static ataxx.GameException.error;
+
+/** Generates training positions (see TrainingData) by having the AI
+ *  play itself.  Each game starts with a few random moves, so that games
+ *  differ, after which both sides search every position to a fixed
+ *  depth.  A random sample of the searched positions is kept, labeled
+ *  with its search score and, once the game is over, its result.
+ *
+ *  Games are played in parallel, one per thread at a time, and each
+ *  game's positions are handed to a TrainingWriter as a batch when it
+ *  ends.  Game K's random choices depend only on K and the seed, and if
+ *  the settings call for a transposition table, each thread searches
+ *  with one of its own (of the same size, so that memory use grows with
+ *  the number of threads), emptied before each game.  Thus the set of
+ *  positions produced does not depend on the number of threads (only
+ *  their order in the file does).
+ *  @author Peter Sorensen
+ */
+class SelfPlay {
+
+    /** Default number of random moves opening each game. */
+    static final int OPENING_MOVES = 6;
+    /** Default fraction of searched positions kept. */
+    static final double SAMPLE_RATE = 0.25;
+    /** Default search depth. */
+    static final int DEPTH = 3;
+
+    /** A generator that searches to DEPTH with settings PARAMS using
+     *  THREADS threads, opens each game with OPENING random moves, and
+     *  keeps each searched position with probability SAMPLE. */
+    SelfPlay(int depth, SearchParams params, int threads, int opening,
+             double sample) {
+        _depth = depth;
+        _params = new SearchParams(params);
+        _threads = threads;
+        _opening = opening;
+        _sample = sample;
+    }
+
+    /** Play GAMES games numbered from 0, with random choices seeded by
+     *  SEED, writing their positions to OUT.  Return the number of
+     *  positions written.  Throws a GameException if writing fails. */
+    long play(long games, long seed, TrainingWriter out) {
+        ExecutorService workers = Executors.newFixedThreadPool(_threads);
+        AtomicLong next = new AtomicLong();
+        AtomicLong positions = new AtomicLong();
+        ArrayList<Future<?>> tasks = new ArrayList<>();
+        for (int i = 0; i < _threads; i += 1) {
+            tasks.add(workers.submit(() -> {
+                SearchParams params = workerParams();
+                AI searcher = new AI(params);
+                ByteBuffer buf = ByteBuffer.allocate(INITIAL_BUFFER);
+                for (long game = next.getAndIncrement(); game < games;
+                     game = next.getAndIncrement()) {
+                    if (params.table() != null) {
+                        params.table().clear();
+                    }
+                    buf = playGame(game ^ seed * SEED_MULTIPLIER, searcher,
+                                   buf);
+                    positions.addAndGet(buf.position()
+                                        / TrainingData.RECORD_SIZE);
+                    buf.flip();
+                    out.write(buf);
+                    buf.clear();
+                }
+                return null;
+            }));
+        }
+        try {
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        } catch (InterruptedException excp) {
+            throw error("self-play interrupted");
+        } catch (ExecutionException excp) {
+            if (excp.getCause() instanceof GameException) {
+                throw (GameException) excp.getCause();
+            }
+            throw error("self-play failed: %s", excp.getCause());
+        } finally {
+            workers.shutdownNow();
+        }
+        return positions.get();
+    }
+
+    /** Return the settings for one thread's searches: mine, but with a
+     *  new table of the same size as mine, if I have one. */
+    private SearchParams workerParams() {
+        return _params.copyWithNewTable();
+    }
+
+    /** Play one game with random choices seeded by SEED and searches by
+     *  SEARCHER, appending its sampled positions to BUF.  Return BUF, or
+     *  a larger copy if it filled. */
+    private ByteBuffer playGame(long seed, AI searcher, ByteBuffer buf) {
+        Random random = new Random(seed);
+        Board board = new Board();
+        board.suspendNotifications();
+        Move[] moves = new Move[Board.MAX_MOVES];
+        while (!board.gameOver() && board.numMoves() < _opening) {
+            int n = board.legalMoves(moves);
+            board.makeMove(n == 0 ? Move.pass()
+                           : moves[random.nextInt(n)]);
+        }
+        int start = buf.position();
+        while (!board.gameOver()) {
+            Move best = searcher.analyze(board, _depth);
+            if (!best.isPass() && random.nextDouble() < _sample) {
+                if (buf.remaining() < TrainingData.RECORD_SIZE) {
+                    ByteBuffer bigger =
+                        ByteBuffer.allocate(2 * buf.capacity());
+                    buf.flip();
+                    buf = bigger.put(buf);
+                }
+                TrainingData.put(buf, board, searcher.lastScore());
+            }
+            board.makeMove(best);
+        }
+        int result = Integer.signum(board.redPieces() - board.bluePieces());
+        for (int p = start; p < buf.position();
+             p += TrainingData.RECORD_SIZE) {
+            TrainingData.setResult(buf, p, result);
+        }
+        return buf;
+    }
+
+    /** Initial size of the buffer holding one game's positions. */
+    private static final int INITIAL_BUFFER = TrainingData.RECORD_SIZE << 8;
+    /** Spreads seeds of successive runs apart. */
+    private static final long SEED_MULTIPLIER = 0x9e3779b97f4a7c15L;
+
+    /** Search depth. */
+    private final int _depth;
+    /** Search settings. */
+    private final SearchParams _params;
+    /** Number of games played at once. */
+    private final int _threads;
+    /** Number of random opening moves. */
+    private final int _opening;
+    /** Probability of keeping a searched position. */
+    private final double _sample;
+}
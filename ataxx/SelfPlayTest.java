@@ -0,0 +1,114 @@
+package ataxx;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import static ataxx.PieceColor.*;
+
+/** Tests of SelfPlay, TrainingWriter and TrainingData.
+ *  @author Peter Sorensen
+ */
+public class SelfPlayTest {
+
+    /** Number of games played in each run. */
+    private static final int GAMES = 12;
+
+    /** Return the records written by GAMES games of self-play to DEPTH
+     *  with settings PARAMS using THREADS threads, through buffers of
+     *  BUFFERSIZE bytes. */
+    private static ByteBuffer generate(int depth, SearchParams params,
+                                       int threads, int bufferSize)
+        throws IOException {
+        Path file = Files.createTempFile("ataxx", ".train");
+        try {
+            SelfPlay generator =
+                new SelfPlay(depth, params, threads,
+                             SelfPlay.OPENING_MOVES, 0.5);
+            long n;
+            try (TrainingWriter out = new TrainingWriter(file, bufferSize)) {
+                n = generator.play(GAMES, 1, out);
+            }
+            ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(file));
+            assertEquals(n * TrainingData.RECORD_SIZE, data.limit());
+            return data;
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /** Return the records in DATA as strings, sorted. */
+    private static List<String> records(ByteBuffer data) {
+        List<String> result = new ArrayList<>();
+        for (int p = 0; p < data.limit(); p += TrainingData.RECORD_SIZE) {
+            StringBuilder s = new StringBuilder();
+            for (int k = 0; k < TrainingData.RECORD_SIZE; k += 1) {
+                s.append(String.format("%02x", data.get(p + k)));
+            }
+            result.add(s.toString());
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    @Test public void testPut() {
+        Board board = new Board();
+        board.setBlock('c', '3');
+        board.makeMove('a', '7', 'b', '7');
+        ByteBuffer buf = ByteBuffer.allocate(TrainingData.RECORD_SIZE);
+        TrainingData.put(buf, board, -3);
+        assertEquals(TrainingData.RECORD_SIZE, buf.position());
+        TrainingData.setResult(buf, 0, -1);
+        long red = buf.getLong(TrainingData.RED_OFFSET);
+        long blue = buf.getLong(TrainingData.BLUE_OFFSET);
+        long blocks = buf.getLong(TrainingData.BLOCKS_OFFSET);
+        assertEquals(3, Long.bitCount(red));
+        assertEquals(2, Long.bitCount(blue));
+        assertEquals(4, Long.bitCount(blocks));
+        assertTrue((red & 1L << GameRecord.square('b', '7')) != 0);
+        assertTrue((blocks & 1L << GameRecord.square('e', '5')) != 0);
+        assertEquals(-3, TrainingData.score(buf, 0));
+        assertEquals(BLUE, TrainingData.side(buf, 0));
+        assertEquals(-1, TrainingData.result(buf, 0));
+        assertEquals(1, buf.getShort(TrainingData.PLY_OFFSET));
+    }
+
+    @Test public void testSelfPlay() throws IOException {
+        ByteBuffer data =
+            generate(1, new SearchParams(), 1, TrainingWriter.BUFFER_SIZE);
+        assertTrue(data.limit() > 0);
+        for (int p = 0; p < data.limit(); p += TrainingData.RECORD_SIZE) {
+            long red = data.getLong(p + TrainingData.RED_OFFSET);
+            long blue = data.getLong(p + TrainingData.BLUE_OFFSET);
+            long blocks = data.getLong(p + TrainingData.BLOCKS_OFFSET);
+            assertEquals(0, (red & blue) | (red & blocks) | (blue & blocks));
+            assertEquals(0, (red | blue | blocks) >>> 49);
+            assertTrue(red != 0 && blue != 0);
+            int result = TrainingData.result(data, p);
+            assertTrue(result >= -1 && result <= 1);
+            assertTrue(data.getShort(p + TrainingData.PLY_OFFSET)
+                       >= SelfPlay.OPENING_MOVES);
+        }
+        List<String> expected = records(data);
+        assertEquals(expected,
+                     records(generate(1, new SearchParams(), 3,
+                                      TrainingData.RECORD_SIZE * 5)));
+    }
+
+    @Test public void testSelfPlayWithTable() throws IOException {
+        SearchParams params = new SearchParams();
+        params.set("hash", "1");
+        assertEquals(records(generate(2, params, 1,
+                                      TrainingWriter.BUFFER_SIZE)),
+                     records(generate(2, params, 4,
+                                      TrainingWriter.BUFFER_SIZE)));
+    }
+
+}
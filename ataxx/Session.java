@@ -0,0 +1,132 @@
+package ataxx;
+
+import static ataxx.Command.Type.*;
+import static ataxx.GameException.error;
+
+/** One game of Ataxx being played through an Engine.  Moves are denoted
+ *  as in the text interface: "c0r0-c1r1", or "-" for a pass.  All
+ *  methods may be called from any thread; all but stop() are
+ *  serialized, so a search blocks other operations on the same session
+ *  (but not on others) until it finishes.
+ *  @author Peter Sorensen
+ */
+class Session {
+
+    /** A session of ENGINE, playing on BOARD, which becomes mine. */
+    Session(Engine engine, Board board) {
+        _engine = engine;
+        _board = board;
+        _board.suspendNotifications();
+    }
+
+    /** Make MOVE for the side to move.  Throws a GameException if MOVE is
+     *  malformed or illegal, leaving the position unchanged. */
+    synchronized void makeMove(String move) {
+        Command cmnd = Command.parseCommand(move);
+        if (_board.gameOver()) {
+            throw error("game is over");
+        } else if (cmnd.commandType() == PASS) {
+            if (_board.canMove(_board.whoseMove())) {
+                throw error("illegal move: %s", move);
+            }
+            _board.makeMove(Move.pass());
+        } else if (cmnd.commandType() == PIECEMOVE) {
+            Move mv = cmnd.move();
+            if (mv == null || !_board.legalMove(mv)) {
+                throw error("illegal move: %s", move);
+            }
+            _board.makeMove(mv);
+        } else {
+            throw error("not a move: %s", move);
+        }
+    }
+
+    /** Return the best move for the side to move found by searching to
+     *  DEPTH plies, or for about MILLIS milliseconds if MILLIS > 0 and
+     *  that is sooner, or until stop() is called.  Returns null if the
+     *  game is over.  Afterwards, lastScore() and lastDepth() describe
+     *  the search. */
+    synchronized String bestMove(int depth, long millis) {
+        AI searcher = _engine.searcher();
+        synchronized (_stopLock) {
+            searcher.clearStop();
+            _searcher = searcher;
+        }
+        Move best;
+        try {
+            best = searcher.analyze(_board, depth, millis);
+        } finally {
+            synchronized (_stopLock) {
+                _searcher = null;
+            }
+        }
+        _lastScore = searcher.lastScore();
+        _lastDepth = searcher.lastDepth();
+        if (best == null) {
+            return null;
+        } else if (best.isPass()) {
+            return "-";
+        }
+        return String.format("%c%c-%c%c", best.col0(), best.row0(),
+                             best.col1(), best.row1());
+    }
+
+    /** Make a call to bestMove in progress, if any, return as soon as
+     *  possible. */
+    void stop() {
+        synchronized (_stopLock) {
+            if (_searcher != null) {
+                _searcher.stop();
+            }
+        }
+    }
+
+    /** Return the value (positive favoring red) of my position found by
+     *  the last call to bestMove. */
+    synchronized int lastScore() {
+        return _lastScore;
+    }
+
+    /** Return the depth of the last completed iteration of the last call
+     *  to bestMove. */
+    synchronized int lastDepth() {
+        return _lastDepth;
+    }
+
+    /** Return my position in compact notation (see Board.position()). */
+    synchronized String position() {
+        return _board.position();
+    }
+
+    /** Return the side to move. */
+    synchronized PieceColor whoseMove() {
+        return _board.whoseMove();
+    }
+
+    /** Return the number of COLOR's pieces. */
+    synchronized int numPieces(PieceColor color) {
+        return _board.numPieces(color);
+    }
+
+    /** Return the number of moves made so far, including passes. */
+    synchronized int numMoves() {
+        return _board.numMoves();
+    }
+
+    /** Return true iff the game is over. */
+    synchronized boolean gameOver() {
+        return _board.gameOver();
+    }
+
+    /** The engine I belong to. */
+    private final Engine _engine;
+    /** My position. */
+    private final Board _board;
+    /** Guards _searcher, which stop() uses without waiting for a search
+     *  to end. */
+    private final Object _stopLock = new Object();
+    /** The AI searching my position, or null if none is. */
+    private AI _searcher;
+    /** Results of the last search. */
+    private int _lastScore, _lastDepth;
+}
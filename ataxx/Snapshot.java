@@ -0,0 +1,96 @@
+package ataxx;
+
+/** A fixed-size record of the state of a Board: its squares, the side
+ *  to move, its move and piece counters, and the values it derives from
+ *  its squares (hash and block layout).  Snapshots are filled by
+ *  Board.save and applied by Board.restore, both of which simply copy
+ *  arrays and fields, so that a search can fork a position without
+ *  replaying moves or allocating.  Snapshots are mutable and are meant
+ *  to be reused (see SnapshotPool).
+ *  @author Peter Sorensen
+ */
+class Snapshot {
+
+    /** Return the saved squares, indexed as for Board.get(int). */
+    PieceColor[] squares() {
+        return _squares;
+    }
+
+    /** Return the saved side to move. */
+    PieceColor whoseMove() {
+        return _whoseMove;
+    }
+
+    /** Return the saved count of consecutive jumps. */
+    int numJumps() {
+        return _numJumps;
+    }
+
+    /** Return the saved number of red pieces. */
+    int numRed() {
+        return _numRed;
+    }
+
+    /** Return the saved number of blue pieces. */
+    int numBlue() {
+        return _numBlue;
+    }
+
+    /** Return the saved number of blocks. */
+    int numBlocked() {
+        return _numBlocked;
+    }
+
+    /** Return the saved number of moves. */
+    int numMoves() {
+        return _numMoves;
+    }
+
+    /** Return the saved hash of the squares (see Board.key). */
+    long hash() {
+        return _hash;
+    }
+
+    /** Return the saved block layout (see Board.layout). */
+    BlockLayout layout() {
+        return _layout;
+    }
+
+    /** Set the saved hash and block layout to HASH and LAYOUT. */
+    void setDerived(long hash, BlockLayout layout) {
+        _hash = hash;
+        _layout = layout;
+    }
+
+    /** Set the saved counters to WHOSEMOVE, NUMJUMPS, NUMRED, NUMBLUE,
+     *  NUMBLOCKED, and NUMMOVES. */
+    void setCounts(PieceColor whoseMove, int numJumps, int numRed,
+                   int numBlue, int numBlocked, int numMoves) {
+        _whoseMove = whoseMove;
+        _numJumps = numJumps;
+        _numRed = numRed;
+        _numBlue = numBlue;
+        _numBlocked = numBlocked;
+        _numMoves = numMoves;
+    }
+
+    /** Contents of the squares, including the border. */
+    private final PieceColor[] _squares =
+        new PieceColor[Board.EXTENDED_SIDE * Board.EXTENDED_SIDE];
+    /** Player on move. */
+    private PieceColor _whoseMove;
+    /** Consecutive jumps. */
+    private int _numJumps;
+    /** Number of reds. */
+    private int _numRed;
+    /** Number of blues. */
+    private int _numBlue;
+    /** Number of blocks. */
+    private int _numBlocked;
+    /** Number of moves. */
+    private int _numMoves;
+    /** Hash of the squares. */
+    private long _hash;
+    /** Moves allowed by the blocks. */
+    private BlockLayout _layout;
+}
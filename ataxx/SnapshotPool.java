@@ -0,0 +1,60 @@
+package ataxx;
+
+/** A free list of Snapshots, so that a search worker can fork positions
+ *  repeatedly without allocating.  A pool is not thread-safe: each
+ *  worker thread should have its own.
+ *  @author Peter Sorensen
+ */
+class SnapshotPool {
+
+    /** A pool initially holding CAPACITY Snapshots. */
+    SnapshotPool(int capacity) {
+        _free = new Snapshot[Math.max(capacity, 1)];
+        for (int i = 0; i < capacity; i += 1) {
+            _free[i] = new Snapshot();
+        }
+        _size = capacity;
+    }
+
+    /** Return a Snapshot for my caller's exclusive use until it is given
+     *  back by release.  Allocates only if the pool is empty. */
+    Snapshot take() {
+        if (_size == 0) {
+            return new Snapshot();
+        }
+        _size -= 1;
+        Snapshot result = _free[_size];
+        _free[_size] = null;
+        return result;
+    }
+
+    /** Return a Snapshot holding the current position of BOARD, taken from
+     *  the pool. */
+    Snapshot take(Board board) {
+        Snapshot result = take();
+        board.save(result);
+        return result;
+    }
+
+    /** Return SNAP to the pool.  SNAP must not be used by the caller
+     *  afterwards. */
+    void release(Snapshot snap) {
+        if (_size == _free.length) {
+            Snapshot[] bigger = new Snapshot[2 * _free.length];
+            System.arraycopy(_free, 0, bigger, 0, _size);
+            _free = bigger;
+        }
+        _free[_size] = snap;
+        _size += 1;
+    }
+
+    /** Return the number of Snapshots currently available. */
+    int available() {
+        return _size;
+    }
+
+    /** Snapshots available for use, in _free[0 .. _size-1]. */
+    private Snapshot[] _free;
+    /** Number of available Snapshots. */
+    private int _size;
+}
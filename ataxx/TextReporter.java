@@ -1,27 +1,64 @@
 package ataxx;
 
-/** A Reporter that uses System.out for messages.
+import java.io.BufferedWriter;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+
+/** A Reporter that writes messages as lines to the standard output (or
+ *  another stream).  Output is buffered and sent only when flush() is
+ *  called or the buffer fills, so that a Game can batch everything it
+ *  reports between waits for input into a single write.  Messages may
+ *  come from several threads.
  *  @author P. N. Hilfinger
  */
 class TextReporter implements Reporter {
 
+    /** Size of the output buffer (chars). */
+    static final int BUFFER_SIZE = 1 << 16;
+
+    /** A reporter writing to the standard output. */
+    TextReporter() {
+        this(new FileOutputStream(FileDescriptor.out));
+    }
+
+    /** A reporter writing to OUT. */
+    TextReporter(OutputStream out) {
+        _out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(out),
+                                                  BUFFER_SIZE));
+    }
+
     @Override
-    public void errMsg(String format, Object... args) {
-        System.out.printf(format, args);
-        System.out.println();
+    public synchronized void errMsg(String format, Object... args) {
+        _out.printf(format, args);
+        _out.println();
     }
 
     @Override
-    public void outcomeMsg(String format, Object... args) {
-        System.out.printf(format, args);
-        System.out.println();
+    public synchronized void outcomeMsg(String format, Object... args) {
+        _out.printf(format, args);
+        _out.println();
     }
 
     @Override
-    public void moveMsg(String format, Object... args) {
-        System.out.printf(format, args);
-        System.out.println();
+    public synchronized void moveMsg(String format, Object... args) {
+        _out.printf(format, args);
+        _out.println();
     }
 
-}
+    @Override
+    public synchronized void prompt(String prompt) {
+        _out.print(prompt);
+    }
 
+    @Override
+    public synchronized void flush() {
+        _out.flush();
+    }
+
+    /** Destination of messages. */
+    private final PrintWriter _out;
+
+}
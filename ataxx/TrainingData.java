@@ -0,0 +1,68 @@
+package ataxx;
+
+import java.nio.ByteBuffer;
+
+import static ataxx.PieceColor.*;
+
+/** The packed format of labeled positions used to fit evaluation
+ *  weights.  Each position takes RECORD_SIZE bytes (big-endian):
+ *      bytes 0-7    red pieces      } 49-bit masks, bit K standing for
+ *      bytes 8-15   blue pieces     } square K, numbered from a7 across
+ *      bytes 16-23  blocked squares } and down to g1 (see GameRecord)
+ *      bytes 24-27  search score (positive favors red)
+ *      byte 28      side to move: 0 for red, 1 for blue
+ *      byte 29      game result: 1 red won, 0 draw, -1 blue won
+ *      bytes 30-31  number of moves made before the position
+ *  A file of positions is just a sequence of records.
+ *  @author Peter Sorensen
+ */
+class TrainingData {
+
+    /** Length of a record (bytes). */
+    static final int RECORD_SIZE = 32;
+    /** Offset of the red piece mask. */
+    static final int RED_OFFSET = 0;
+    /** Offset of the blue piece mask. */
+    static final int BLUE_OFFSET = 8;
+    /** Offset of the blocked square mask. */
+    static final int BLOCKS_OFFSET = 16;
+    /** Offset of the search score. */
+    static final int SCORE_OFFSET = 24;
+    /** Offset of the side to move. */
+    static final int SIDE_OFFSET = 28;
+    /** Offset of the result. */
+    static final int RESULT_OFFSET = 29;
+    /** Offset of the number of moves. */
+    static final int PLY_OFFSET = 30;
+
+    /** Append to OUT a record of BOARD's position with search score
+     *  SCORE (positive favoring red) and, for now, a draw as the
+     *  result. */
+    static void put(ByteBuffer out, Board board, int score) {
+        out.putLong(board.mask(RED)).putLong(board.mask(BLUE))
+            .putLong(board.mask(BLOCKED)).putInt(score)
+            .put((byte) (board.whoseMove() == RED ? 0 : 1))
+            .put((byte) 0)
+            .putShort((short) Math.min(board.numMoves(), Short.MAX_VALUE));
+    }
+
+    /** Set the result in the record at index POS of BUF to RESULT. */
+    static void setResult(ByteBuffer buf, int pos, int result) {
+        buf.put(pos + RESULT_OFFSET, (byte) result);
+    }
+
+    /** Return the side to move in the record at index POS of BUF. */
+    static PieceColor side(ByteBuffer buf, int pos) {
+        return buf.get(pos + SIDE_OFFSET) == 0 ? RED : BLUE;
+    }
+
+    /** Return the result in the record at index POS of BUF. */
+    static int result(ByteBuffer buf, int pos) {
+        return buf.get(pos + RESULT_OFFSET);
+    }
+
+    /** Return the search score in the record at index POS of BUF. */
+    static int score(ByteBuffer buf, int pos) {
+        return buf.getInt(pos + SCORE_OFFSET);
+    }
+}
@@ -0,0 +1,112 @@
+package ataxx;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static java.nio.file.StandardOpenOption.*;
+import static ataxx.GameException.error;
+
+/** Appends batches of training records (see TrainingData) to a file,
+ *  for any number of producing threads.  Records are collected in one
+ *  of two buffers while the other is being written by a thread of the
+ *  writer's own, so that producers wait only if they get a whole buffer
+ *  ahead of the disk.
+ *  @author Peter Sorensen
+ */
+class TrainingWriter implements Closeable {
+
+    /** Default size of each buffer (bytes). */
+    static final int BUFFER_SIZE = TrainingData.RECORD_SIZE << 15;
+
+    /** A writer appending to FILE (created if needed), through buffers
+     *  of BUFFERSIZE bytes. */
+    TrainingWriter(Path file, int bufferSize) throws IOException {
+        _out = FileChannel.open(file, CREATE, WRITE, APPEND);
+        _filling = ByteBuffer.allocateDirect(bufferSize);
+        _spare = ByteBuffer.allocateDirect(bufferSize);
+        _writer = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "ataxx-training-writer");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /** Append the records between the position and limit of RECORDS,
+     *  consuming them.  Throws a GameException if writing has failed. */
+    synchronized void write(ByteBuffer records) {
+        while (records.hasRemaining()) {
+            if (!_filling.hasRemaining()) {
+                swap();
+            }
+            int n = Math.min(records.remaining(), _filling.remaining());
+            int limit = records.limit();
+            records.limit(records.position() + n);
+            _filling.put(records);
+            records.limit(limit);
+        }
+    }
+
+    /** Write all records so far and close the file. */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            swap();
+            finish();
+        } finally {
+            _writer.shutdown();
+            _out.close();
+        }
+    }
+
+    /** Start writing the buffer being filled, after the previous write
+     *  (if any) has finished, and start filling the other. */
+    private void swap() {
+        finish();
+        ByteBuffer full = _filling;
+        _filling = _spare;
+        _spare = full;
+        full.flip();
+        _pending = _writer.submit(() -> {
+            while (full.hasRemaining()) {
+                _out.write(full);
+            }
+            full.clear();
+            return null;
+        });
+    }
+
+    /** Wait for the write in progress, if any, to finish.  Throws a
+     *  GameException if it failed. */
+    private void finish() {
+        if (_pending == null) {
+            return;
+        }
+        try {
+            _pending.get();
+            _pending = null;
+        } catch (InterruptedException excp) {
+            throw error("interrupted while writing training data");
+        } catch (ExecutionException excp) {
+            throw error("could not write training data: %s",
+                        excp.getCause());
+        }
+    }
+
+    /** The output file. */
+    private final FileChannel _out;
+    /** Writes full buffers. */
+    private final ExecutorService _writer;
+    /** The buffer receiving records. */
+    private ByteBuffer _filling;
+    /** The buffer being written, or free. */
+    private ByteBuffer _spare;
+    /** The write in progress, or null. */
+    private Future<?> _pending;
+}
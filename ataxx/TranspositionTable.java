@@ -0,0 +1,397 @@
+package ataxx;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.stream.IntStream;
+
+import static java.nio.file.StandardOpenOption.*;
+
+import static ataxx.GameException.error;
+
+/** A table of search results keyed by position (see Board.key), shared
+ *  by any number of searching threads.  Entries are held in one or more
+ *  ByteBuffers, either allocated off the Java heap (the default), so
+ *  that a large table costs the garbage collector nothing, or on it.
+ *  Off-heap tables count against the JVM's limit on direct memory,
+ *  which may need raising (-XX:MaxDirectMemorySize) for large tables.
+ *
+ *  Entries are grouped in buckets of BUCKET_ENTRIES, each bucket filling
+ *  one 64-byte cache line, so that a probe touches one line.  A position
+ *  may be stored in any entry of its bucket; when all are occupied by
+ *  other positions, the one with the least depth, counting entries from
+ *  earlier searches as shallower, is replaced.  Each entry holds the
+ *  position's key exclusive-or'ed with its data, so that an entry torn
+ *  by two threads storing at once fails to match either key, rather
+ *  than returning wrong data; no locking is needed.
+ *
+ *  Values hold only for the evaluation settings they were found with,
+ *  so a table records the fingerprint of those settings and is emptied
+ *  when a search with others begins (see useSettings).
+ *
+ *  A table may instead be kept in a file (see open), mapped into memory,
+ *  so that it survives from one run of the program to the next.  The
+ *  file starts with a header of one bucket's length (the format's magic
+ *  number, the number of buckets, the current search generation, the
+ *  key of the initial position, so that a file made with different keys
+ *  is rejected, and the settings' fingerprint), followed by the buckets.
+ *  Everything in the file is little-endian, so that it may be moved
+ *  between machines.  The operating system writes changed entries back
+ *  to the file as it sees fit; flush forces them out a part at a time.
+ *
+ *  Data are packed in a long: the value in the low 32 bits, then the
+ *  depth (8 bits), the bound (2 bits), the best move (14 bits), and the
+ *  search generation (8 bits).  A probe returns 0 for a missing entry.
+ *  @author Peter Sorensen
+ */
+class TranspositionTable {
+
+    /** Bound: the value is exact. */
+    static final int EXACT = 3;
+    /** Bound: the value is a lower bound. */
+    static final int LOWER = 1;
+    /** Bound: the value is an upper bound. */
+    static final int UPPER = 2;
+    /** Largest size accepted (megabytes). */
+    static final int MAX_MEGABYTES = 1 << 20;
+
+    /** A table of about MEGABYTES megabytes (at least one bucket, and
+     *  rounded down to a power of two), held off the heap iff OFFHEAP.
+     *  Throws a GameException if the memory cannot be had. */
+    TranspositionTable(int megabytes, boolean offHeap) {
+        this(buckets(megabytes), megabytes, offHeap, null);
+        int size = segmentBytes();
+        try {
+            for (int i = 0; i < _segments.length; i += 1) {
+                ByteBuffer buf =
+                    offHeap ? ByteBuffer.allocateDirect(size + BUCKET_BYTES)
+                        .alignedSlice(BUCKET_BYTES).slice(0, size)
+                    : ByteBuffer.allocate(size);
+                _segments[i] = buf.order(ByteOrder.nativeOrder());
+            }
+        } catch (OutOfMemoryError excp) {
+            throw error("cannot allocate %d MB hash table%s", megabytes,
+                        offHeap ? " (see -XX:MaxDirectMemorySize)" : "");
+        }
+    }
+
+    /** A table of BUCKETS buckets, of requested size MEGABYTES, held off
+     *  the heap iff OFFHEAP and kept in a file whose header is HEADER iff
+     *  that is not null, with segments yet to be allocated. */
+    private TranspositionTable(long buckets, int megabytes, boolean offHeap,
+                               MappedByteBuffer header) {
+        _buckets = buckets;
+        _megabytes = megabytes;
+        _offHeap = offHeap;
+        _header = header;
+        long segmentBuckets = Math.min(_buckets, 1L << SEGMENT_SHIFT);
+        _segments = new ByteBuffer[(int) (_buckets / segmentBuckets)];
+        _chunks = (int) Math.min(CLEAR_CHUNKS, segmentBuckets);
+    }
+
+    /** Return a table kept in FILE.  If FILE does not exist or is empty,
+     *  it is created holding an empty table of about MEGABYTES megabytes
+     *  (as for the constructor); otherwise, it keeps its size and
+     *  contents.  Throws a GameException if FILE cannot be used. */
+    static TranspositionTable open(Path file, int megabytes) {
+        try (FileChannel channel = FileChannel.open(file, READ, WRITE,
+                                                    CREATE)) {
+            boolean created = channel.size() == 0;
+            long buckets = created ? buckets(megabytes)
+                : (channel.size() - BUCKET_BYTES) / BUCKET_BYTES;
+            if (Long.bitCount(buckets) != 1
+                || channel.size() != 0
+                && channel.size() != (buckets + 1) * BUCKET_BYTES) {
+                throw error("%s is not a hash table file", file);
+            }
+            MappedByteBuffer header =
+                channel.map(FileChannel.MapMode.READ_WRITE, 0, BUCKET_BYTES);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            long initial = new Board().key();
+            if (created) {
+                header.putLong(0, MAGIC).putLong(Long.BYTES, buckets)
+                    .putLong(INITIAL_KEY_OFFSET, initial);
+            } else if (header.getLong(0) != MAGIC
+                       || header.getLong(Long.BYTES) != buckets
+                       || header.getLong(INITIAL_KEY_OFFSET) != initial) {
+                throw error("%s is not a hash table file", file);
+            }
+            TranspositionTable table =
+                new TranspositionTable(buckets,
+                                       (int) (buckets * BUCKET_BYTES >> 20),
+                                       true, header);
+            int size = table.segmentBytes();
+            for (int i = 0; i < table._segments.length; i += 1) {
+                table._segments[i] =
+                    channel.map(FileChannel.MapMode.READ_WRITE,
+                                BUCKET_BYTES + (long) i * size, size)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            }
+            table._generation =
+                header.getInt(GENERATION_OFFSET) & GENERATION_MASK;
+            table._fingerprint = header.getLong(FINGERPRINT_OFFSET);
+            return table;
+        } catch (IOException | UnsupportedOperationException excp) {
+            throw error("cannot use %s as a hash table: %s", file,
+                        excp.getMessage());
+        }
+    }
+
+    /** Return the number of buckets in a table of about MEGABYTES
+     *  megabytes. */
+    private static long buckets(int megabytes) {
+        long bytes = Math.max((long) megabytes << 20, BUCKET_BYTES);
+        return Long.highestOneBit(bytes / BUCKET_BYTES);
+    }
+
+    /** Return the size of each of my segments (bytes). */
+    private int segmentBytes() {
+        return (int) (_buckets / _segments.length * BUCKET_BYTES);
+    }
+
+    /** Return true iff I am kept in a file (see open). */
+    boolean persistent() {
+        return _header != null;
+    }
+
+    /** If I am kept in a file, write to it the entries in the next
+     *  FLUSH_BYTES of my buckets (cycling through all of them), and my
+     *  header.  Thus each call costs little, and all changes are
+     *  written within a bounded number of calls. */
+    synchronized void flush() {
+        if (_header == null) {
+            return;
+        }
+        MappedByteBuffer seg = (MappedByteBuffer) _segments[_flushSegment];
+        int size = Math.min(FLUSH_BYTES, seg.capacity() - _flushPosition);
+        seg.force(_flushPosition, size);
+        _flushPosition += size;
+        if (_flushPosition == seg.capacity()) {
+            _flushPosition = 0;
+            _flushSegment = (_flushSegment + 1) % _segments.length;
+        }
+        _header.force();
+    }
+
+    /** Return the size I was requested to have (megabytes). */
+    int megabytes() {
+        return _megabytes;
+    }
+
+    /** Return true iff I am held off the heap. */
+    boolean offHeap() {
+        return _offHeap;
+    }
+
+    /** Return the number of entries I hold. */
+    long capacity() {
+        return _buckets * BUCKET_ENTRIES;
+    }
+
+    /** Empty me, dividing the work among the common pool's threads. */
+    synchronized void clear() {
+        IntStream.range(0, _segments.length * _chunks).parallel()
+            .forEach(this::clearChunk);
+        setGeneration(0);
+        setFingerprint(0);
+    }
+
+    /** Prepare for a search whose evaluation settings have fingerprint
+     *  FINGERPRINT (see SearchParams.fingerprint), emptying me if my
+     *  entries were found with other settings.  A table should not be
+     *  shared by searches with different settings running at once. */
+    synchronized void useSettings(long fingerprint) {
+        if (_fingerprint != fingerprint) {
+            if (_fingerprint != 0) {
+                clear();
+            }
+            setFingerprint(fingerprint);
+        }
+    }
+
+    /** Set the fingerprint of the settings my entries were found with
+     *  to FINGERPRINT (0 if I am empty), recording it in my header if I
+     *  am persistent. */
+    private void setFingerprint(long fingerprint) {
+        _fingerprint = fingerprint;
+        if (_header != null) {
+            _header.putLong(FINGERPRINT_OFFSET, fingerprint);
+        }
+    }
+
+    /** Zero chunk C of the chunks cleared by clear. */
+    private void clearChunk(int c) {
+        ByteBuffer buf = _segments[c / _chunks];
+        int size = buf.capacity() / _chunks;
+        for (int p = (c % _chunks) * size, end = p + size; p < end;
+             p += Long.BYTES) {
+            buf.putLong(p, 0);
+        }
+    }
+
+    /** Mark the start of a new search, so that entries from earlier
+     *  searches are replaced in preference to those of this one. */
+    void newSearch() {
+        setGeneration((_generation + 1) & GENERATION_MASK);
+    }
+
+    /** Set the current search generation to GENERATION, recording it in
+     *  my header if I am persistent. */
+    private void setGeneration(int generation) {
+        _generation = generation;
+        if (_header != null) {
+            _header.putInt(GENERATION_OFFSET, generation);
+        }
+    }
+
+    /** Return the data stored for the position with key KEY, or 0 if
+     *  there are none. */
+    long probe(long key) {
+        long bucket = key & (_buckets - 1);
+        ByteBuffer buf = _segments[(int) (bucket >>> SEGMENT_SHIFT)];
+        int base = (int) (bucket & SEGMENT_MASK) * BUCKET_BYTES;
+        for (int i = 0; i < BUCKET_ENTRIES; i += 1) {
+            int p = base + i * ENTRY_BYTES;
+            long data = buf.getLong(p + Long.BYTES);
+            if ((buf.getLong(p) ^ data) == key && data != 0) {
+                return data;
+            }
+        }
+        return 0;
+    }
+
+    /** Store for the position with key KEY the value VALUE, which is a
+     *  bound of kind BOUND (EXACT, LOWER or UPPER), from a search to
+     *  DEPTH (0-255) whose best move was BEST (null if none). */
+    void store(long key, int value, int depth, int bound, Move best) {
+        long bucket = key & (_buckets - 1);
+        ByteBuffer buf = _segments[(int) (bucket >>> SEGMENT_SHIFT)];
+        int base = (int) (bucket & SEGMENT_MASK) * BUCKET_BYTES;
+        int generation = _generation;
+        int victim = base, worst = Integer.MAX_VALUE;
+        for (int i = 0; i < BUCKET_ENTRIES; i += 1) {
+            int p = base + i * ENTRY_BYTES;
+            long data = buf.getLong(p + Long.BYTES);
+            if (data == 0 || (buf.getLong(p) ^ data) == key) {
+                victim = p;
+                break;
+            }
+            int age = (generation - generation(data)) & GENERATION_MASK;
+            int worth = depth(data) - AGE_WEIGHT * age;
+            if (worth < worst) {
+                worst = worth;
+                victim = p;
+            }
+        }
+        long data = (value & 0xffffffffL)
+            | (long) Math.min(depth, MAX_DEPTH) << DEPTH_SHIFT
+            | (long) bound << BOUND_SHIFT
+            | (long) moveCode(best) << MOVE_SHIFT
+            | (long) generation << GENERATION_SHIFT;
+        buf.putLong(victim, key ^ data);
+        buf.putLong(victim + Long.BYTES, data);
+    }
+
+    /** Return the value in DATA. */
+    static int value(long data) {
+        return (int) data;
+    }
+
+    /** Return the depth in DATA. */
+    static int depth(long data) {
+        return (int) (data >>> DEPTH_SHIFT) & MAX_DEPTH;
+    }
+
+    /** Return the bound in DATA. */
+    static int bound(long data) {
+        return (int) (data >>> BOUND_SHIFT) & BOUND_MASK;
+    }
+
+    /** Return the best move in DATA, or null if none. */
+    static Move move(long data) {
+        int code = (int) (data >>> MOVE_SHIFT) & MOVE_MASK;
+        if (code == 0) {
+            return null;
+        }
+        return Move.move(code >>> INDEX_BITS, code & INDEX_MASK);
+    }
+
+    /** Return the generation in DATA. */
+    private static int generation(long data) {
+        return (int) (data >>> GENERATION_SHIFT) & GENERATION_MASK;
+    }
+
+    /** Return the code of move BEST, 0 for null or a pass. */
+    private static int moveCode(Move best) {
+        if (best == null || best.isPass()) {
+            return 0;
+        }
+        return best.fromIndex() << INDEX_BITS | best.toIndex();
+    }
+
+    /** Bytes in an entry. */
+    private static final int ENTRY_BYTES = 2 * Long.BYTES;
+    /** Bytes in a bucket: one cache line. */
+    private static final int BUCKET_BYTES = 64;
+    /** Entries in a bucket. */
+    private static final int BUCKET_ENTRIES = BUCKET_BYTES / ENTRY_BYTES;
+    /** Log2 of the number of buckets in a full segment (1 GB). */
+    private static final int SEGMENT_SHIFT = 24;
+    /** Mask for a bucket's number within its segment. */
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+    /** Largest number of parts of each segment cleared separately. */
+    private static final int CLEAR_CHUNKS = 64;
+
+    /** Bytes of a persistent table forced out by each flush. */
+    private static final int FLUSH_BYTES = 1 << 22;
+    /** First eight bytes of a persistent table's file ("ATAXXTT\2",
+     *  little-endian). */
+    private static final long MAGIC = 0x0254545858415441L;
+    /** Offset in the header of the search generation. */
+    private static final int GENERATION_OFFSET = 2 * Long.BYTES;
+    /** Offset in the header of the key of the initial position. */
+    private static final int INITIAL_KEY_OFFSET = 3 * Long.BYTES;
+    /** Offset in the header of the settings' fingerprint. */
+    private static final int FINGERPRINT_OFFSET = 4 * Long.BYTES;
+
+    /** Bits in a square index. */
+    private static final int INDEX_BITS = 7;
+    /** Mask for a square index. */
+    private static final int INDEX_MASK = (1 << INDEX_BITS) - 1;
+    /** Position and mask of the depth. */
+    private static final int DEPTH_SHIFT = 32, MAX_DEPTH = 0xff;
+    /** Position and mask of the bound. */
+    private static final int BOUND_SHIFT = 40, BOUND_MASK = 3;
+    /** Position and mask of the move. */
+    private static final int MOVE_SHIFT = 42,
+        MOVE_MASK = (1 << 2 * INDEX_BITS) - 1;
+    /** Position and mask of the generation. */
+    private static final int GENERATION_SHIFT = 56, GENERATION_MASK = 0xff;
+    /** Depth by which an entry is discounted for each search since it
+     *  was stored, when choosing one to replace. */
+    private static final int AGE_WEIGHT = 4;
+
+    /** Requested size (megabytes). */
+    private final int _megabytes;
+    /** True iff held off the heap. */
+    private final boolean _offHeap;
+    /** Number of buckets, a power of 2. */
+    private final long _buckets;
+    /** The entries, in segments of at most 1 << SEGMENT_SHIFT buckets. */
+    private final ByteBuffer[] _segments;
+    /** Number of parts of each segment cleared separately. */
+    private final int _chunks;
+    /** If I am persistent, my file's header, and otherwise null. */
+    private final MappedByteBuffer _header;
+    /** The segment and position within it of the next part written by
+     *  flush. */
+    private int _flushSegment, _flushPosition;
+    /** Generation of the current search. */
+    private volatile int _generation;
+    /** Fingerprint of the settings my entries were found with, or 0 if
+     *  I am empty. */
+    private long _fingerprint;
+}
@@ -0,0 +1,196 @@
+package ataxx;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import static ataxx.TranspositionTable.*;
+
+/** Tests of TranspositionTable and Board.key.
+ *  @author Peter Sorensen
+ */
+public class TranspositionTableTest {
+
+    /** Check storing and probing entries in a table held off the heap
+     *  iff OFFHEAP. */
+    private static void checkStoreProbe(boolean offHeap) {
+        TranspositionTable table = new TranspositionTable(1, offHeap);
+        assertEquals(offHeap, table.offHeap());
+        assertEquals(1 << 16, table.capacity());
+        Move best = Move.move('b', '2', 'd', '4');
+        table.store(0x1234, -17, 6, LOWER, best);
+        table.store(0x5678, 30, 2, EXACT, null);
+        long data = table.probe(0x1234);
+        assertEquals(-17, value(data));
+        assertEquals(6, depth(data));
+        assertEquals(LOWER, bound(data));
+        assertSame(best, move(data));
+        data = table.probe(0x5678);
+        assertEquals(30, value(data));
+        assertEquals(EXACT, bound(data));
+        assertNull(move(data));
+        assertEquals(0, table.probe(0x9abc));
+        table.store(0x1234, 5, 7, UPPER, null);
+        assertEquals(UPPER, bound(table.probe(0x1234)));
+        table.clear();
+        assertEquals(0, table.probe(0x1234));
+        assertEquals(0, table.probe(0x5678));
+    }
+
+    @Test public void testStoreProbe() {
+        checkStoreProbe(true);
+        checkStoreProbe(false);
+    }
+
+    @Test public void testReplacement() {
+        TranspositionTable table = new TranspositionTable(0, false);
+        assertEquals(4, table.capacity());
+        int[] depths = { 5, 1, 7, 3 };
+        for (int i = 0; i < depths.length; i += 1) {
+            table.store(i + 1, i, depths[i], EXACT, null);
+        }
+        table.store(9, 0, 4, EXACT, null);
+        assertEquals(0, table.probe(2));
+        assertEquals(4, depth(table.probe(9)));
+        table.newSearch();
+        table.newSearch();
+        table.store(10, 0, 2, EXACT, null);
+        assertEquals(0, table.probe(4));
+        assertTrue(table.probe(3) != 0);
+    }
+
+    @Test public void testKey() {
+        Random random = new Random(1);
+        Move[] moves = new Move[Board.MAX_MOVES];
+        Board fresh = new Board();
+        for (int game = 0; game < 20; game += 1) {
+            Board board = new Board();
+            board.setBlock('b', '3');
+            while (!board.gameOver()) {
+                int n = board.legalMoves(moves);
+                long before = board.key();
+                board.makeMove(n == 0 ? Move.pass()
+                               : moves[random.nextInt(n)]);
+                assertTrue(before != board.key());
+                if (random.nextInt(4) == 0) {
+                    board.undo();
+                    assertEquals(before, board.key());
+                    continue;
+                }
+                fresh.setPosition(board.position());
+                assertEquals(fresh.key(), board.key());
+                assertEquals(board.key(), new Board(board).key());
+            }
+        }
+    }
+
+    @Test public void testKeyJumps() {
+        Board board = new Board(), jumped = new Board();
+        board.setPosition("r5b/7/7/7/7/7/b5r r 0 0");
+        jumped.setPosition("r5b/7/7/7/7/7/b5r r 3 0");
+        assertTrue(board.key() != jumped.key());
+        board.makeMove('a', '7', 'a', '5');
+        board.makeMove('a', '1', 'a', '3');
+        board.makeMove('a', '5', 'a', '7');
+        board.makeMove('a', '3', 'a', '1');
+        assertEquals(4, board.numJumps());
+        jumped.setPosition("r5b/7/7/7/7/7/b5r r 4 0");
+        assertEquals(jumped.key(), board.key());
+        board.undo();
+        board.undo();
+        jumped.setPosition("6b/7/r6/7/b6/7/6r r 2 0");
+        assertEquals(jumped.key(), board.key());
+    }
+
+    /** Append to OUT the move and score reported in LINE of Bench's
+     *  output, if any. */
+    private static void moves(StringBuilder out, String line) {
+        if (line.startsWith("Position")) {
+            out.append(line.replaceAll(" nodes .*", "\n"));
+        }
+    }
+
+    @Test public void testSearch() {
+        SearchParams params = new SearchParams();
+        long nodes = Bench.run(4, params, line -> { });
+        params.set("hash", "1");
+        assertNotNull(params.table());
+        StringBuilder with = new StringBuilder(),
+            without = new StringBuilder();
+        assertTrue(Bench.run(4, params, line -> moves(with, line)) < nodes);
+        params.set("hash", "0");
+        assertNull(params.table());
+        Bench.run(4, params, line -> moves(without, line));
+        assertEquals(without.toString(), with.toString());
+    }
+
+    @Test public void testSettings() {
+        TranspositionTable table = new TranspositionTable(1, false);
+        table.useSettings(1);
+        table.store(0x1234, 5, 3, EXACT, null);
+        table.useSettings(1);
+        assertEquals(5, value(table.probe(0x1234)));
+        table.useSettings(2);
+        assertEquals(0, table.probe(0x1234));
+    }
+
+    @Test public void testWinDistance() {
+        String position = "r6/7/7/7/7/7/2r1b1b r 0 ";
+        SearchParams params = new SearchParams();
+        params.set("hash", "1");
+        Board board = new Board();
+        board.setPosition(position + "7");
+        new AI(params).analyze(board, 4);
+        board.setPosition(position + "40");
+        AI warm = new AI(params), cold = new AI();
+        warm.analyze(board, 4);
+        cold.analyze(board, 4);
+        assertTrue(cold.lastScore() > AI.WON);
+        assertEquals(cold.lastScore(), warm.lastScore());
+    }
+
+    @Test public void testPersistent() throws IOException {
+        Path file = Files.createTempFile("ataxx", ".tt");
+        try {
+            SearchParams params = new SearchParams();
+            params.set("cache", file.toString());
+            assertTrue(params.table().persistent());
+            assertEquals(((long) SearchParams.CACHE_MEGABYTES << 20) + 64,
+                         Files.size(file));
+            AI ai = new AI(params);
+            Board board = new Board();
+            Move cold = ai.analyze(board, 5);
+            long coldNodes = ai.nodes();
+            params.set("cache", "off");
+            assertNull(params.table());
+
+            params.set("cache", file.toString());
+            ai = new AI(params);
+            assertSame(cold, ai.analyze(board, 5));
+            assertTrue(ai.nodes() < coldNodes / 10);
+            params.table().flush();
+
+            params.set("quiescence-captures", "4");
+            ai = new AI(params);
+            assertSame(cold, ai.analyze(board, 5));
+            assertTrue("reused entries found with other settings",
+                       ai.nodes() > coldNodes / 10);
+            params.set("cache", "off");
+
+            Files.write(file, new byte[128]);
+            try {
+                params.set("cache", file.toString());
+                fail("accepted a file that is not a table");
+            } catch (GameException excp) {
+                /* Expected. */
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+}
@@ -0,0 +1,346 @@
+package ataxx;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+
+import static java.nio.file.StandardOpenOption.READ;
+import static ataxx.GameException.error;
+import static ataxx.TrainingData.*;
+
+/** Fits the weights of an Evaluation to training positions (see
+ *  TrainingData and SelfPlay) by the "Texel" method: the evaluation of
+ *  each position, scaled by a constant and passed through the logistic
+ *  function, predicts the result of its game (1 for a red win, 1/2 for
+ *  a draw, 0 for a blue win), and the weights are chosen to minimize
+ *  the mean squared error of these predictions.  The scaling constant
+ *  is fitted first, with the starting weights, and then held fixed
+ *  while the weights are fitted by gradient descent (using Adam).
+ *
+ *  The features of all positions are computed once, as they are
+ *  loaded, and held in a byte array, so that each step of the descent
+ *  is a pass over primitive arrays.  Each pass is divided among threads
+ *  by fork-join over chunks of positions.
+ *  @author Peter Sorensen
+ */
+class Tuner {
+
+    /** Default number of descent steps. */
+    static final int ITERATIONS = 500;
+    /** Default step size of the descent (pieces). */
+    static final double LEARNING_RATE = 0.01;
+
+    /** A tuner with no positions, using THREADS threads. */
+    Tuner(int threads) {
+        _pool = new ForkJoinPool(threads);
+    }
+
+    /** Add the positions in FILE.  Throws a GameException if it is not a
+     *  file of training positions. */
+    void load(Path file) throws IOException {
+        try (FileChannel input = FileChannel.open(file, READ)) {
+            long length = input.size();
+            if (length % RECORD_SIZE != 0) {
+                throw error("%s: not a file of training positions", file);
+            }
+            long total = _size + length / RECORD_SIZE;
+            if (total * Evaluation.FEATURES > Integer.MAX_VALUE) {
+                throw error("too many positions");
+            }
+            _features = Arrays.copyOf(_features,
+                                      (int) total * Evaluation.FEATURES);
+            _results = Arrays.copyOf(_results, (int) total);
+            for (long start = 0; start < length; start += WINDOW) {
+                ByteBuffer window =
+                    input.map(FileChannel.MapMode.READ_ONLY, start,
+                              Math.min(WINDOW, length - start));
+                for (int p = 0; p < window.limit(); p += RECORD_SIZE) {
+                    add(window, p);
+                }
+            }
+        }
+    }
+
+    /** Add the position in the record at index POS of BUF. */
+    private void add(ByteBuffer buf, int pos) {
+        long red = buf.getLong(pos + RED_OFFSET),
+            blue = buf.getLong(pos + BLUE_OFFSET),
+            blocks = buf.getLong(pos + BLOCKS_OFFSET);
+        boolean redToMove = side(buf, pos) == PieceColor.RED;
+        int f = _size * Evaluation.FEATURES;
+        for (int k = 0; k < Evaluation.FEATURES; k += 1) {
+            _features[f + k] = (byte) Evaluation.feature(k, red, blue,
+                                                         blocks, redToMove);
+        }
+        _results[_size] = (byte) result(buf, pos);
+        _size += 1;
+    }
+
+    /** Return the number of positions loaded. */
+    int size() {
+        return _size;
+    }
+
+    /** Return the mean squared error of the predictions made with WEIGHTS
+     *  and scaling constant SCALE. */
+    double loss(double[] weights, double scale) {
+        return pass(weights, scale, false)[Evaluation.FEATURES] / _size;
+    }
+
+    /** Return the scaling constant that minimizes the loss with the
+     *  weights of START. */
+    double fitScale(Evaluation start) {
+        double[] weights = weights(start);
+        double lo = 0, hi = MAX_SCALE;
+        double a = hi - GOLDEN * hi, b = GOLDEN * hi;
+        double lossA = loss(weights, a), lossB = loss(weights, b);
+        for (int i = 0; i < SCALE_STEPS; i += 1) {
+            if (lossA <= lossB) {
+                hi = b;
+                b = a;
+                lossB = lossA;
+                a = hi - GOLDEN * (hi - lo);
+                lossA = loss(weights, a);
+            } else {
+                lo = a;
+                a = b;
+                lossA = lossB;
+                b = lo + GOLDEN * (hi - lo);
+                lossB = loss(weights, b);
+            }
+        }
+        return (lo + hi) / 2;
+    }
+
+    /** Return the weights fitted by ITERATIONS steps of descent from
+     *  those of START with scaling constant SCALE, sending a line of
+     *  progress to PROGRESS every so often. */
+    Evaluation tune(Evaluation start, double scale, int iterations,
+                    Consumer<String> progress) {
+        final int n = Evaluation.FEATURES;
+        double[] weights = weights(start);
+        double[] m = new double[n], v = new double[n];
+        double beta1t, beta2t;
+        beta1t = beta2t = 1;
+        for (int t = 1; t <= iterations; t += 1) {
+            double[] sums = pass(weights, scale, true);
+            beta1t *= BETA1;
+            beta2t *= BETA2;
+            for (int k = 0; k < n; k += 1) {
+                double g = sums[k] * 2 * scale / _size;
+                m[k] = BETA1 * m[k] + (1 - BETA1) * g;
+                v[k] = BETA2 * v[k] + (1 - BETA2) * g * g;
+                double mHat = m[k] / (1 - beta1t), vHat = v[k] / (1 - beta2t);
+                weights[k] -= LEARNING_RATE * mHat
+                    / (Math.sqrt(vHat) + EPSILON);
+            }
+            if (t % PROGRESS_INTERVAL == 0 || t == iterations) {
+                progress.accept(String.format("Iteration %d: loss %.6f", t,
+                                              sums[n] / _size));
+            }
+        }
+        return new Evaluation(weights);
+    }
+
+    /** Return the weights of EVAL as an array. */
+    private static double[] weights(Evaluation eval) {
+        double[] result = new double[Evaluation.FEATURES];
+        for (int k = 0; k < result.length; k += 1) {
+            result[k] = eval.weight(k);
+        }
+        return result;
+    }
+
+    /** Return the sums over all positions of the squared error (at index
+     *  Evaluation.FEATURES) and, if GRADIENT, of the derivative of half
+     *  the error with respect to each weight, divided by SCALE (at the
+     *  index of the weight), for WEIGHTS and SCALE. */
+    private double[] pass(double[] weights, double scale, boolean gradient) {
+        return _pool.invoke(new Chunk(weights.clone(), scale, gradient, 0,
+                                      _size));
+    }
+
+    /** Computes the sums of pass for a range of positions. */
+    private class Chunk extends RecursiveTask<double[]> {
+
+        /** A computation of the sums for positions FROM to TO-1 (see
+         *  pass(WEIGHTS, SCALE, GRADIENT)). */
+        Chunk(double[] weights, double scale, boolean gradient, int from,
+              int to) {
+            _w = weights;
+            _k = scale;
+            _gradient = gradient;
+            _from = from;
+            _to = to;
+        }
+
+        @Override
+        protected double[] compute() {
+            if (_to - _from > CHUNK) {
+                int mid = (_from + _to) >>> 1;
+                Chunk left = new Chunk(_w, _k, _gradient, _from, mid);
+                left.fork();
+                double[] right =
+                    new Chunk(_w, _k, _gradient, mid, _to).compute();
+                double[] result = left.join();
+                for (int i = 0; i < result.length; i += 1) {
+                    result[i] += right[i];
+                }
+                return result;
+            }
+            final int n = Evaluation.FEATURES;
+            byte[] features = _features;
+            byte[] results = _results;
+            double[] sums = new double[n + 1];
+            for (int p = _from, f = _from * n; p < _to; p += 1, f += n) {
+                double eval = 0;
+                for (int k = 0; k < n; k += 1) {
+                    eval += _w[k] * features[f + k];
+                }
+                double predicted = 1 / (1 + Math.exp(-_k * eval));
+                double error = predicted - (results[p] + 1) * 0.5;
+                sums[n] += error * error;
+                if (_gradient) {
+                    double d = error * predicted * (1 - predicted);
+                    for (int k = 0; k < n; k += 1) {
+                        sums[k] += d * features[f + k];
+                    }
+                }
+            }
+            return sums;
+        }
+
+        /** Serialization version (Chunk is never serialized). */
+        private static final long serialVersionUID = 1L;
+
+        /** The weights. */
+        private final double[] _w;
+        /** The scaling constant. */
+        private final double _k;
+        /** True iff the gradient is wanted. */
+        private final boolean _gradient;
+        /** The range of positions. */
+        private final int _from, _to;
+    }
+
+    /** Fit evaluation weights to the training positions in the files
+     *  named in ARGS, and write them to the file given by '--out FILE'
+     *  (default ataxx.weights).  '--weights FILE' gives the starting
+     *  weights (default: count pieces only), '--iterations N' the
+     *  number of descent steps, and '--threads N' the number of
+     *  threads. */
+    public static void main(String[] args) {
+        List<String> data = new ArrayList<>();
+        String out = "ataxx.weights", start = null;
+        int iterations = ITERATIONS;
+        int threads = Runtime.getRuntime().availableProcessors();
+        try {
+            for (int i = 0; i < args.length; i += 1) {
+                if (args[i].equals("--out") && i + 1 < args.length) {
+                    i += 1;
+                    out = args[i];
+                } else if (args[i].equals("--weights")
+                           && i + 1 < args.length) {
+                    i += 1;
+                    start = args[i];
+                } else if (args[i].equals("--iterations")
+                           && i + 1 < args.length) {
+                    i += 1;
+                    iterations = Integer.parseInt(args[i]);
+                } else if (args[i].equals("--threads")
+                           && i + 1 < args.length) {
+                    i += 1;
+                    threads = Integer.parseInt(args[i]);
+                } else if (args[i].startsWith("--")) {
+                    data.clear();
+                    break;
+                } else {
+                    data.add(args[i]);
+                }
+            }
+        } catch (NumberFormatException excp) {
+            data.clear();
+        }
+        if (data.isEmpty() || iterations <= 0 || threads <= 0) {
+            System.err.println("Usage: java ataxx.Tuner [--out FILE]"
+                               + " [--weights FILE] [--iterations N]"
+                               + " [--threads N] DATA...");
+            System.exit(1);
+        }
+        TextReporter output = new TextReporter();
+        Consumer<String> progress = line -> {
+            output.moveMsg("%s", line);
+            output.flush();
+        };
+        try {
+            Evaluation initial = start == null ? Evaluation.MATERIAL_ONLY
+                : Evaluation.read(Paths.get(start));
+            Tuner tuner = new Tuner(threads);
+            long time = System.nanoTime();
+            for (String name : data) {
+                tuner.load(Paths.get(name));
+            }
+            if (tuner.size() == 0) {
+                throw error("no positions");
+            }
+            progress.accept(String.format("Loaded %d positions in %d ms",
+                                          tuner.size(),
+                                          (System.nanoTime() - time)
+                                          / 1_000_000));
+            double scale = tuner.fitScale(initial);
+            progress.accept(String.format("Scale: %.6f  loss %.6f", scale,
+                                          tuner.loss(weights(initial),
+                                                     scale)));
+            Evaluation result =
+                tuner.tune(initial, scale, iterations, progress);
+            result.write(Paths.get(out),
+                         String.format("Fitted to %d positions, scale %.6f",
+                                       tuner.size(), scale));
+            progress.accept(String.format("Wrote %s in %d ms", out,
+                                          (System.nanoTime() - time)
+                                          / 1_000_000));
+        } catch (IOException | InvalidPathException excp) {
+            System.err.printf("I/O error: %s%n", excp.getMessage());
+            System.exit(1);
+        } catch (GameException excp) {
+            System.err.println(excp.getMessage());
+            System.exit(1);
+        }
+        System.exit(0);
+    }
+
+    /** Number of positions handled by one task. */
+    private static final int CHUNK = 1 << 14;
+    /** Size of the parts of a file mapped at once (bytes). */
+    private static final long WINDOW = (long) RECORD_SIZE << 22;
+    /** Upper limit of the scaling constant. */
+    private static final double MAX_SCALE = 2;
+    /** Number of steps in the search for the scaling constant. */
+    private static final int SCALE_STEPS = 30;
+    /** The reciprocal of the golden ratio. */
+    private static final double GOLDEN = (Math.sqrt(5) - 1) / 2;
+    /** Decay rates of Adam's moment estimates. */
+    private static final double BETA1 = 0.9, BETA2 = 0.999;
+    /** Guards Adam's steps against division by zero. */
+    private static final double EPSILON = 1e-8;
+    /** Number of steps between progress reports. */
+    private static final int PROGRESS_INTERVAL = 50;
+
+    /** Performs passes. */
+    private final ForkJoinPool _pool;
+    /** The features of each position, Evaluation.FEATURES per position. */
+    private byte[] _features = new byte[0];
+    /** The result of each position's game: 1, 0 or -1 for red. */
+    private byte[] _results = new byte[0];
+    /** Number of positions. */
+    private int _size;
+}
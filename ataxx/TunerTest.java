@@ -0,0 +1,119 @@
+package ataxx;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import static java.nio.file.StandardOpenOption.WRITE;
+import static ataxx.Evaluation.*;
+
+/** Tests of Evaluation and Tuner.
+ *  @author Peter Sorensen
+ */
+public class TunerTest {
+
+    /** Number of positions in testTune. */
+    private static final int POSITIONS = 20000;
+
+    /** Return the weight vector with weight W in feature K only. */
+    private static double[] only(int k, double w) {
+        double[] weights = new double[FEATURES];
+        weights[k] = w;
+        return weights;
+    }
+
+    @Test public void testFeatures() {
+        Board board = new Board();
+        board.setBlock('c', '3');
+        board.makeMove('a', '7', 'a', '6');
+        board.makeMove('g', '7', 'f', '5');
+        assertEquals(1, new Evaluation(only(MATERIAL, 1)).score(board));
+        assertEquals(1, new Evaluation(only(CORNER, 1)).score(board));
+        assertEquals(2, new Evaluation(only(EDGE, 2)).score(board));
+        assertEquals(1, new Evaluation(only(FRONTIER, 1)).score(board));
+        assertEquals(1, new Evaluation(only(TEMPO, 1)).score(board));
+        assertEquals(2, new Evaluation(new double[] { 1, 0.4, 0, 0, 0.4 })
+                     .score(board));
+        assertEquals(MATERIAL_ONLY.score(board),
+                     new Evaluation(new double[] { 1, 0, 0, 0, 1e-5 })
+                     .score(board));
+    }
+
+    @Test public void testReadWrite() throws IOException {
+        Path file = Files.createTempFile("ataxx", ".weights");
+        try {
+            double[] weights = { 1.25, -0.5, 0.125, 0, 3 };
+            new Evaluation(weights).write(file, "test");
+            Evaluation eval = Evaluation.read(file);
+            for (int k = 0; k < FEATURES; k += 1) {
+                assertEquals(weights[k], eval.weight(k), 1e-6);
+            }
+            Files.write(file, "# no corners\n  CORNER -2  \n".getBytes());
+            assertEquals(-2, Evaluation.read(file).weight(CORNER), 0);
+            assertEquals(0, Evaluation.read(file).weight(MATERIAL), 0);
+            Files.write(file, "corners 2\n".getBytes());
+            try {
+                Evaluation.read(file);
+                fail("accepted unknown feature");
+            } catch (GameException excp) {
+                /* Expected. */
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /** Positions in which red wins with a probability given by the
+     *  logistic function of a weighted sum of its pieces and edge pieces
+     *  should be fitted with weights in about the same proportion. */
+    @Test public void testTune() throws IOException {
+        Path file = Files.createTempFile("ataxx", ".train");
+        Random random = new Random(42);
+        ByteBuffer buf =
+            ByteBuffer.allocate(POSITIONS * TrainingData.RECORD_SIZE);
+        for (int i = 0; i < POSITIONS; i += 1) {
+            long red = 0, blue = 0;
+            for (int sq = 0; sq < Board.SIDE * Board.SIDE; sq += 1) {
+                int r = random.nextInt(3);
+                red |= (long) (r & 1) << sq;
+                blue |= (long) (r >> 1) << sq;
+            }
+            double x = 0.2 * feature(MATERIAL, red, blue, 0, true)
+                + 0.6 * feature(EDGE, red, blue, 0, true);
+            int pos = buf.position();
+            buf.putLong(red).putLong(blue).putLong(0).putInt(0)
+                .put((byte) (i & 1)).put((byte) 0).putShort((short) 0);
+            boolean redWins = random.nextDouble() < 1 / (1 + Math.exp(-x));
+            TrainingData.setResult(buf, pos, redWins ? 1 : -1);
+        }
+        buf.flip();
+        try {
+            try (FileChannel out = FileChannel.open(file, WRITE)) {
+                out.write(buf);
+            }
+            Tuner tuner = new Tuner(2);
+            tuner.load(file);
+            assertEquals(POSITIONS, tuner.size());
+            double scale = tuner.fitScale(MATERIAL_ONLY);
+            Evaluation fitted = tuner.tune(MATERIAL_ONLY, scale, 1000,
+                                           line -> { });
+            assertEquals(3, fitted.weight(EDGE) / fitted.weight(MATERIAL),
+                         0.5);
+            double[] initial = new double[FEATURES], last = initial.clone();
+            for (int k = 0; k < FEATURES; k += 1) {
+                initial[k] = MATERIAL_ONLY.weight(k);
+                last[k] = fitted.weight(k);
+            }
+            assertTrue(tuner.loss(last, scale) < tuner.loss(initial, scale));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+}
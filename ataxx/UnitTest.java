@@ -11,7 +11,15 @@ public class UnitTest {
      *  the arguments of runClasses to run other JUnit tests. */
     public static void main(String[] ignored) {
         textui.runClasses(CommandTest.class, MoveTest.class,
-                          BoardTest.class);
+                          BoardTest.class, RemoteServerTest.class,
+                          AnalyzerTest.class, EngineTest.class,
+                          MappedSourceTest.class, GameLogTest.class,
+                          SelfPlayTest.class, TunerTest.class,
+                          NetworkTest.class, PlayoutsTest.class,
+                          TranspositionTableTest.class,
+                          BlockLayoutTest.class, VariantBoardTest.class,
+                          VariantSearchTest.class,
+                          SeededRandomTest.class);
     }
 
 }
@@ -0,0 +1,575 @@
+package ataxx;
+
+import java.util.Arrays;
+
+import static ataxx.PieceColor.*;
+import static ataxx.GameException.error;
+
+/** An Ataxx board of any side from Geometry.MIN_SIDE to MAX_SIDE, for
+ *  experiments with variants of the game.  The rules are those of Board
+ *  (including Board.JUMP_LIMIT), with red starting in the top left and
+ *  bottom right corners and blue in the other two.
+ *
+ *  The contents of the squares are kept as masks (see Geometry), one
+ *  each for the red pieces, the blue pieces and the blocks.  On boards
+ *  of up to 8 squares a side, each mask is a single long, and the moves
+ *  are found with straight-line code on longs; larger boards use the
+ *  same methods looping over the words of each mask.
+ *
+ *  A move is an int: its from square times 256 plus its to square, or
+ *  PASS.  As with Board.legalMoves, all extends to the same square count
+ *  as one move.
+ *  @author Peter Sorensen
+ */
+class VariantBoard {
+
+    /** The pass move. */
+    static final int PASS = -1;
+
+    /** A board SIDE squares on a side in the initial position.  Throws a
+     *  GameException if SIDE is out of range. */
+    VariantBoard(int side) {
+        _geometry = Geometry.of(side);
+        _words = _geometry.words();
+        _red = new long[_words];
+        _blue = new long[_words];
+        _blocks = new long[_words];
+        _oneWord = _words == 1;
+        _captures = new long[HISTORY * _words];
+        clear();
+    }
+
+    /** Return the move from square FROM to square TO. */
+    static int move(int from, int to) {
+        return from << SQUARE_BITS | to;
+    }
+
+    /** Return the from square of MOVE (not a pass). */
+    static int from(int move) {
+        return move >>> SQUARE_BITS;
+    }
+
+    /** Return the to square of MOVE (not a pass). */
+    static int to(int move) {
+        return move & SQUARE_MASK;
+    }
+
+    /** Return my geometry. */
+    Geometry geometry() {
+        return _geometry;
+    }
+
+    /** Return the largest number of moves legalMoves can return. */
+    int maxMoves() {
+        return _geometry.squares() * MOVES_PER_SQUARE;
+    }
+
+    /** Set me to the initial position, with no blocks. */
+    void clear() {
+        Arrays.fill(_red, 0);
+        Arrays.fill(_blue, 0);
+        Arrays.fill(_blocks, 0);
+        int last = _geometry.side() - 1;
+        put(_red, _geometry.square(0, last));
+        put(_red, _geometry.square(last, 0));
+        put(_blue, _geometry.square(0, 0));
+        put(_blue, _geometry.square(last, last));
+        _numRed = _numBlue = 2;
+        _redToMove = true;
+        _numJumps = _numMoves = 0;
+        _ply = 0;
+    }
+
+    /** Block square SQ and its reflections across the middle row and/or
+     *  column.  It is an error for any of them to hold a piece. */
+    void setBlock(int sq) {
+        int last = _geometry.side() - 1;
+        int c = _geometry.col(sq), r = _geometry.row(sq);
+        int[] squares = {
+            sq, _geometry.square(last - c, r), _geometry.square(c, last - r),
+            _geometry.square(last - c, last - r)
+        };
+        for (int s : squares) {
+            if (test(_red, s) || test(_blue, s)) {
+                throw error("illegal block placement");
+            }
+        }
+        for (int s : squares) {
+            put(_blocks, s);
+        }
+    }
+
+    /** Set me to the position written in compact notation in TEXT (see
+     *  position()), with no moves to undo.  Throws a GameException if
+     *  TEXT is not a valid position for my side. */
+    void setPosition(String text) {
+        String[] fields = text.trim().split("\\s+");
+        String[] rows = fields[0].split("/");
+        int side = _geometry.side();
+        if (fields.length < 3 || rows.length != side) {
+            throw error("bad position");
+        }
+        long[] red = new long[_words], blue = new long[_words],
+            blocks = new long[_words];
+        for (int r = 0; r < side; r += 1) {
+            String row = rows[r];
+            int c = 0;
+            for (int k = 0; k < row.length(); k += 1) {
+                char ch = row.charAt(k);
+                if (Character.isDigit(ch)) {
+                    int n = ch - '0';
+                    if (k + 1 < row.length()
+                        && Character.isDigit(row.charAt(k + 1))) {
+                        k += 1;
+                        n = 10 * n + row.charAt(k) - '0';
+                    }
+                    c += n;
+                    continue;
+                }
+                if (c >= side) {
+                    throw error("bad position: row %d too long", side - r);
+                }
+                int sq = r * side + c;
+                switch (ch) {
+                case 'r':
+                    put(red, sq);
+                    break;
+                case 'b':
+                    put(blue, sq);
+                    break;
+                case 'X':
+                    put(blocks, sq);
+                    break;
+                default:
+                    throw error("bad position: unexpected '%c'", ch);
+                }
+                c += 1;
+            }
+            if (c != side) {
+                throw error("bad position: row %d has wrong length",
+                            side - r);
+            }
+        }
+        if (!fields[1].equals("r") && !fields[1].equals("b")) {
+            throw error("bad position: bad side to move");
+        }
+        try {
+            _numJumps = Integer.parseInt(fields[2]);
+            _numMoves = fields.length > 3 ? Integer.parseInt(fields[3]) : 0;
+        } catch (NumberFormatException excp) {
+            throw error("bad position: bad jump or move count");
+        }
+        System.arraycopy(red, 0, _red, 0, _words);
+        System.arraycopy(blue, 0, _blue, 0, _words);
+        System.arraycopy(blocks, 0, _blocks, 0, _words);
+        _numRed = count(_red);
+        _numBlue = count(_blue);
+        _redToMove = fields[1].equals("r");
+        _ply = 0;
+    }
+
+    /** Return my position in compact notation, as for Board.position(),
+     *  except that there are side() rows of side() squares, and runs of
+     *  more than nine empty squares are written with two digits. */
+    String position() {
+        StringBuilder out = new StringBuilder();
+        int side = _geometry.side();
+        for (int r = 0; r < side; r += 1) {
+            int empties = 0;
+            for (int c = 0; c < side; c += 1) {
+                PieceColor v = get(r * side + c);
+                if (v == EMPTY) {
+                    empties += 1;
+                    continue;
+                }
+                if (empties > 0) {
+                    out.append(empties);
+                    empties = 0;
+                }
+                out.append(v == RED ? 'r' : v == BLUE ? 'b' : 'X');
+            }
+            if (empties > 0) {
+                out.append(empties);
+            }
+            if (r < side - 1) {
+                out.append('/');
+            }
+        }
+        out.append(' ').append(_redToMove ? 'r' : 'b').append(' ')
+            .append(_numJumps).append(' ').append(_numMoves);
+        return out.toString();
+    }
+
+    /** Return the contents of square SQ. */
+    PieceColor get(int sq) {
+        if (test(_red, sq)) {
+            return RED;
+        } else if (test(_blue, sq)) {
+            return BLUE;
+        } else if (test(_blocks, sq)) {
+            return BLOCKED;
+        } else {
+            return EMPTY;
+        }
+    }
+
+    /** Return the side to move. */
+    PieceColor whoseMove() {
+        return _redToMove ? RED : BLUE;
+    }
+
+    /** Return the number of COLOR pieces (RED or BLUE). */
+    int numPieces(PieceColor color) {
+        return color == RED ? _numRed : _numBlue;
+    }
+
+    /** Return the number of consecutive jumps just made (see
+     *  Board.numJumps). */
+    int numJumps() {
+        return _numJumps;
+    }
+
+    /** Return the number of moves and passes made, counting from the
+     *  last clear or the move count of the last position set. */
+    int numMoves() {
+        return _numMoves;
+    }
+
+    /** Return true iff the game is over (see Board.gameOver). */
+    boolean gameOver() {
+        return _numJumps >= Board.JUMP_LIMIT || _numRed == 0
+            || _numBlue == 0 || !canMove(RED) && !canMove(BLUE);
+    }
+
+    /** Return true iff WHO (RED or BLUE) has a move other than pass,
+     *  whether or not it is WHO's move. */
+    boolean canMove(PieceColor who) {
+        long[] mine = who == RED ? _red : _blue;
+        if (_oneWord) {
+            long empty = empty(0);
+            return (_geometry.grow(_geometry.grow(mine[0])) & empty) != 0;
+        }
+        for (int w = 0; w < _words; w += 1) {
+            long empty = empty(w);
+            for (; empty != 0; empty &= empty - 1) {
+                int to = w * Long.SIZE + Long.numberOfTrailingZeros(empty);
+                for (int v = 0; v < _words; v += 1) {
+                    if (((_geometry.near(to, v) | _geometry.ring(to, v))
+                         & mine[v]) != 0) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /** Store the legal moves for whoseMove(), other than pass, into MOVES
+     *  and return how many there are.  Extends come first, in order of
+     *  their to squares; then jumps.  MOVES must have room for
+     *  maxMoves() entries. */
+    int legalMoves(int[] moves) {
+        if (_oneWord) {
+            return legalMoves1(moves);
+        }
+        long[] mine = _redToMove ? _red : _blue;
+        int n;
+        n = 0;
+        for (int w = 0; w < _words; w += 1) {
+            long empty = empty(w);
+            for (; empty != 0; empty &= empty - 1) {
+                int to = w * Long.SIZE + Long.numberOfTrailingZeros(empty);
+                for (int v = 0; v < _words; v += 1) {
+                    long from = _geometry.near(to, v) & mine[v];
+                    if (from != 0) {
+                        moves[n] = move(v * Long.SIZE
+                                        + Long.numberOfTrailingZeros(from),
+                                        to);
+                        n += 1;
+                        break;
+                    }
+                }
+            }
+        }
+        for (int w = 0; w < _words; w += 1) {
+            long empty = empty(w);
+            for (; empty != 0; empty &= empty - 1) {
+                int to = w * Long.SIZE + Long.numberOfTrailingZeros(empty);
+                for (int v = 0; v < _words; v += 1) {
+                    for (long from = _geometry.ring(to, v) & mine[v];
+                         from != 0; from &= from - 1) {
+                        moves[n] = move(v * Long.SIZE
+                                        + Long.numberOfTrailingZeros(from),
+                                        to);
+                        n += 1;
+                    }
+                }
+            }
+        }
+        return n;
+    }
+
+    /** As for legalMoves(MOVES), on a board whose masks are one word. */
+    private int legalMoves1(int[] moves) {
+        long mine = _redToMove ? _red[0] : _blue[0];
+        long empty = empty(0);
+        int n;
+        n = 0;
+        for (long to = _geometry.grow(mine) & empty; to != 0; to &= to - 1) {
+            int sq = Long.numberOfTrailingZeros(to);
+            moves[n] = move(Long.numberOfTrailingZeros(_geometry.near(sq, 0)
+                                                       & mine), sq);
+            n += 1;
+        }
+        for (long to = empty; to != 0; to &= to - 1) {
+            int sq = Long.numberOfTrailingZeros(to);
+            for (long from = _geometry.ring(sq, 0) & mine; from != 0;
+                 from &= from - 1) {
+                moves[n] = move(Long.numberOfTrailingZeros(from), sq);
+                n += 1;
+            }
+        }
+        return n;
+    }
+
+    /** Return the number of pieces MOVE (not a pass) for whoseMove()
+     *  would capture. */
+    int captures(int move) {
+        long[] theirs = _redToMove ? _blue : _red;
+        int to = to(move), n;
+        n = 0;
+        for (int w = 0; w < _words; w += 1) {
+            n += Long.bitCount(_geometry.near(to, w) & theirs[w]);
+        }
+        return n;
+    }
+
+    /** Return true iff MOVE (not a pass) is an extend. */
+    boolean isExtend(int move) {
+        return test(_geometry, from(move), to(move));
+    }
+
+    /** Make MOVE, which must be legal (PASS only if whoseMove() has no
+     *  other move). */
+    void makeMove(int move) {
+        if (_ply == _history.length) {
+            _history = Arrays.copyOf(_history, 2 * _ply);
+            _pastJumps = Arrays.copyOf(_pastJumps, 2 * _ply);
+            _captures = Arrays.copyOf(_captures, 2 * _ply * _words);
+        }
+        int base = _ply * _words;
+        _history[_ply] = move;
+        _pastJumps[_ply] = _numJumps;
+        _numMoves += 1;
+        if (move == PASS) {
+            Arrays.fill(_captures, base, base + _words, 0);
+            _ply += 1;
+            _redToMove = !_redToMove;
+            return;
+        }
+        long[] mine = _redToMove ? _red : _blue,
+            theirs = _redToMove ? _blue : _red;
+        int from = from(move), to = to(move);
+        boolean jump = !test(_geometry, from, to);
+        int captured;
+        captured = 0;
+        for (int w = 0; w < _words; w += 1) {
+            long c = _geometry.near(to, w) & theirs[w];
+            _captures[base + w] = c;
+            theirs[w] &= ~c;
+            mine[w] |= c;
+            captured += Long.bitCount(c);
+        }
+        put(mine, to);
+        if (jump) {
+            mine[from / Long.SIZE] &= ~(1L << from);
+        }
+        int gained = captured + (jump ? 0 : 1);
+        if (_redToMove) {
+            _numRed += gained;
+            _numBlue -= captured;
+        } else {
+            _numBlue += gained;
+            _numRed -= captured;
+        }
+        _numJumps = jump ? _numJumps + 1 : 0;
+        _ply += 1;
+        _redToMove = !_redToMove;
+    }
+
+    /** Undo the last move made since the last setPosition or clear. */
+    void undo() {
+        _ply -= 1;
+        _numMoves -= 1;
+        _redToMove = !_redToMove;
+        int move = _history[_ply];
+        if (move == PASS) {
+            return;
+        }
+        long[] mine = _redToMove ? _red : _blue,
+            theirs = _redToMove ? _blue : _red;
+        int from = from(move), to = to(move), base = _ply * _words;
+        boolean jump = !test(_geometry, from, to);
+        int captured;
+        captured = 0;
+        for (int w = 0; w < _words; w += 1) {
+            long c = _captures[base + w];
+            theirs[w] |= c;
+            mine[w] &= ~c;
+            captured += Long.bitCount(c);
+        }
+        mine[to / Long.SIZE] &= ~(1L << to);
+        if (jump) {
+            put(mine, from);
+        }
+        int gained = captured + (jump ? 0 : 1);
+        if (_redToMove) {
+            _numRed -= gained;
+            _numBlue += captured;
+        } else {
+            _numBlue -= gained;
+            _numRed += captured;
+        }
+        _numJumps = _pastJumps[_ply];
+    }
+
+    /** Return MOVE written as in "a1-b2" (or "-" for PASS). */
+    String moveString(int move) {
+        if (move == PASS) {
+            return "-";
+        }
+        return _geometry.name(from(move)) + "-" + _geometry.name(to(move));
+    }
+
+    /** Return the number of move sequences of length DEPTH from my
+     *  position, counted as by Perft.count. */
+    long perft(int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+        if (gameOver()) {
+            return 0;
+        }
+        int[] moves = moveBuffer(depth);
+        int n = legalMoves(moves);
+        if (depth == 1) {
+            return n == 0 ? 1 : n;
+        }
+        if (n == 0) {
+            makeMove(PASS);
+            long result = perft(depth - 1);
+            undo();
+            return result;
+        }
+        long total;
+        total = 0;
+        for (int i = 0; i < n; i += 1) {
+            makeMove(moves[i]);
+            total += perft(depth - 1);
+            undo();
+        }
+        return total;
+    }
+
+    /** Return the array used to hold the moves generated at DEPTH. */
+    private int[] moveBuffer(int depth) {
+        if (depth >= _moveBuffers.length) {
+            _moveBuffers = Arrays.copyOf(_moveBuffers, depth + 1);
+        }
+        if (_moveBuffers[depth] == null) {
+            _moveBuffers[depth] = new int[maxMoves()];
+        }
+        return _moveBuffers[depth];
+    }
+
+    /** Return word W of the mask of empty squares. */
+    private long empty(int w) {
+        return _geometry.all(w) & ~(_red[w] | _blue[w] | _blocks[w]);
+    }
+
+    /** Return true iff square SQ is in MASK. */
+    private static boolean test(long[] mask, int sq) {
+        return (mask[sq / Long.SIZE] & 1L << sq) != 0;
+    }
+
+    /** Return true iff squares FROM and TO are adjacent in GEOMETRY. */
+    private static boolean test(Geometry geometry, int from, int to) {
+        return (geometry.near(to, from / Long.SIZE) & 1L << from) != 0;
+    }
+
+    /** Add square SQ to MASK. */
+    private static void put(long[] mask, int sq) {
+        mask[sq / Long.SIZE] |= 1L << sq;
+    }
+
+    /** Return the number of squares in MASK. */
+    private static int count(long[] mask) {
+        int n;
+        n = 0;
+        for (long word : mask) {
+            n += Long.bitCount(word);
+        }
+        return n;
+    }
+
+    /** Print perft counts on a board of a given side.  ARGS are SIDE and
+     *  DEPTH, optionally followed by a position in compact notation (see
+     *  position()). */
+    public static void main(String[] args) {
+        try {
+            if (args.length < 2) {
+                throw error("too few arguments");
+            }
+            VariantBoard board = new VariantBoard(Integer.parseInt(args[0]));
+            int depth = Integer.parseInt(args[1]);
+            if (args.length > 2) {
+                board.setPosition(String.join(" ", Arrays.copyOfRange(args, 2,
+                                                                args.length)));
+            }
+            long start = System.nanoTime();
+            long total = board.perft(depth);
+            double secs = Math.max(System.nanoTime() - start, 1) * 1e-9;
+            System.out.printf("Nodes: %d  Time: %.3f s  (%.0f nodes/s)%n",
+                              total, secs, total / secs);
+        } catch (NumberFormatException | GameException excp) {
+            System.err.println("Usage: java ataxx.VariantBoard SIDE DEPTH"
+                               + " [POSITION]");
+            System.exit(1);
+        }
+    }
+
+    /** Bits in a square number within a move. */
+    private static final int SQUARE_BITS = 8;
+    /** Mask for a square number within a move. */
+    private static final int SQUARE_MASK = (1 << SQUARE_BITS) - 1;
+    /** An upper bound on the moves to each square (one extend, 16
+     *  jumps). */
+    private static final int MOVES_PER_SQUARE = 17;
+    /** Initial room for moves in the undo history. */
+    private static final int HISTORY = 64;
+
+    /** My geometry. */
+    private final Geometry _geometry;
+    /** Longs in each mask. */
+    private final int _words;
+    /** True iff my masks are single longs. */
+    private final boolean _oneWord;
+    /** Squares holding red pieces, blue pieces and blocks. */
+    private final long[] _red, _blue, _blocks;
+    /** Numbers of red and blue pieces. */
+    private int _numRed, _numBlue;
+    /** True iff red is to move. */
+    private boolean _redToMove;
+    /** Consecutive jumps, and moves made. */
+    private int _numJumps, _numMoves;
+    /** Number of moves that can be undone. */
+    private int _ply;
+    /** The moves that can be undone. */
+    private int[] _history = new int[HISTORY];
+    /** numJumps() before each of those moves. */
+    private int[] _pastJumps = new int[HISTORY];
+    /** The pieces captured by each of those moves, _words longs each. */
+    private long[] _captures;
+    /** Move lists for perft, by depth. */
+    private int[][] _moveBuffers = new int[0][];
+}
@@ -0,0 +1,130 @@
+package ataxx;
+
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import static ataxx.PieceColor.*;
+
+/** Tests of VariantBoard and Geometry.
+ *  @author Peter Sorensen
+ */
+public class VariantBoardTest {
+
+    /** Return the number of legal moves on BOARD, found square by square
+     *  using only its contents. */
+    private static int countMoves(VariantBoard board) {
+        Geometry g = board.geometry();
+        PieceColor who = board.whoseMove();
+        int n;
+        n = 0;
+        for (int to = 0; to < g.squares(); to += 1) {
+            if (board.get(to) != EMPTY) {
+                continue;
+            }
+            boolean extend = false;
+            for (int from = 0; from < g.squares(); from += 1) {
+                int d = Math.max(Math.abs(g.col(from) - g.col(to)),
+                                 Math.abs(g.row(from) - g.row(to)));
+                if (board.get(from) == who && d == 1) {
+                    extend = true;
+                } else if (board.get(from) == who && d == 2) {
+                    n += 1;
+                }
+            }
+            n += extend ? 1 : 0;
+        }
+        return n;
+    }
+
+    @Test public void testPerft() {
+        VariantBoard board = new VariantBoard(7);
+        long[] expected = { 1, 16, 256, 6460, 155888 };
+        for (int depth = 0; depth < expected.length; depth += 1) {
+            assertEquals(expected[depth], board.perft(depth));
+        }
+        assertEquals("r5b/7/7/7/7/7/b5r r 0 0", board.position());
+        board.setPosition("r5b/7/2X1X2/7/2X1X2/7/b5r r 0");
+        assertEquals(14, board.perft(1));
+        assertEquals(196, board.perft(2));
+        board.clear();
+        board.setBlock(board.geometry().square(2, 4));
+        assertEquals("r5b/7/2X1X2/7/2X1X2/7/b5r r 0 0", board.position());
+    }
+
+    @Test public void testSides() {
+        for (int side = Geometry.MIN_SIDE; side <= Geometry.MAX_SIDE;
+             side += 1) {
+            VariantBoard board = new VariantBoard(side);
+            assertEquals(side <= 8, board.geometry().words() == 1);
+            assertEquals(16, board.perft(1));
+            String position = board.position();
+            board.setPosition(position);
+            assertEquals(position, board.position());
+        }
+        try {
+            new VariantBoard(Geometry.MAX_SIDE + 1);
+            fail("accepted too large a board");
+        } catch (GameException excp) {
+            /* Expected. */
+        }
+    }
+
+    @Test public void testRandomGames() {
+        Random random = new Random(1);
+        for (int side = Geometry.MIN_SIDE; side <= Geometry.MAX_SIDE;
+             side += 1) {
+            VariantBoard board = new VariantBoard(side);
+            int[] moves = new int[board.maxMoves()];
+            for (int game = 0; game < 4; game += 1) {
+                board.clear();
+                board.setBlock(board.geometry().square(1, 2));
+                while (!board.gameOver()) {
+                    int n = board.legalMoves(moves);
+                    assertEquals(countMoves(board), n);
+                    String before = board.position();
+                    int move = n == 0 ? VariantBoard.PASS
+                        : moves[random.nextInt(n)];
+                    board.makeMove(move);
+                    if (random.nextInt(4) == 0) {
+                        board.undo();
+                        assertEquals(before, board.position());
+                        board.makeMove(move);
+                    }
+                    String after = board.position();
+                    board.setPosition(after);
+                    assertEquals(after, board.position());
+                }
+            }
+        }
+    }
+
+    @Test public void testSameAsBoard() {
+        Random random = new Random(2);
+        VariantBoard variant = new VariantBoard(7);
+        int[] moves = new int[variant.maxMoves()];
+        Board board = new Board();
+        board.setBlock('c', '5');
+        variant.setBlock(variant.geometry().square(2, 4));
+        while (!board.gameOver()) {
+            assertEquals(board.position(), variant.position());
+            assertFalse(variant.gameOver());
+            int n = variant.legalMoves(moves);
+            assertEquals(board.legalMoves(new Move[Board.MAX_MOVES]), n);
+            int move = n == 0 ? VariantBoard.PASS : moves[random.nextInt(n)];
+            String text = variant.moveString(move);
+            if (move == VariantBoard.PASS) {
+                board.makeMove(Move.pass());
+            } else {
+                board.makeMove(text.charAt(0), text.charAt(1),
+                               text.charAt(3), text.charAt(4));
+            }
+            variant.makeMove(move);
+        }
+        assertTrue(variant.gameOver());
+        assertEquals(board.redPieces(), variant.numPieces(RED));
+        assertEquals(board.bluePieces(), variant.numPieces(BLUE));
+    }
+
+}
@@ -0,0 +1,238 @@
+package ataxx;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static ataxx.PieceColor.*;
+import static ataxx.GameException.error;
+
+/** An alpha-beta search of positions on a VariantBoard, for playing and
+ *  measuring variants of the game.  It is a plain version of AI's
+ *  search: iterative deepening to a fixed depth, moves ordered by the
+ *  pieces they gain with the previous iteration's best move first, and
+ *  positions at the horizon valued by piece difference.  Scores are as
+ *  for AI (positive favoring red, AI.WINNING_VALUE less the number of
+ *  moves for a won game), so that on 7x7 boards a search to a given
+ *  depth finds the same value as AI with late move reductions and
+ *  quiescence search off.  Searches are deterministic.
+ *  @author Peter Sorensen
+ */
+class VariantSearch {
+
+    /** Return the best move (VariantBoard.PASS if the side to move can
+     *  only pass) for the side to move on BOARD, searching DEPTH > 0
+     *  plies, or VariantBoard.PASS if the game is over.  BOARD is
+     *  modified during the search but restored before returning.
+     *  Afterwards, lastScore() and nodes() describe the search. */
+    int bestMove(VariantBoard board, int depth) {
+        _nodes = 0;
+        _best = VariantBoard.PASS;
+        int sense = board.whoseMove() == RED ? 1 : -1;
+        if (board.gameOver()) {
+            _lastScore = finalScore(board);
+            return VariantBoard.PASS;
+        }
+        int value = 0;
+        for (int d = 1; d <= depth; d += 1) {
+            value = search(board, d, 0, -INFTY, INFTY);
+        }
+        _lastScore = sense * value;
+        return _best;
+    }
+
+    /** Return the value (positive favoring red) that the last search
+     *  assigned to its position. */
+    int lastScore() {
+        return _lastScore;
+    }
+
+    /** Return the number of positions visited by the last search. */
+    long nodes() {
+        return _nodes;
+    }
+
+    /** Return the value of BOARD for the side to move, searched to DEPTH
+     *  plies, PLY plies from the root: a value v such that
+     *  min(max(v, ALPHA), BETA) is the minimax value clamped to
+     *  [ALPHA, BETA].  At the root, sets _best to the best move. */
+    private int search(VariantBoard board, int depth, int ply, int alpha,
+                       int beta) {
+        _nodes += 1;
+        int sense = board.whoseMove() == RED ? 1 : -1;
+        if (board.gameOver()) {
+            return sense * finalScore(board);
+        }
+        if (depth == 0) {
+            return sense * (board.numPieces(RED) - board.numPieces(BLUE));
+        }
+        int[] moves = moveBuffer(board, ply);
+        int n = board.legalMoves(moves);
+        if (n == 0) {
+            board.makeMove(VariantBoard.PASS);
+            int value = -search(board, depth - 1, ply + 1, -beta, -alpha);
+            board.undo();
+            if (ply == 0) {
+                _best = VariantBoard.PASS;
+            }
+            return value;
+        }
+        order(board, moves, n, ply == 0 ? _best : VariantBoard.PASS);
+        int best = -INFTY;
+        for (int i = 0; i < n; i += 1) {
+            board.makeMove(moves[i]);
+            int value = -search(board, depth - 1, ply + 1, -beta, -alpha);
+            board.undo();
+            if (value > best) {
+                best = value;
+                if (ply == 0) {
+                    _best = moves[i];
+                }
+            }
+            alpha = Math.max(alpha, value);
+            if (alpha >= beta) {
+                break;
+            }
+        }
+        return best;
+    }
+
+    /** Sort the N moves in MOVES from BOARD's position so that those
+     *  gaining the most pieces (two per capture, plus one for an extend)
+     *  come first, but FIRST, if one of them, before all.  The sort is
+     *  stable. */
+    private void order(VariantBoard board, int[] moves, int n, int first) {
+        if (_scratchMoves.length < n) {
+            _scratchMoves = new int[moves.length];
+            _scratchKeys = new int[moves.length];
+        }
+        int[] counts = _keyCounts;
+        Arrays.fill(counts, 0);
+        for (int i = 0; i < n; i += 1) {
+            int move = moves[i];
+            int key = 2 * board.captures(move);
+            if (board.isExtend(move)) {
+                key += 1;
+            }
+            if (move == first) {
+                key = MAX_KEY;
+            }
+            _scratchMoves[i] = move;
+            _scratchKeys[i] = key;
+            counts[key] += 1;
+        }
+        for (int k = MAX_KEY, start = 0; k >= 0; k -= 1) {
+            int count = counts[k];
+            counts[k] = start;
+            start += count;
+        }
+        for (int i = 0; i < n; i += 1) {
+            moves[counts[_scratchKeys[i]]++] = _scratchMoves[i];
+        }
+    }
+
+    /** Return the array used to hold the moves generated at PLY on
+     *  BOARD. */
+    private int[] moveBuffer(VariantBoard board, int ply) {
+        if (ply >= _moveBuffers.length) {
+            _moveBuffers = Arrays.copyOf(_moveBuffers, ply + 1);
+        }
+        if (_moveBuffers[ply] == null
+            || _moveBuffers[ply].length < board.maxMoves()) {
+            _moveBuffers[ply] = new int[board.maxMoves()];
+        }
+        return _moveBuffers[ply];
+    }
+
+    /** Return the value of BOARD, on which the game is over, as for
+     *  AI. */
+    private static int finalScore(VariantBoard board) {
+        int diff = board.numPieces(RED) - board.numPieces(BLUE);
+        if (diff > 0) {
+            return AI.WINNING_VALUE - board.numMoves();
+        } else if (diff < 0) {
+            return -AI.WINNING_VALUE + board.numMoves();
+        } else {
+            return 0;
+        }
+    }
+
+    /** Play games between two searchers on a board of a given side and
+     *  report the results and the search speed.  ARGS are SIDE, DEPTH
+     *  and GAMES, optionally followed by a seed.  Each game opens with
+     *  OPENING_MOVES random moves, so that games differ. */
+    public static void main(String[] args) {
+        try {
+            if (args.length < 3) {
+                throw error("too few arguments");
+            }
+            int side = Integer.parseInt(args[0]);
+            int depth = Integer.parseInt(args[1]);
+            int games = Integer.parseInt(args[2]);
+            long seed = args.length > 3 ? Long.parseLong(args[3]) : 0;
+            if (depth <= 0 || games < 0) {
+                throw error("bad depth or number of games");
+            }
+            VariantBoard board = new VariantBoard(side);
+            VariantSearch searcher = new VariantSearch();
+            Random random = new Random(seed);
+            int[] moves = new int[board.maxMoves()];
+            int red, blue, draws;
+            red = blue = draws = 0;
+            long nodes = 0, start = System.nanoTime();
+            for (int g = 0; g < games; g += 1) {
+                board.clear();
+                while (!board.gameOver()) {
+                    int move;
+                    if (board.numMoves() < OPENING_MOVES) {
+                        int n = board.legalMoves(moves);
+                        move = n == 0 ? VariantBoard.PASS
+                            : moves[random.nextInt(n)];
+                    } else {
+                        move = searcher.bestMove(board, depth);
+                        nodes += searcher.nodes();
+                    }
+                    board.makeMove(move);
+                }
+                int diff = board.numPieces(RED) - board.numPieces(BLUE);
+                if (diff > 0) {
+                    red += 1;
+                } else if (diff < 0) {
+                    blue += 1;
+                } else {
+                    draws += 1;
+                }
+            }
+            double secs = Math.max(System.nanoTime() - start, 1) * 1e-9;
+            System.out.printf("Red wins: %d  Blue wins: %d  Draws: %d%n",
+                              red, blue, draws);
+            System.out.printf("Nodes: %d  Time: %.3f s  (%.0f nodes/s)%n",
+                              nodes, secs, nodes / secs);
+        } catch (NumberFormatException | GameException excp) {
+            System.err.println("Usage: java ataxx.VariantSearch SIDE DEPTH"
+                               + " GAMES [SEED]");
+            System.exit(1);
+        }
+    }
+
+    /** Number of random moves opening each game played by main. */
+    static final int OPENING_MOVES = 4;
+
+    /** A magnitude greater than a normal value. */
+    private static final int INFTY = Integer.MAX_VALUE;
+    /** Ordering key of the move to be searched first: greater than the
+     *  gain of any move. */
+    private static final int MAX_KEY = 18;
+
+    /** Best move at the root found by the current search. */
+    private int _best;
+    /** Results of the last search. */
+    private int _lastScore;
+    /** Positions visited by the last search. */
+    private long _nodes;
+    /** Move lists, by ply. */
+    private int[][] _moveBuffers = new int[0][];
+    /** Scratch space for order. */
+    private int[] _scratchMoves = new int[0], _scratchKeys = new int[0];
+    /** Counts of moves by key, for order. */
+    private final int[] _keyCounts = new int[MAX_KEY + 1];
+}
@@ -0,0 +1,65 @@
+package ataxx;
+
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of VariantSearch.
+ *  @author Peter Sorensen
+ */
+public class VariantSearchTest {
+
+    @Test public void testAgreesWithAI() {
+        SearchParams params = new SearchParams();
+        params.set("lmr", "off");
+        params.set("quiescence", "off");
+        Random random = new Random(3);
+        Move[] moves = new Move[Board.MAX_MOVES];
+        for (int game = 0; game < 10; game += 1) {
+            Board board = new Board();
+            while (board.numMoves() < 10 + game && !board.gameOver()) {
+                int n = board.legalMoves(moves);
+                board.makeMove(n == 0 ? Move.pass()
+                               : moves[random.nextInt(n)]);
+            }
+            if (board.gameOver()) {
+                continue;
+            }
+            VariantBoard variant = new VariantBoard(Board.SIDE);
+            variant.setPosition(board.position());
+            AI ai = new AI(params);
+            ai.analyze(board, 3);
+            VariantSearch searcher = new VariantSearch();
+            searcher.bestMove(variant, 3);
+            assertEquals(board.position(), ai.lastScore(),
+                         searcher.lastScore());
+            assertEquals(board.position(), variant.position());
+        }
+    }
+
+    @Test public void testFindsWin() {
+        VariantBoard board = new VariantBoard(9);
+        board.setPosition("9/9/9/9/9/9/9/1b7/r8 r 0 5");
+        VariantSearch searcher = new VariantSearch();
+        int best = searcher.bestMove(board, 3);
+        assertEquals(AI.WINNING_VALUE - 6, searcher.lastScore());
+        assertTrue(searcher.nodes() > 1);
+        assertEquals("9/9/9/9/9/9/9/1b7/r8 r 0 5", board.position());
+        board.makeMove(best);
+        assertTrue(board.gameOver());
+        assertEquals(VariantBoard.PASS, searcher.bestMove(board, 3));
+    }
+
+    @Test public void testPlaysLargeBoard() {
+        VariantBoard board = new VariantBoard(Geometry.MAX_SIDE);
+        VariantSearch searcher = new VariantSearch();
+        for (int i = 0; i < 6 && !board.gameOver(); i += 1) {
+            int move = searcher.bestMove(board, 2);
+            assertNotEquals(VariantBoard.PASS, move);
+            board.makeMove(move);
+        }
+        assertEquals(6, board.numMoves());
+    }
+
+}